@@ -0,0 +1,132 @@
+package com.lightningtrade.easyquant.archive;
+
+import com.lightningtrade.easyquant.store.BarArrays;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * K线归档文件读取器（流式）
+ * 逐个数据块解码，不在查询区间内的数据块只读取块头后跳过
+ */
+public class BarArchiveReader implements Closeable {
+    private final DataInputStream input;
+    private final String symbol;
+    private final String kType;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private byte[] payload = new byte[BarArchiveWriter.BLOCK_SIZE * 8];
+    private boolean finished;
+
+    /**
+     * @param input 输入流，关闭读取器时一并关闭
+     * @throws IOException 文件头格式错误或读取失败
+     */
+    public BarArchiveReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        if (this.input.readInt() != BarArchiveWriter.MAGIC) {
+            throw new IOException("不是K线归档文件");
+        }
+        short version = this.input.readShort();
+        if (version != BarArchiveWriter.VERSION) {
+            throw new IOException("不支持的归档版本: " + version);
+        }
+        this.symbol = this.input.readUTF();
+        this.kType = this.input.readUTF();
+        this.rangeStart = this.input.readLong();
+        this.rangeEnd = this.input.readLong();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getKType() {
+        return kType;
+    }
+
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    /**
+     * 解码下一个数据块，追加到out
+     *
+     * @return 是否读到了数据块，文件结束时返回false
+     */
+    public boolean readBlock(BarArrays out) throws IOException {
+        return readBlock(out, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * 读取下一个数据块，只有与[startTime, endTime]相交时才解码并把区间内的K线追加到out
+     *
+     * @return 是否读到了数据块，文件结束时返回false
+     */
+    public boolean readBlock(BarArrays out, long startTime, long endTime) throws IOException {
+        if (finished) {
+            return false;
+        }
+        int count = input.readInt();
+        if (count == 0) {
+            finished = true;
+            return false;
+        }
+        long firstTime = input.readLong();
+        long lastTime = input.readLong();
+        int flags = input.readUnsignedByte();
+        int length = input.readInt();
+
+        if (lastTime < startTime || firstTime > endTime) {
+            skipFully(length);
+            return true;
+        }
+        if (payload.length < length) {
+            payload = new byte[length];
+        }
+        input.readFully(payload, 0, length);
+        BitReader reader = new BitReader(payload, length);
+        if (firstTime >= startTime && lastTime <= endTime) {
+            BarBlockCodec.decode(reader, count, flags, out);
+        } else {
+            BarArrays block = new BarArrays(count);
+            BarBlockCodec.decode(reader, count, flags, block);
+            out.addAll(block, block.lowerBound(startTime), block.lowerBound(endTime + 1));
+        }
+        return true;
+    }
+
+    /**
+     * 读取[startTime, endTime]区间内的全部K线
+     */
+    public BarArrays readRange(long startTime, long endTime) throws IOException {
+        BarArrays bars = new BarArrays();
+        while (readBlock(bars, startTime, endTime)) {
+            // 逐块读取直到文件结束
+        }
+        return bars;
+    }
+
+    private void skipFully(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("归档文件数据块不完整");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,120 @@
+package com.lightningtrade.easyquant.archive;
+
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * K线归档文件写入器（流式）
+ *
+ * 文件格式：
+ * - 文件头：魔数"LTBA"、版本号、股票代码、K线类型、归档区间开始/结束时间（毫秒时间戳，包含）
+ * - 若干数据块：K线数量、首末K线时间、标志、编码后字节数、编码数据（见BarBlockCodec）
+ * - 结束标记：K线数量为0的数据块头
+ *
+ * K线按时间升序逐根写入，每满一个数据块编码写出一次，内存占用与归档大小无关。
+ */
+public class BarArchiveWriter implements Closeable {
+    static final int MAGIC = 0x4C544241;
+    static final short VERSION = 1;
+
+    // 每个数据块的K线数量
+    static final int BLOCK_SIZE = 4096;
+
+    private final DataOutputStream output;
+    private final BarArrays pending = new BarArrays(BLOCK_SIZE);
+    private final BitWriter bitWriter = new BitWriter(BLOCK_SIZE * 8);
+    private long lastTime = Long.MIN_VALUE;
+    private long barCount;
+    private boolean closed;
+
+    /**
+     * @param output     输出流，关闭写入器时一并关闭
+     * @param symbol     股票代码
+     * @param kType      K线类型
+     * @param rangeStart 归档区间开始时间（毫秒时间戳，包含）
+     * @param rangeEnd   归档区间结束时间（毫秒时间戳，包含）
+     */
+    public BarArchiveWriter(OutputStream output, String symbol, String kType, long rangeStart, long rangeEnd)
+            throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+        this.output.writeUTF(symbol);
+        this.output.writeUTF(kType);
+        this.output.writeLong(rangeStart);
+        this.output.writeLong(rangeEnd);
+    }
+
+    /**
+     * 写入一根K线，时间必须晚于上一根
+     */
+    public void write(long time, double open, double high, double low, double close, double volume)
+            throws IOException {
+        if (time <= lastTime) {
+            throw new IllegalArgumentException("K线时间必须严格递增: " + time);
+        }
+        lastTime = time;
+        pending.add(time, open, high, low, close, volume);
+        if (pending.size() == BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * 写入一段按时间升序排列的K线
+     */
+    public void write(BarColumns bars) throws IOException {
+        for (int i = 0; i < bars.size(); i++) {
+            write(bars.getTime(i), bars.getOpen(i), bars.getHigh(i), bars.getLow(i), bars.getClose(i),
+                    bars.getVolume(i));
+        }
+    }
+
+    /**
+     * 已写入的K线数量
+     */
+    public long getBarCount() {
+        return barCount + pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBlock();
+            output.writeInt(0);
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int count = pending.size();
+        if (count == 0) {
+            return;
+        }
+        bitWriter.reset();
+        int flags = BarBlockCodec.encode(pending, 0, count, bitWriter);
+        int length = bitWriter.finish();
+
+        output.writeInt(count);
+        output.writeLong(pending.getTime(0));
+        output.writeLong(pending.getTime(count - 1));
+        output.writeByte(flags);
+        output.writeInt(length);
+        output.write(bitWriter.buffer(), 0, length);
+
+        barCount += count;
+        pending.clear();
+    }
+}
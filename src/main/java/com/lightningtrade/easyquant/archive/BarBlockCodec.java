@@ -0,0 +1,268 @@
+package com.lightningtrade.easyquant.archive;
+
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+/**
+ * K线数据块编解码
+ * 一个数据块内按列依次编码，每列独立维护前值状态：
+ * - 时间：第一个时间原样写入，之后写二阶差分（delta-of-delta），常见的等间隔K线每根只占1位
+ * - 价格：数据块内所有价格都是最多4位小数的十进制数时，放大为整数后写与前值之差的变长整数；
+ *   否则与前一个值按位异或（Gorilla编码），相同价格只占1位，相近价格只写有效位
+ * - 成交量：全部为非负整数时按变长整数写入，否则与价格一样按异或编码
+ */
+final class BarBlockCodec {
+    // 数据块标志：成交量按变长整数编码
+    static final int FLAG_INTEGER_VOLUME = 1;
+
+    // 数据块标志：价格按十进制放大后的整数差分编码，放大倍数的指数存放在标志的第2-4位
+    static final int FLAG_SCALED_PRICE = 2;
+    private static final int SCALE_SHIFT = 2;
+
+    private static final int MAX_SCALE = 4;
+    private static final double[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000 };
+
+    private BarBlockCodec() {
+    }
+
+    /**
+     * 编码bars中[from, to)区间的K线
+     *
+     * @return 数据块标志
+     */
+    static int encode(BarColumns bars, int from, int to, BitWriter writer) {
+        encodeTimes(bars, from, to, writer);
+        int flags = 0;
+        int scale = priceScale(bars, from, to);
+        for (int column = 0; column < 4; column++) {
+            if (scale >= 0) {
+                encodeScaled(writer, bars, from, to, column, POWERS_OF_TEN[scale]);
+            } else {
+                encodeDoubles(writer, bars, from, to, column);
+            }
+        }
+        if (scale >= 0) {
+            flags |= FLAG_SCALED_PRICE | (scale << SCALE_SHIFT);
+        }
+
+        boolean integerVolume = true;
+        for (int i = from; i < to && integerVolume; i++) {
+            double volume = bars.getVolume(i);
+            integerVolume = volume >= 0 && volume == Math.rint(volume) && volume < Long.MAX_VALUE;
+        }
+        if (integerVolume) {
+            for (int i = from; i < to; i++) {
+                writer.writeVarLong((long) bars.getVolume(i));
+            }
+            return flags | FLAG_INTEGER_VOLUME;
+        }
+        encodeDoubles(writer, bars, from, to, 4);
+        return flags;
+    }
+
+    /**
+     * 解码一个数据块，追加到out
+     */
+    static void decode(BitReader reader, int count, int flags, BarArrays out) {
+        long[] time = new long[count];
+        double[][] values = new double[5][count];
+        decodeTimes(reader, time);
+        for (int column = 0; column < 4; column++) {
+            if ((flags & FLAG_SCALED_PRICE) != 0) {
+                decodeScaled(reader, values[column], POWERS_OF_TEN[(flags >>> SCALE_SHIFT) & 0x7]);
+            } else {
+                decodeDoubles(reader, values[column]);
+            }
+        }
+        if ((flags & FLAG_INTEGER_VOLUME) != 0) {
+            for (int i = 0; i < count; i++) {
+                values[4][i] = reader.readVarLong();
+            }
+        } else {
+            decodeDoubles(reader, values[4]);
+        }
+        for (int i = 0; i < count; i++) {
+            out.add(time[i], values[0][i], values[1][i], values[2][i], values[3][i], values[4][i]);
+        }
+    }
+
+    /**
+     * 求能把数据块内所有价格无损放大为整数的最小十进制指数，不存在时返回-1
+     */
+    private static int priceScale(BarColumns bars, int from, int to) {
+        int scale = 0;
+        for (int i = from; i < to; i++) {
+            for (int column = 0; column < 4; column++) {
+                double price = value(bars, i, column);
+                while (!isExactDecimal(price, scale)) {
+                    if (++scale > MAX_SCALE) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return scale;
+    }
+
+    // 放大后为整数，且缩小回去与原值完全相同
+    private static boolean isExactDecimal(double value, int scale) {
+        double scaled = Math.rint(value * POWERS_OF_TEN[scale]);
+        return Math.abs(scaled) < (1L << 52) && scaled / POWERS_OF_TEN[scale] == value;
+    }
+
+    private static void encodeScaled(BitWriter writer, BarColumns bars, int from, int to, int column,
+            double factor) {
+        long previous = 0;
+        for (int i = from; i < to; i++) {
+            long current = (long) Math.rint(value(bars, i, column) * factor);
+            writer.writeVarLong(zigzag(current - previous));
+            previous = current;
+        }
+    }
+
+    private static void decodeScaled(BitReader reader, double[] values, double factor) {
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += unzigzag(reader.readVarLong());
+            values[i] = previous / factor;
+        }
+    }
+
+    private static void encodeTimes(BarColumns bars, int from, int to, BitWriter writer) {
+        long previous = bars.getTime(from);
+        writer.writeBits(previous, 64);
+        long previousDelta = 0;
+        for (int i = from + 1; i < to; i++) {
+            long time = bars.getTime(i);
+            long delta = time - previous;
+            long zigzag = zigzag(delta - previousDelta);
+            if (zigzag == 0) {
+                writer.writeBits(0b0, 1);
+            } else if (zigzag < (1L << 7)) {
+                writer.writeBits(0b10, 2);
+                writer.writeBits(zigzag, 7);
+            } else if (zigzag < (1L << 12)) {
+                writer.writeBits(0b110, 3);
+                writer.writeBits(zigzag, 12);
+            } else if (zigzag < (1L << 20)) {
+                writer.writeBits(0b1110, 4);
+                writer.writeBits(zigzag, 20);
+            } else if (zigzag >>> 32 == 0) {
+                writer.writeBits(0b11110, 5);
+                writer.writeBits(zigzag, 32);
+            } else {
+                writer.writeBits(0b11111, 5);
+                writer.writeBits(zigzag, 64);
+            }
+            previous = time;
+            previousDelta = delta;
+        }
+    }
+
+    private static void decodeTimes(BitReader reader, long[] time) {
+        long previous = reader.readBits(64);
+        time[0] = previous;
+        long previousDelta = 0;
+        for (int i = 1; i < time.length; i++) {
+            long zigzag;
+            if (!reader.readBit()) {
+                zigzag = 0;
+            } else if (!reader.readBit()) {
+                zigzag = reader.readBits(7);
+            } else if (!reader.readBit()) {
+                zigzag = reader.readBits(12);
+            } else if (!reader.readBit()) {
+                zigzag = reader.readBits(20);
+            } else if (!reader.readBit()) {
+                zigzag = reader.readBits(32);
+            } else {
+                zigzag = reader.readBits(64);
+            }
+            long delta = previousDelta + unzigzag(zigzag);
+            previous += delta;
+            previousDelta = delta;
+            time[i] = previous;
+        }
+    }
+
+    /**
+     * 异或编码一列浮点数
+     * 控制位：0 与前值相同；10 有效位落在前一个窗口内；11 写入新窗口（6位前导零数 + 6位有效位长度-1）
+     */
+    private static void encodeDoubles(BitWriter writer, BarColumns bars, int from, int to, int column) {
+        long previous = Double.doubleToRawLongBits(value(bars, from, column));
+        writer.writeBits(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            long current = Double.doubleToRawLongBits(value(bars, i, column));
+            long xor = current ^ previous;
+            if (xor == 0) {
+                writer.writeBits(0b0, 1);
+            } else {
+                int leading = Long.numberOfLeadingZeros(xor);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    writer.writeBits(0b10, 2);
+                    writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int length = 64 - leading - trailing;
+                    writer.writeBits(0b11, 2);
+                    writer.writeBits(leading, 6);
+                    writer.writeBits(length - 1, 6);
+                    writer.writeBits(xor >>> trailing, length);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = current;
+        }
+    }
+
+    private static void decodeDoubles(BitReader reader, double[] values) {
+        long previous = reader.readBits(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (reader.readBit()) {
+                long xor;
+                if (!reader.readBit()) {
+                    xor = reader.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                } else {
+                    int leading = (int) reader.readBits(6);
+                    int length = (int) reader.readBits(6) + 1;
+                    int trailing = 64 - leading - length;
+                    xor = reader.readBits(length) << trailing;
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+    }
+
+    private static double value(BarColumns bars, int i, int column) {
+        switch (column) {
+            case 0:
+                return bars.getOpen(i);
+            case 1:
+                return bars.getHigh(i);
+            case 2:
+                return bars.getLow(i);
+            case 3:
+                return bars.getClose(i);
+            default:
+                return bars.getVolume(i);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
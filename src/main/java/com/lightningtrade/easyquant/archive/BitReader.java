@@ -0,0 +1,55 @@
+package com.lightningtrade.easyquant.archive;
+
+/**
+ * 按位读取字节数组，与BitWriter的写入顺序对应
+ */
+class BitReader {
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    // 已读入但尚未消费的位，低bitCount位有效
+    private long bits;
+    private int bitCount;
+
+    BitReader(byte[] buffer, int limit) {
+        this.buffer = buffer;
+        this.limit = limit;
+    }
+
+    /**
+     * 读取count位（count不超过64）
+     */
+    long readBits(int count) {
+        if (count > 32) {
+            long high = readBits(count - 32);
+            return (high << 32) | readBits(32);
+        }
+        while (bitCount < count) {
+            if (position >= limit) {
+                throw new IllegalStateException("归档数据块已结束");
+            }
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+            bitCount += 8;
+        }
+        bitCount -= count;
+        long mask = (1L << count) - 1;
+        return (bits >>> bitCount) & mask;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            long b = readBits(8);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("变长整数格式错误");
+    }
+}
@@ -0,0 +1,82 @@
+package com.lightningtrade.easyquant.archive;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的字节缓冲区
+ * 高位在前写入，写满8位落到字节数组中
+ */
+class BitWriter {
+    private byte[] buffer;
+    private int byteCount;
+
+    // 尚未落盘的位，低bitCount位有效
+    private long bits;
+    private int bitCount;
+
+    BitWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * 写入value的低count位（count不超过64）
+     */
+    void writeBits(long value, int count) {
+        if (count > 32) {
+            writeBits(value >>> 32, count - 32);
+            writeBits(value, 32);
+            return;
+        }
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        bits = (bits << count) | (value & mask);
+        bitCount += count;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            put((byte) (bits >>> bitCount));
+        }
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * 写入无符号变长整数，每7位一组，最高位表示后面是否还有数据
+     */
+    void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeBits((value & 0x7F) | 0x80, 8);
+            value >>>= 7;
+        }
+        writeBits(value, 8);
+    }
+
+    /**
+     * 补齐最后一个字节，返回写入的字节数
+     */
+    int finish() {
+        if (bitCount > 0) {
+            put((byte) (bits << (8 - bitCount)));
+            bitCount = 0;
+        }
+        bits = 0;
+        return byteCount;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    void reset() {
+        byteCount = 0;
+        bits = 0;
+        bitCount = 0;
+    }
+
+    private void put(byte b) {
+        if (byteCount == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[byteCount++] = b;
+    }
+}
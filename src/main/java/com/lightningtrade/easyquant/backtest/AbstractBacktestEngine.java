@@ -1,17 +1,219 @@
 package com.lightningtrade.easyquant.backtest;
 
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
 import com.lightningtrade.easyquant.strategy.TradingStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.model.Signal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
 
 @Component
 public abstract class AbstractBacktestEngine {
 
+    // 交易费率（假设为0.1%）
+    protected static final double TRANSACTION_FEE_RATE = 0.001;
+
+    // 最小交易单位
+    protected static final int MIN_TRADE_UNIT = 100;
+
+    // 是否使用批量信号计算模式
+    @Value("${backtest.batch-enabled:true}")
+    protected boolean batchEnabled;
+
     public abstract BacktestResult runBacktest(String symbol, List<MarketData> historicalData,
             TradingStrategy strategy, double initialCapital, KType kType);
 
+    /**
+     * 模拟成交
+     * 启用批量模式时先由策略一次算出整段信号列，再单独遍历信号列模拟成交；
+     * 否则按时间顺序把K线逐根交给策略。两种方式的结果相同。
+     * 
+     * @param symbol         交易品种的代码
+     * @param data           历史数据列表
+     * @param strategy       交易策略
+     * @param initialCapital 初始资金
+     * @param kType          K线类型
+     * @return 回测结果
+     */
+    protected BacktestResult simulate(String symbol, List<MarketData> data, TradingStrategy strategy,
+            double initialCapital, KType kType) {
+        if (!batchEnabled) {
+            return simulateBars(symbol, data, strategy, initialCapital, kType);
+        }
+        BarColumns bars;
+        ZoneId zoneId;
+        if (data instanceof BarColumns.MarketDataListView) {
+            BarColumns.MarketDataListView view = (BarColumns.MarketDataListView) data;
+            bars = view.getBars();
+            zoneId = view.getZoneId();
+        } else {
+            BarArrays copy = new BarArrays(data.size());
+            for (MarketData bar : data) {
+                copy.add(bar.getTimestamp(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+                        bar.getVolume());
+            }
+            bars = copy;
+            zoneId = data.get(0).getZoneId();
+        }
+        return simulateBatch(symbol, bars, zoneId, strategy, initialCapital, kType);
+    }
+
+    /**
+     * 由策略批量计算信号列，再遍历信号列模拟成交，只在成交时创建对象
+     */
+    protected BacktestResult simulateBatch(String symbol, BarColumns bars, ZoneId zoneId, TradingStrategy strategy,
+            double initialCapital, KType kType) {
+        Signal[] signals = strategy.computeSignals(bars);
+        Account account = new Account(symbol, initialCapital, bars.size());
+        for (int i = 0; i < bars.size(); i++) {
+            account.onBar(signals[i], bars.getTime(i), zoneId, bars.getClose(i));
+        }
+        return account.toResult(kType);
+    }
+
+    /**
+     * 按时间顺序把K线逐根交给策略，根据返回的信号模拟成交
+     */
+    protected BacktestResult simulateBars(String symbol, List<MarketData> data, TradingStrategy strategy,
+            double initialCapital, KType kType) {
+        Account account = new Account(symbol, initialCapital, data.size());
+        for (MarketData bar : data) {
+            account.onBar(strategy.onBar(bar), bar.getTimestamp(), bar.getZoneId(), bar.getClose());
+        }
+        return account.toResult(kType);
+    }
+
+    /**
+     * 模拟账户：按收盘价成交，记录交易、权益曲线和最大回撤
+     * 批量模式和逐根模式共用，保证两种方式的成交逻辑相同
+     */
+    private final class Account {
+        private final String symbol;
+        private final double initialCapital;
+        // 用于记录所有交易
+        private final List<BacktestTradeRecord> trades = new ArrayList<>();
+        // 每根K线收盘时的权益
+        private final double[] equity;
+        private int size;
+        // 当前资金
+        private double currentCapital;
+        // 当前持仓数量
+        private int currentPosition;
+        // 最大资金
+        private double maxCapital;
+        // 最大回撤
+        private double maxDrawdown;
+        private double lastPrice;
+
+        Account(String symbol, double initialCapital, int capacity) {
+            this.symbol = symbol;
+            this.initialCapital = initialCapital;
+            this.equity = new double[capacity];
+            this.currentCapital = initialCapital;
+            this.maxCapital = initialCapital;
+        }
+
+        /**
+         * 处理一根K线的信号：有可交易数量时按收盘价成交，再更新权益和最大回撤
+         */
+        void onBar(Signal signal, long timestamp, ZoneId zoneId, double price) {
+            if (signal != Signal.NONE) {
+                int tradeQuantity = calculateTradeQuantity(signal, currentCapital, currentPosition, price);
+                if (tradeQuantity > 0) {
+                    BacktestTradeRecord trade = new BacktestTradeRecord();
+                    trade.setSymbol(symbol);
+                    trade.setType(signal.name());
+                    trade.setPrice(price);
+                    trade.setTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp),
+                            zoneId != null ? zoneId : ZoneOffset.UTC));
+                    trade.setQuantity(tradeQuantity);
+
+                    // 更新资金和持仓
+                    double tradeCost = calculateTradeCost(tradeQuantity, price);
+                    if (signal == Signal.BUY) {
+                        currentCapital -= (price * tradeQuantity + tradeCost);
+                        currentPosition += tradeQuantity;
+                        trade.setProfit(0);
+                    } else if (signal == Signal.SELL) {
+                        double profit = price * tradeQuantity - tradeCost;
+                        currentCapital += profit;
+                        currentPosition -= tradeQuantity;
+                        trade.setProfit(profit);
+                    }
+                    trades.add(trade);
+                }
+            }
+
+            // 更新权益曲线（包括持仓市值）并计算最大回撤
+            double totalEquity = currentCapital + (currentPosition * price);
+            equity[size++] = totalEquity;
+            maxCapital = Math.max(maxCapital, totalEquity);
+            double drawdown = (maxCapital - totalEquity) / maxCapital;
+            maxDrawdown = Math.max(maxDrawdown, drawdown);
+            lastPrice = price;
+        }
+
+        BacktestResult toResult(KType kType) {
+            BacktestResult result = new BacktestResult();
+            result.setSymbol(symbol);
+            result.setInitialCapital(initialCapital);
+            result.setKType(kType);
+
+            List<Double> equityCurve = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                equityCurve.add(equity[i]);
+            }
+            double finalEquity = currentCapital + (currentPosition * lastPrice);
+            result.setFinalCapital(finalEquity);
+            result.setTotalReturn((finalEquity - initialCapital) / initialCapital);
+            result.setMaxDrawdown(maxDrawdown);
+            result.setTrades(trades);
+            result.setEquityCurve(equityCurve);
+            return result;
+        }
+    }
+
+    /**
+     * 计算可交易数量
+     * 
+     * @param signal   交易信号
+     * @param capital  当前资金
+     * @param position 当前持仓
+     * @param price    当前价格
+     * @return 可交易数量
+     */
+    protected int calculateTradeQuantity(Signal signal, double capital, int position, double price) {
+        if (signal == Signal.BUY) {
+            // 计算最大可买数量（考虑交易费用）
+            double maxAmount = capital / (price * (1 + TRANSACTION_FEE_RATE));
+            int maxQuantity = (int) (maxAmount / MIN_TRADE_UNIT) * MIN_TRADE_UNIT;
+            return maxQuantity > 0 ? maxQuantity : 0;
+        } else if (signal == Signal.SELL) {
+            // 返回当前持仓数量（如果有持仓的话）
+            return position > 0 ? position : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * 计算交易成本
+     * 
+     * @param quantity 交易数量
+     * @param price    交易价格
+     * @return 交易成本
+     */
+    protected double calculateTradeCost(int quantity, double price) {
+        return quantity * price * TRANSACTION_FEE_RATE;
+    }
+
     protected BacktestResult createEmptyResult(String symbol, double initialCapital, KType kType) {
         BacktestResult result = new BacktestResult();
         result.setSymbol(symbol);
@@ -16,7 +16,7 @@ public class BacktestEngine extends AbstractBacktestEngine {
             return createEmptyResult(symbol, initialCapital, kType);
         }
 
-        BacktestResult result = strategy.backtest(symbol, historicalData, initialCapital, kType);
+        BacktestResult result = simulate(symbol, historicalData, strategy, initialCapital, kType);
         result.setKType(kType); // 设置K线周期
 
         // 计算其他统计指标
@@ -0,0 +1,205 @@
+package com.lightningtrade.easyquant.calendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个市场的交易日历索引（不可变）
+ *
+ * 交易日以epochDay升序存放在int数组中，另有提前收市日的前缀计数，
+ * 区间内交易日数可通过两次二分查找在O(log n)内得到，某天是否提前收市也只需一次二分查找。
+ * 同时记录已加载的日期区间，用于判断查询是否可以完全在本地完成。
+ */
+public final class MarketCalendar {
+    private final MarketSession session;
+
+    // 交易日（epochDay，升序）
+    private final int[] days;
+
+    // earlyCloseBefore[i]表示days[0, i)中提前收市日的数量
+    private final int[] earlyCloseBefore;
+
+    // 已加载的日期区间（epochDay，闭区间，升序且互不相交）
+    private final int[] loadedFrom;
+    private final int[] loadedTo;
+
+    private MarketCalendar(MarketSession session, int[] days, boolean[] earlyClose,
+            int[] loadedFrom, int[] loadedTo) {
+        this.session = session;
+        this.days = days;
+        this.earlyCloseBefore = new int[days.length + 1];
+        for (int i = 0; i < days.length; i++) {
+            earlyCloseBefore[i + 1] = earlyCloseBefore[i] + (earlyClose[i] ? 1 : 0);
+        }
+        this.loadedFrom = loadedFrom;
+        this.loadedTo = loadedTo;
+    }
+
+    /**
+     * 创建空日历
+     */
+    public static MarketCalendar empty(MarketSession session) {
+        return new MarketCalendar(session, new int[0], new boolean[0], new int[0], new int[0]);
+    }
+
+    public MarketSession getSession() {
+        return session;
+    }
+
+    /**
+     * 日期区间是否已完整加载
+     */
+    public boolean covers(LocalDate from, LocalDate to) {
+        int start = (int) from.toEpochDay();
+        int end = (int) to.toEpochDay();
+        int index = Arrays.binarySearch(loadedFrom, start);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && loadedTo[index] >= end;
+    }
+
+    /**
+     * 日期区间内尚未加载的子区间
+     *
+     * @return 按日期升序排列的[开始日期, 结束日期]（闭区间）
+     */
+    public List<LocalDate[]> gaps(LocalDate from, LocalDate to) {
+        List<LocalDate[]> gaps = new ArrayList<>();
+        int cursor = (int) from.toEpochDay();
+        int end = (int) to.toEpochDay();
+        for (int i = 0; i < loadedFrom.length && cursor <= end; i++) {
+            if (loadedTo[i] < cursor) {
+                continue;
+            }
+            if (loadedFrom[i] > end) {
+                break;
+            }
+            if (loadedFrom[i] > cursor) {
+                gaps.add(new LocalDate[] { LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(loadedFrom[i] - 1) });
+            }
+            cursor = loadedTo[i] + 1;
+        }
+        if (cursor <= end) {
+            gaps.add(new LocalDate[] { LocalDate.ofEpochDay(cursor), to });
+        }
+        return gaps;
+    }
+
+    /**
+     * 全部已加载的日期区间
+     *
+     * @return 按日期升序排列的[开始日期, 结束日期]（闭区间）
+     */
+    public List<LocalDate[]> loadedRanges() {
+        List<LocalDate[]> ranges = new ArrayList<>(loadedFrom.length);
+        for (int i = 0; i < loadedFrom.length; i++) {
+            ranges.add(new LocalDate[] { LocalDate.ofEpochDay(loadedFrom[i]), LocalDate.ofEpochDay(loadedTo[i]) });
+        }
+        return ranges;
+    }
+
+    /**
+     * 区间内的交易日数量
+     */
+    public int countTradingDays(LocalDate from, LocalDate to) {
+        return Math.max(upperIndex(to) - lowerIndex(from), 0);
+    }
+
+    /**
+     * 是否为提前收市日
+     */
+    public boolean isEarlyClose(LocalDate date) {
+        int index = Arrays.binarySearch(days, (int) date.toEpochDay());
+        return index >= 0 && earlyCloseBefore[index + 1] > earlyCloseBefore[index];
+    }
+
+    /**
+     * 区间内的交易日列表
+     */
+    public List<LocalDate> tradingDays(LocalDate from, LocalDate to) {
+        int lower = lowerIndex(from);
+        int upper = upperIndex(to);
+        List<LocalDate> result = new ArrayList<>(Math.max(upper - lower, 0));
+        for (int i = lower; i < upper; i++) {
+            result.add(LocalDate.ofEpochDay(days[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 用一段新加载的日历替换[from, to]区间内的数据，返回新的日历
+     *
+     * @param from       区间开始日期
+     * @param to         区间结束日期
+     * @param newDays    区间内的交易日（升序）
+     * @param earlyClose 对应交易日是否提前收市
+     */
+    public MarketCalendar merge(LocalDate from, LocalDate to, List<LocalDate> newDays, List<Boolean> earlyClose) {
+        int start = (int) from.toEpochDay();
+        int end = (int) to.toEpochDay();
+        int lower = lowerIndex(from);
+        int upper = upperIndex(to);
+
+        int size = lower + newDays.size() + (days.length - upper);
+        int[] mergedDays = new int[size];
+        boolean[] mergedEarlyClose = new boolean[size];
+        int n = 0;
+        for (int i = 0; i < lower; i++, n++) {
+            mergedDays[n] = days[i];
+            mergedEarlyClose[n] = earlyCloseBefore[i + 1] > earlyCloseBefore[i];
+        }
+        for (int i = 0; i < newDays.size(); i++, n++) {
+            mergedDays[n] = (int) newDays.get(i).toEpochDay();
+            mergedEarlyClose[n] = earlyClose.get(i);
+        }
+        for (int i = upper; i < days.length; i++, n++) {
+            mergedDays[n] = days[i];
+            mergedEarlyClose[n] = earlyCloseBefore[i + 1] > earlyCloseBefore[i];
+        }
+
+        // 合并已加载区间
+        List<int[]> ranges = new ArrayList<>();
+        boolean inserted = false;
+        for (int i = 0; i < loadedFrom.length; i++) {
+            if (!inserted && loadedFrom[i] > start) {
+                ranges.add(new int[] { start, end });
+                inserted = true;
+            }
+            ranges.add(new int[] { loadedFrom[i], loadedTo[i] });
+        }
+        if (!inserted) {
+            ranges.add(new int[] { start, end });
+        }
+        List<int[]> mergedRanges = new ArrayList<>();
+        for (int[] range : ranges) {
+            int[] last = mergedRanges.isEmpty() ? null : mergedRanges.get(mergedRanges.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                mergedRanges.add(new int[] { range[0], range[1] });
+            }
+        }
+        int[] mergedFrom = new int[mergedRanges.size()];
+        int[] mergedTo = new int[mergedRanges.size()];
+        for (int i = 0; i < mergedRanges.size(); i++) {
+            mergedFrom[i] = mergedRanges.get(i)[0];
+            mergedTo[i] = mergedRanges.get(i)[1];
+        }
+        return new MarketCalendar(session, mergedDays, mergedEarlyClose, mergedFrom, mergedTo);
+    }
+
+    // 第一个不早于from的交易日下标
+    private int lowerIndex(LocalDate from) {
+        int index = Arrays.binarySearch(days, (int) from.toEpochDay());
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // 第一个晚于to的交易日下标
+    private int upperIndex(LocalDate to) {
+        int index = Arrays.binarySearch(days, (int) to.toEpochDay());
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
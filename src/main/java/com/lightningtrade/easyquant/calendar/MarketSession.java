@@ -0,0 +1,158 @@
+package com.lightningtrade.easyquant.calendar;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * 市场交易时段
+ * 描述各市场所在时区以及每个交易日的连续交易时段（按交易所当地时间的分钟数表示）
+ *
+ * - 美股：09:30-16:00，共390分钟；提前收市日13:00收盘，共210分钟
+ * - 港股：09:30-12:00、13:00-16:00，共330分钟；提前收市日只有上午时段，共150分钟
+ */
+public enum MarketSession {
+    US(ZoneId.of("America/New_York"),
+            new int[][] { { 570, 960 } },
+            new int[][] { { 570, 780 } }),
+    HK(ZoneId.of("Asia/Hong_Kong"),
+            new int[][] { { 570, 720 }, { 780, 960 } },
+            new int[][] { { 570, 720 } });
+
+    // 交易所时区
+    private final ZoneId zoneId;
+
+    // 正常交易日的交易时段，每项为[开始分钟, 结束分钟)
+    private final int[][] segments;
+
+    // 提前收市日的交易时段
+    private final int[][] earlyCloseSegments;
+
+    private final int minutesPerDay;
+    private final int earlyCloseMinutesPerDay;
+
+    MarketSession(ZoneId zoneId, int[][] segments, int[][] earlyCloseSegments) {
+        this.zoneId = zoneId;
+        this.segments = segments;
+        this.earlyCloseSegments = earlyCloseSegments;
+        this.minutesPerDay = totalMinutes(segments);
+        this.earlyCloseMinutesPerDay = totalMinutes(earlyCloseSegments);
+    }
+
+    /**
+     * 根据市场代码获取交易时段
+     *
+     * @param market 市场代码（US/HK，不区分大小写）
+     */
+    public static MarketSession of(String market) {
+        if (market == null) {
+            throw new IllegalArgumentException("市场代码不能为空");
+        }
+        try {
+            return valueOf(market.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的市场: " + market);
+        }
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    /**
+     * 每个交易日的交易分钟数
+     *
+     * @param earlyClose 是否为提前收市日
+     */
+    public int getMinutesPerDay(boolean earlyClose) {
+        return earlyClose ? earlyCloseMinutesPerDay : minutesPerDay;
+    }
+
+    /**
+     * 交易日开盘时间（毫秒时间戳）
+     */
+    public long sessionOpen(LocalDate date) {
+        return date.atStartOfDay(zoneId).plusMinutes(segments[0][0]).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 交易日收盘时间（毫秒时间戳）
+     */
+    public long sessionClose(LocalDate date, boolean earlyClose) {
+        int[][] daySegments = earlyClose ? earlyCloseSegments : segments;
+        return date.atStartOfDay(zoneId).plusMinutes(daySegments[daySegments.length - 1][1])
+                .toInstant().toEpochMilli();
+    }
+
+    /**
+     * 从now起下一次可能产生新行情的时间（毫秒时间戳）
+     * 交易时段内（包括港股午休）为now；休市时为下一个工作日的开盘时间，不考虑节假日，
+     * 节假日按交易日估计只会让结果偏早
+     */
+    public long nextActiveTime(long now) {
+        LocalDate date = tradeDate(now);
+        if (isWeekday(date) && now < sessionClose(date, false)) {
+            return Math.max(now, sessionOpen(date));
+        }
+        do {
+            date = date.plusDays(1);
+        } while (!isWeekday(date));
+        return sessionOpen(date);
+    }
+
+    /**
+     * 时间戳所在的交易日（交易所当地日期）
+     */
+    public LocalDate tradeDate(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).atZone(zoneId).toLocalDate();
+    }
+
+    /**
+     * 时间戳在当天连续交易时段中的分钟序号
+     * 各交易时段首尾相接计数，港股13:00对应第150分钟；不在交易时段内返回-1
+     */
+    public int minuteOfSession(long epochMilli) {
+        ZonedDateTime dateTime = Instant.ofEpochMilli(epochMilli).atZone(zoneId);
+        int minuteOfDay = dateTime.getHour() * 60 + dateTime.getMinute();
+        int offset = 0;
+        for (int[] segment : segments) {
+            if (minuteOfDay >= segment[0] && minuteOfDay < segment[1]) {
+                return offset + minuteOfDay - segment[0];
+            }
+            offset += segment[1] - segment[0];
+        }
+        return -1;
+    }
+
+    /**
+     * 连续交易时段中的分钟序号对应的时间（毫秒时间戳），minuteOfSession的逆运算
+     */
+    public long sessionMinuteToMillis(LocalDate date, int sessionMinute) {
+        int remaining = sessionMinute;
+        int minuteOfDay = segments[segments.length - 1][1];
+        for (int[] segment : segments) {
+            int length = segment[1] - segment[0];
+            if (remaining < length) {
+                minuteOfDay = segment[0] + remaining;
+                break;
+            }
+            remaining -= length;
+        }
+        return date.atStartOfDay(zoneId).plusMinutes(minuteOfDay).toInstant().toEpochMilli();
+    }
+
+    private static boolean isWeekday(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    private static int totalMinutes(int[][] segments) {
+        int total = 0;
+        for (int[] segment : segments) {
+            total += segment[1] - segment[0];
+        }
+        return total;
+    }
+}
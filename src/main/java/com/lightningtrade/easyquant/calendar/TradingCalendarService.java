@@ -0,0 +1,266 @@
+package com.lightningtrade.easyquant.calendar;
+
+import com.lightningtrade.easyquant.entity.TradingCalendarRange;
+import com.lightningtrade.easyquant.entity.TradingDay;
+import com.lightningtrade.easyquant.repository.TradingCalendarRangeRepository;
+import com.lightningtrade.easyquant.repository.TradingDayRepository;
+import com.lightningtrade.easyquant.service.RequestRateLimiter;
+import com.lightningtrade.easyquant.transport.TigerTransport;
+import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.TradeCalendar;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteTradeCalendarResponse;
+import com.tigerbrokers.stock.openapi.client.struct.enums.Market;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 交易日历服务
+ * 启动时从数据库预加载各市场的交易日历到内存索引，后台定期刷新未来一段时间的日历。
+ * 查询范围已加载时完全在本地完成，只有未加载的日期才会请求API并持久化。
+ * 交易日保存在trading_calendar表，已加载的日期区间保存在trading_calendar_range表。
+ */
+@Service
+public class TradingCalendarService {
+    private static final Logger logger = LoggerFactory.getLogger(TradingCalendarService.class);
+
+    // 单次请求日历API的最大天数
+    private static final int MAX_DAYS_PER_REQUEST = 365;
+
+    private static final String EARLY_CLOSE = "EARLY_CLOSE";
+
+    @Autowired
+    private TigerTransport transport;
+
+    @Autowired
+    private TradingDayRepository tradingDayRepository;
+
+    @Autowired
+    private TradingCalendarRangeRepository rangeRepository;
+
+    @Autowired
+    private RequestRateLimiter rateLimiter;
+
+    // 后台刷新时向前加载的历史年数
+    @Value("${data.calendar.history-years:5}")
+    private int historyYears;
+
+    // 后台刷新时向后加载的天数
+    @Value("${data.calendar.future-days:90}")
+    private int futureDays;
+
+    private final ConcurrentHashMap<MarketSession, MarketCalendar> calendars = new ConcurrentHashMap<>();
+
+    // 每个市场的加载锁，同一市场的日历同时只有一个线程请求API和写库
+    private final ConcurrentHashMap<MarketSession, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 从数据库预加载交易日历
+     */
+    @PostConstruct
+    public void preload() {
+        for (MarketSession session : MarketSession.values()) {
+            try {
+                MarketCalendar calendar = MarketCalendar.empty(session);
+                List<TradingDay> days = tradingDayRepository.findByMarketOrderByTradeDateAsc(session.name());
+                for (TradingCalendarRange range : rangeRepository.findByMarketOrderByStartDateAsc(session.name())) {
+                    LocalDate from = range.getStartDate();
+                    LocalDate to = range.getEndDate();
+                    List<LocalDate> dates = new ArrayList<>();
+                    List<Boolean> earlyClose = new ArrayList<>();
+                    for (TradingDay day : days) {
+                        if (!day.getTradeDate().isBefore(from) && !day.getTradeDate().isAfter(to)) {
+                            dates.add(day.getTradeDate());
+                            earlyClose.add(day.isEarlyClose());
+                        }
+                    }
+                    calendar = calendar.merge(from, to, dates, earlyClose);
+                }
+                calendars.put(session, calendar);
+                logger.info("预加载交易日历 - 市场: {}, 交易日数量: {}", session, days.size());
+            } catch (Exception e) {
+                logger.error("预加载交易日历失败 - 市场: {}", session, e);
+                calendars.put(session, MarketCalendar.empty(session));
+            }
+        }
+    }
+
+    /**
+     * 后台刷新交易日历
+     * 补齐历史区间中未加载的部分，并重新加载未来一段时间的日历（节假日安排可能调整）
+     */
+    @Scheduled(initialDelayString = "${data.calendar.initial-delay-ms:10000}",
+            fixedDelayString = "${data.calendar.refresh-interval-ms:43200000}")
+    public void refresh() {
+        LocalDate today = LocalDate.now();
+        for (MarketSession session : MarketSession.values()) {
+            try {
+                LocalDate historyStart = today.minusYears(historyYears);
+                ensureLoaded(session, historyStart, today.minusDays(1));
+                load(session, today, today.plusDays(futureDays));
+            } catch (Exception e) {
+                logger.error("刷新交易日历失败 - 市场: {}", session, e);
+            }
+        }
+    }
+
+    /**
+     * 获取交易日列表
+     *
+     * @param market    市场代码（US/HK）
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 交易日列表
+     */
+    public List<LocalDate> getTradingDays(String market, LocalDate startDate, LocalDate endDate) {
+        return calendar(market, startDate, endDate).tradingDays(startDate, endDate);
+    }
+
+    /**
+     * 获取区间内的交易日数量
+     */
+    public int countTradingDays(String market, LocalDate startDate, LocalDate endDate) {
+        return calendar(market, startDate, endDate).countTradingDays(startDate, endDate);
+    }
+
+    /**
+     * 获取当前内存中的市场日历，不请求API
+     * 未加载的日期按非交易日、非提前收市日处理，适合只用于细化结果、不能因此阻塞的场景
+     */
+    public MarketCalendar loadedCalendar(MarketSession session) {
+        return calendars.computeIfAbsent(session, MarketCalendar::empty);
+    }
+
+    /**
+     * 获取已加载好指定区间的市场日历
+     * 区间未加载时同步请求API补齐
+     */
+    public MarketCalendar calendar(String market, LocalDate startDate, LocalDate endDate) {
+        MarketSession session = MarketSession.of(market);
+        return ensureLoaded(session, startDate, endDate);
+    }
+
+    private MarketCalendar ensureLoaded(MarketSession session, LocalDate startDate, LocalDate endDate) {
+        MarketCalendar calendar = calendars.computeIfAbsent(session, MarketCalendar::empty);
+        if (endDate.isBefore(startDate) || calendar.covers(startDate, endDate)) {
+            return calendar;
+        }
+        synchronized (lock(session)) {
+            calendar = calendars.get(session);
+            if (calendar.covers(startDate, endDate)) {
+                return calendar;
+            }
+            for (LocalDate[] gap : calendar.gaps(startDate, endDate)) {
+                load(session, gap[0], gap[1]);
+            }
+            return calendars.get(session);
+        }
+    }
+
+    /**
+     * 从API加载[startDate, endDate]区间的交易日历，持久化并更新内存索引
+     */
+    private void load(MarketSession session, LocalDate startDate, LocalDate endDate) {
+        synchronized (lock(session)) {
+            LocalDate chunkStart = startDate;
+            while (!chunkStart.isAfter(endDate)) {
+                LocalDate chunkEnd = chunkStart.plusDays(MAX_DAYS_PER_REQUEST - 1);
+                if (chunkEnd.isAfter(endDate)) {
+                    chunkEnd = endDate;
+                }
+                List<TradeCalendar> items = fetchTradingDays(session, chunkStart, chunkEnd);
+                if (items == null) {
+                    return;
+                }
+                save(session, chunkStart, chunkEnd, items);
+                chunkStart = chunkEnd.plusDays(1);
+            }
+        }
+    }
+
+    private void save(MarketSession session, LocalDate startDate, LocalDate endDate, List<TradeCalendar> items) {
+        List<LocalDate> dates = new ArrayList<>();
+        List<Boolean> earlyClose = new ArrayList<>();
+        List<TradingDay> entities = new ArrayList<>();
+        List<TradeCalendar> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(TradeCalendar::getDate));
+        for (TradeCalendar item : sorted) {
+            LocalDate date = LocalDate.parse(item.getDate());
+            if (date.isBefore(startDate) || date.isAfter(endDate)) {
+                continue;
+            }
+            boolean early = EARLY_CLOSE.equalsIgnoreCase(item.getType());
+            dates.add(date);
+            earlyClose.add(early);
+
+            TradingDay entity = new TradingDay();
+            entity.setMarket(session.name());
+            entity.setTradeDate(date);
+            entity.setEarlyClose(early);
+            entities.add(entity);
+        }
+
+        tradingDayRepository.deleteByMarketAndTradeDateBetween(session.name(), startDate, endDate);
+        tradingDayRepository.saveAll(entities);
+        MarketCalendar calendar = calendars.compute(session, (key, current) ->
+                (current == null ? MarketCalendar.empty(key) : current).merge(startDate, endDate, dates, earlyClose));
+        saveRanges(session, calendar);
+
+        logger.info("加载交易日历 - 市场: {}, 区间: [{}, {}], 交易日数量: {}", session, startDate, endDate, dates.size());
+    }
+
+    private Object lock(MarketSession session) {
+        return locks.computeIfAbsent(session, key -> new Object());
+    }
+
+    /**
+     * 用合并后的已加载区间替换该市场的区间记录
+     */
+    private void saveRanges(MarketSession session, MarketCalendar calendar) {
+        List<TradingCalendarRange> ranges = new ArrayList<>();
+        for (LocalDate[] loaded : calendar.loadedRanges()) {
+            TradingCalendarRange range = new TradingCalendarRange();
+            range.setMarket(session.name());
+            range.setStartDate(loaded[0]);
+            range.setEndDate(loaded[1]);
+            ranges.add(range);
+        }
+        rangeRepository.deleteByMarket(session.name());
+        rangeRepository.saveAll(ranges);
+    }
+
+    /**
+     * 请求API获取交易日历
+     *
+     * @return 交易日列表，请求失败时返回null
+     */
+    private List<TradeCalendar> fetchTradingDays(MarketSession session, LocalDate startDate, LocalDate endDate) {
+        try {
+            rateLimiter.acquire();
+            QuoteTradeCalendarResponse response = transport.queryTradeCalendar(
+                    Market.valueOf(session.name()), startDate, endDate);
+            if (!response.isSuccess()) {
+                logger.error("获取交易日历失败 - 市场: {}, 错误码: {}, 错误信息: {}",
+                        session, response.getCode(), response.getMessage());
+                return null;
+            }
+            return response.getItems() != null ? response.getItems() : new ArrayList<>();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("获取交易日历被中断 - 市场: {}", session);
+            return null;
+        } catch (Exception e) {
+            logger.error("获取交易日历异常", e);
+            return null;
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.lightningtrade.easyquant.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.context.annotation.PropertySource;
 import lombok.Data;
 
 @Configuration
+@Profile("!replay")
 @PropertySource(value = "file:${tiger.config.path}", ignoreResourceNotFound = true)
 @Data
 public class TigerApiConfig {
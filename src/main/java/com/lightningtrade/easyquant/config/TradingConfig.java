@@ -24,6 +24,7 @@ public class TradingConfig {
     public static class Symbol {
         private String code;
         private int lotSize;
+        private int priority; // 预热优先级，数值越大越先加载
 
         @Override
         public boolean equals(Object o) {
@@ -50,6 +51,8 @@ public class TradingConfig {
         private Double oversoldThreshold;
         private Double overboughtThreshold;
         private Double kValue;
+        private String entryRule; // 规则策略的入场规则
+        private String exitRule; // 规则策略的出场规则
         private String market;
         private String kType = "day"; // 默认使用日K线
 
@@ -3,10 +3,10 @@ package com.lightningtrade.easyquant.controller;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.lightningtrade.easyquant.backtest.BacktestResult;
+import com.lightningtrade.easyquant.calendar.TradingCalendarService;
 import com.lightningtrade.easyquant.config.TradingConfig;
 import com.lightningtrade.easyquant.service.BacktestService;
 import com.lightningtrade.easyquant.service.DataService;
-import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.TradeCalendar;
 import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +48,9 @@ public class BacktestController {
     @Autowired
     private DataService dataService;
 
+    @Autowired
+    private TradingCalendarService calendarService;
+
     /**
      * 执行策略回测
      * 接收回测参数，执行回测，并返回回测结果
@@ -120,6 +123,8 @@ public class BacktestController {
             if (request.getKValue() != null) {
                 strategyConfig.setKValue(request.getKValue());
             }
+            strategyConfig.setEntryRule(request.getEntryRule());
+            strategyConfig.setExitRule(request.getExitRule());
 
             BacktestResult result = backtestService.runBacktest(
                     request.getSymbol(),
@@ -151,14 +156,12 @@ public class BacktestController {
             @RequestParam String endDate) {
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            LocalDateTime startTime = LocalDate.parse(startDate, formatter).atStartOfDay();
-            LocalDateTime endTime = LocalDate.parse(endDate, formatter).atTime(23, 59, 59);
-
-            List<TradeCalendar> tradingDays = dataService.getTradingDays(market, startTime, endTime);
+            List<LocalDate> tradingDays = calendarService.getTradingDays(market,
+                    LocalDate.parse(startDate, formatter), LocalDate.parse(endDate, formatter));
 
             // 转换为前端需要的格式
             List<String> tradingDates = tradingDays.stream()
-                    .map(TradeCalendar::getDate)
+                    .map(formatter::format)
                     .collect(Collectors.toList());
 
             return ResponseEntity.ok(tradingDates);
@@ -254,6 +257,14 @@ public class BacktestController {
         @JsonProperty("kValue")
         private Double kValue;
 
+        // 规则策略的入场规则
+        @JsonProperty("entryRule")
+        private String entryRule;
+
+        // 规则策略的出场规则
+        @JsonProperty("exitRule")
+        private String exitRule;
+
         // K线周期类型
         @JsonProperty("kType")
         private String kType;
@@ -347,6 +358,22 @@ public class BacktestController {
             this.kValue = kValue;
         }
 
+        public String getEntryRule() {
+            return entryRule;
+        }
+
+        public void setEntryRule(String entryRule) {
+            this.entryRule = entryRule;
+        }
+
+        public String getExitRule() {
+            return exitRule;
+        }
+
+        public void setExitRule(String exitRule) {
+            this.exitRule = exitRule;
+        }
+
         public String getKType() {
             return kType;
         }
@@ -379,6 +406,8 @@ public class BacktestController {
                     ", oversoldThreshold=" + oversoldThreshold +
                     ", overboughtThreshold=" + overboughtThreshold +
                     ", kValue=" + kValue +
+                    ", entryRule='" + entryRule + '\'' +
+                    ", exitRule='" + exitRule + '\'' +
                     ", kType='" + kType + '\'' +
                     '}';
         }
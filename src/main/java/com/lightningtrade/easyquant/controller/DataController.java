@@ -0,0 +1,171 @@
+package com.lightningtrade.easyquant.controller;
+
+import com.lightningtrade.easyquant.service.BarArchiveService;
+import com.lightningtrade.easyquant.service.BarTierService;
+import com.lightningtrade.easyquant.service.HistoryPrefetchService;
+import com.lightningtrade.easyquant.store.BarCache;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行情数据控制器
+ * 提供历史数据预加载相关的REST API接口
+ *
+ * API端点：
+ * - POST /api/data/prefetch：提交历史数据预加载任务
+ * - GET /api/data/prefetch/status：获取预加载进度和限流统计
+ * - GET /api/data/cache/status：获取K线内存缓存统计
+ * - GET /api/data/tiering/status：获取K线分层存储统计
+ * - POST /api/data/tiering/compact：立即执行一次分层压缩
+ * - POST /api/data/archive/export：导出历史区间为压缩归档文件
+ * - POST /api/data/archive/import：导入压缩归档文件
+ */
+@RestController
+@RequestMapping("/api/data")
+public class DataController {
+    private static final Logger logger = LoggerFactory.getLogger(DataController.class);
+
+    @Autowired
+    private HistoryPrefetchService prefetchService;
+
+    @Autowired
+    private BarCache barCache;
+
+    @Autowired
+    private BarArchiveService archiveService;
+
+    @Autowired
+    private BarTierService barTierService;
+
+    /**
+     * 提交历史数据预加载任务
+     * 未指定股票代码时预加载交易配置中所有启用市场的交易标的，任务在后台执行，接口立即返回
+     *
+     * @param symbols   股票代码列表（可选）
+     * @param market    市场代码（指定股票代码时使用，默认：US）
+     * @param kType     K线类型（默认：day）
+     * @param startDate 开始日期（yyyy-MM-dd）
+     * @param endDate   结束日期（yyyy-MM-dd）
+     */
+    @PostMapping("/prefetch")
+    public ResponseEntity<?> prefetch(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(defaultValue = "US") String market,
+            @RequestParam(defaultValue = "day") String kType,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        try {
+            LocalDateTime startTime = LocalDateTime.parse(startDate + "T00:00:00");
+            LocalDateTime endTime = LocalDateTime.parse(endDate + "T23:59:59");
+            KType type = KType.valueOf(kType);
+
+            if (symbols == null || symbols.isEmpty()) {
+                prefetchService.prefetchUniverse(type, startTime, endTime);
+            } else if (symbols.size() == 1) {
+                prefetchService.prefetch(symbols.get(0), market.toUpperCase(), type, startTime, endTime);
+            } else {
+                prefetchService.prefetchBatch(symbols, market.toUpperCase(), type, startTime, endTime);
+            }
+            return ResponseEntity.accepted().body(prefetchService.getStatus());
+        } catch (Exception e) {
+            logger.error("提交预加载任务失败", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Collections.singletonMap("error", "提交预加载任务失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取预加载进度和限流统计
+     */
+    @GetMapping("/prefetch/status")
+    public ResponseEntity<Map<String, Object>> getPrefetchStatus() {
+        return ResponseEntity.ok(prefetchService.getStatus());
+    }
+
+    /**
+     * 获取K线内存缓存统计
+     */
+    @GetMapping("/cache/status")
+    public ResponseEntity<Map<String, Object>> getCacheStatus() {
+        return ResponseEntity.ok(barCache.getStats());
+    }
+
+    /**
+     * 获取K线分层存储统计
+     */
+    @GetMapping("/tiering/status")
+    public ResponseEntity<Map<String, Object>> getTieringStatus() {
+        return ResponseEntity.ok(barTierService.getStatus());
+    }
+
+    /**
+     * 立即执行一次分层压缩（同步执行，压缩完成后返回统计）
+     */
+    @PostMapping("/tiering/compact")
+    public ResponseEntity<Map<String, Object>> compact() {
+        barTierService.compact();
+        return ResponseEntity.ok(barTierService.getStatus());
+    }
+
+    /**
+     * 导出历史区间为压缩归档文件
+     *
+     * @param symbol    股票代码
+     * @param market    市场代码（默认：US）
+     * @param kType     K线类型（默认：day）
+     * @param startDate 开始日期（yyyy-MM-dd）
+     * @param endDate   结束日期（yyyy-MM-dd）
+     * @return 归档文件路径、K线数量和文件大小
+     */
+    @PostMapping("/archive/export")
+    public ResponseEntity<?> exportArchive(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "US") String market,
+            @RequestParam(defaultValue = "day") String kType,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        try {
+            LocalDateTime startTime = LocalDateTime.parse(startDate + "T00:00:00");
+            LocalDateTime endTime = LocalDateTime.parse(endDate + "T23:59:59");
+            return ResponseEntity.ok(archiveService.exportArchive(symbol, market.toUpperCase(),
+                    KType.valueOf(kType), startTime, endTime));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Collections.singletonMap("error", "导出K线归档失败: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.error("导出K线归档失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", "导出K线归档失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 导入压缩归档文件
+     *
+     * @param file 归档文件名，相对归档目录（即导出接口返回的file）
+     * @return 导入的股票代码、K线类型和K线数量
+     */
+    @PostMapping("/archive/import")
+    public ResponseEntity<?> importArchive(@RequestParam String file) {
+        try {
+            return ResponseEntity.ok(archiveService.importArchive(file));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Collections.singletonMap("error", "导入K线归档失败: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.error("导入K线归档失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Collections.singletonMap("error", "导入K线归档失败: " + e.getMessage()));
+        }
+    }
+}
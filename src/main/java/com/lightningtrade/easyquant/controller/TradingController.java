@@ -1,5 +1,6 @@
 package com.lightningtrade.easyquant.controller;
 
+import com.lightningtrade.easyquant.indicator.IndicatorRegistry;
 import com.lightningtrade.easyquant.service.HKTradingService;
 import com.lightningtrade.easyquant.service.USTradingService;
 import com.lightningtrade.easyquant.config.TradingConfig;
@@ -15,7 +16,7 @@ import java.util.Map;
  * 交易控制器
  * 提供实时交易系统的REST API接口，用于管理和监控不同市场的交易状态和配置
  * 主要功能：
- * 1. 获取交易系统状态（各市场启用状态、交易标的、策略信息）
+ * 1. 获取交易系统状态（各市场启用状态、交易标的、策略信息、指标计算图统计）
  * 2. 查询交易系统配置
  * 3. 获取特定市场的交易标的和策略信息
  * 
@@ -41,6 +42,10 @@ public class TradingController {
     @Autowired
     private TradingConfig tradingConfig;
 
+    // 指标计算图注册表
+    @Autowired
+    private IndicatorRegistry indicatorRegistry;
+
     /**
      * 获取交易系统状态
      * 返回各个市场（港股、美股）的运行状态、交易标的和策略信息
@@ -49,6 +54,7 @@ public class TradingController {
      *         - enabled: 市场是否启用
      *         - symbols: 交易标的列表
      *         - strategy: 当前使用的交易策略（仅在市场启用时返回）
+     *         以及indicators：共用指标计算图的数量和节点总数
      */
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getStatus() {
@@ -71,6 +77,7 @@ public class TradingController {
             usStatus.put("strategy", tradingConfig.getMarkets().get("us").getStrategy());
         }
         status.put("us", usStatus);
+        status.put("indicators", indicatorRegistry.getStats());
 
         return ResponseEntity.ok(status);
     }
@@ -30,7 +30,7 @@ public class WebController {
 
     @GetMapping("/backtest")
     public String backtest(Model model) {
-        model.addAttribute("strategies", List.of("MA", "DOUBLE_MA", "MACD", "RSI", "BOLL"));
+        model.addAttribute("strategies", List.of("MA", "DOUBLE_MA", "MACD", "RSI", "BOLL", "RULE"));
         return "backtest";
     }
 }
\ No newline at end of file
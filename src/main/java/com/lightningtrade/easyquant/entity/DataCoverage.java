@@ -0,0 +1,58 @@
+package com.lightningtrade.easyquant.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 历史数据覆盖区间实体类
+ * 记录某个证券、某种K线周期在某个存储层中已完整下载的时间区间，
+ * 同一(证券, K线周期, 存储层)下的区间互不重叠
+ *
+ * 该类用于：
+ * - 判断查询范围内哪些子区间缺失，只下载缺失部分
+ * - 区分数据库与列式存储各自已同步的范围
+ */
+@Data
+@Entity
+@Table(name = "data_coverage", indexes = {
+        @Index(name = "idx_data_coverage_key", columnList = "symbol, k_type, layer, range_start")
+})
+public class DataCoverage {
+    // 存储层：数据库
+    public static final String LAYER_DATABASE = "DB";
+
+    // 存储层：列式存储
+    public static final String LAYER_BAR_STORE = "BAR_STORE";
+
+    // 记录的唯一标识
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 证券代码
+    private String symbol;
+
+    // K线周期类型
+    private String kType;
+
+    // 存储层（DB/BAR_STORE）
+    private String layer;
+
+    // 区间开始时间（毫秒时间戳，包含）
+    @Column(name = "range_start")
+    private long rangeStart;
+
+    // 区间结束时间（毫秒时间戳，包含）
+    @Column(name = "range_end")
+    private long rangeEnd;
+
+    // 最后更新时间
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
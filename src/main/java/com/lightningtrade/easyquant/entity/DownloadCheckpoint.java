@@ -0,0 +1,51 @@
+package com.lightningtrade.easyquant.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 历史数据下载断点实体类
+ * 长区间分页下载时，每提交一批K线就记录一次断点：已提交的最后一根K线时间和下一页的分页令牌。
+ * 下载中断（API报错、进程重启）后，缺失区间恰好从断点之后开始，凭分页令牌直接续传；
+ * 区间下载完成后删除断点。每个(证券, K线周期)最多一条。
+ */
+@Data
+@Entity
+@Table(name = "download_checkpoint", indexes = {
+        @Index(name = "idx_download_checkpoint_key", columnList = "symbol, k_type", unique = true)
+})
+public class DownloadCheckpoint {
+    // 记录的唯一标识
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 证券代码
+    private String symbol;
+
+    // K线周期类型
+    private String kType;
+
+    // 已提交的最后一根K线时间（毫秒时间戳），续传从它之后开始
+    @Column(name = "last_time")
+    private long lastTime;
+
+    // 下一页的分页令牌
+    @Column(name = "page_token", length = 1024)
+    private String pageToken;
+
+    // 已提交的K线数量（本次下载累计）
+    @Column(name = "saved_count")
+    private long savedCount;
+
+    // 最后更新时间
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -20,7 +20,9 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "historical_data")
+@Table(name = "historical_data", indexes = {
+        @Index(name = "idx_historical_data_key", columnList = "symbol, k_type, date_time")
+})
 public class HistoricalData {
     // 数据记录的唯一标识
     @Id
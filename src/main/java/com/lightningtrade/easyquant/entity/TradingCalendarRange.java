@@ -0,0 +1,33 @@
+package com.lightningtrade.easyquant.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * 交易日历已加载区间实体类
+ * 记录某个市场的交易日历已从API完整加载的日期区间，同一市场下的区间互不重叠且不相邻；
+ * 区间内不在trading_calendar表中的日期即为非交易日
+ */
+@Data
+@Entity
+@Table(name = "trading_calendar_range", indexes = {
+        @Index(name = "idx_trading_calendar_range_market", columnList = "market, start_date")
+})
+public class TradingCalendarRange {
+    // 记录的唯一标识
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 市场代码（US/HK）
+    private String market;
+
+    // 区间开始日期（包含）
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    // 区间结束日期（包含）
+    @Column(name = "end_date")
+    private LocalDate endDate;
+}
@@ -0,0 +1,32 @@
+package com.lightningtrade.easyquant.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * 交易日实体类
+ * 本地持久化的交易日历，每条记录对应某个市场的一个交易日
+ */
+@Data
+@Entity
+@Table(name = "trading_calendar", indexes = {
+        @Index(name = "idx_trading_calendar_market_date", columnList = "market, trade_date", unique = true)
+})
+public class TradingDay {
+    // 记录的唯一标识
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 市场代码（US/HK）
+    private String market;
+
+    // 交易日期（交易所当地日期）
+    @Column(name = "trade_date")
+    private LocalDate tradeDate;
+
+    // 是否提前收市
+    @Column(name = "early_close")
+    private boolean earlyClose;
+}
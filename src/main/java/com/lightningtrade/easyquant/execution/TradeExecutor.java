@@ -2,7 +2,7 @@ package com.lightningtrade.easyquant.execution;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.tigerbrokers.stock.openapi.client.https.client.TigerHttpClient;
+import com.lightningtrade.easyquant.transport.TigerTransport;
 import com.tigerbrokers.stock.openapi.client.https.request.TigerHttpRequest;
 import com.tigerbrokers.stock.openapi.client.https.response.TigerHttpResponse;
 import com.tigerbrokers.stock.openapi.client.struct.enums.ActionType;
@@ -21,7 +21,7 @@ public class TradeExecutor {
     private static final Logger logger = LoggerFactory.getLogger(TradeExecutor.class);
 
     @Autowired
-    private TigerHttpClient client;
+    private TigerTransport transport;
 
     /**
      * 市价单下单
@@ -47,7 +47,7 @@ public class TradeExecutor {
                     .buildJson();
 
             request.setBizContent(bizContent);
-            TigerHttpResponse response = client.execute(request);
+            TigerHttpResponse response = transport.execute(request);
 
             if (response.isSuccess()) {
                 JSONObject data = JSON.parseObject(response.getData());
@@ -93,7 +93,7 @@ public class TradeExecutor {
                     .buildJson();
 
             request.setBizContent(bizContent);
-            TigerHttpResponse response = client.execute(request);
+            TigerHttpResponse response = transport.execute(request);
 
             if (response.isSuccess()) {
                 JSONObject data = JSON.parseObject(response.getData());
@@ -126,7 +126,7 @@ public class TradeExecutor {
                     .buildJson();
 
             request.setBizContent(bizContent);
-            TigerHttpResponse response = client.execute(request);
+            TigerHttpResponse response = transport.execute(request);
             JSONObject data = JSON.parseObject(response.getData());
 
             // 检查响应
@@ -0,0 +1,90 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 布林带
+ * - 中轨 = N周期均值（getValue / getMiddle）
+ * - 上轨 = 中轨 + 倍数 * 标准差
+ * - 下轨 = 中轨 - 倍数 * 标准差
+ */
+public class BollingerBandsIndicator implements Indicator {
+    private final StandardDeviationIndicator deviation;
+    private final double multiplier;
+
+    /**
+     * @param period     移动平均线周期
+     * @param multiplier 标准差倍数
+     */
+    public BollingerBandsIndicator(int period, double multiplier) {
+        this.deviation = new StandardDeviationIndicator(period);
+        this.multiplier = multiplier;
+    }
+
+    @Override
+    public double update(double input) {
+        deviation.update(input);
+        return getMiddle();
+    }
+
+    /**
+     * 批量计算：输出0为中轨，输出1为上轨，输出2为下轨
+     */
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        double[] middle = outputs[0];
+        double[] upper = outputs[1];
+        double[] lower = outputs[2];
+        // 标准差先写入上轨列，再换算成上下轨
+        deviation.update(values, from, to, new double[][] {upper, middle});
+        for (int i = from; i < to; i++) {
+            double width = multiplier * upper[i];
+            upper[i] = middle[i] + width;
+            lower[i] = middle[i] - width;
+        }
+    }
+
+    @Override
+    public int getOutputCount() {
+        return 3;
+    }
+
+    @Override
+    public double getValue() {
+        return getMiddle();
+    }
+
+    public double getMiddle() {
+        return deviation.getMean();
+    }
+
+    public double getUpper() {
+        return deviation.getMean() + multiplier * deviation.getValue();
+    }
+
+    public double getLower() {
+        return deviation.getMean() - multiplier * deviation.getValue();
+    }
+
+    @Override
+    public boolean isReady() {
+        return deviation.isReady();
+    }
+
+    @Override
+    public void reset() {
+        deviation.reset();
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        deviation.writeState(out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        deviation.readState(in);
+    }
+}
@@ -0,0 +1,106 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 指数移动平均（EMA）
+ * EMA = 前值 + α * (新值 - 前值)，默认 α = 2 / (周期 + 1)，以第一个输入值作为初始值。
+ * 输入数量达到周期后视为就绪。
+ */
+public class EMAIndicator implements Indicator {
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double value = Double.NaN;
+
+    /**
+     * @param period 周期，平滑系数为 2 / (周期 + 1)
+     */
+    public EMAIndicator(int period) {
+        this(period, 2.0 / (period + 1));
+    }
+
+    /**
+     * @param period 周期
+     * @param alpha  平滑系数，取值(0, 1]
+     */
+    protected EMAIndicator(int period, double alpha) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Wilder平滑（MMA），α = 1 / 周期，用于RSI、ATR等指标
+     */
+    public static EMAIndicator wilder(int period) {
+        return new EMAIndicator(period, 1.0 / period);
+    }
+
+    @Override
+    public double update(double input) {
+        value = count == 0 ? input : value + alpha * (input - value);
+        if (count < period) {
+            count++;
+        }
+        return value;
+    }
+
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        double[] output = outputs[0];
+        double current = value;
+        int n = count;
+        for (int i = from; i < to; i++) {
+            double input = values[i];
+            current = n == 0 ? input : current + alpha * (input - current);
+            if (n < period) {
+                n++;
+            }
+            output[i] = current;
+        }
+        value = current;
+        count = n;
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+        value = Double.NaN;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(period);
+        out.writeInt(count);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int savedPeriod = in.readInt();
+        if (savedPeriod != period) {
+            throw new IOException("EMA周期不一致: " + savedPeriod + " != " + period);
+        }
+        count = in.readInt();
+        value = in.readDouble();
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
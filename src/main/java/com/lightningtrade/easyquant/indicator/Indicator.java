@@ -0,0 +1,69 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 流式技术指标
+ * 每根K线调用一次update，O(1)更新指标值，更新过程不分配对象；
+ * 批量计算时用update(values, from, to, outputs)一次算出整列
+ */
+public interface Indicator {
+
+    /**
+     * 输入一个新值并更新指标
+     *
+     * @param value 新值（通常为收盘价）
+     * @return 更新后的指标值
+     */
+    double update(double value);
+
+    /**
+     * 批量输入values[from, to)，每次更新后的第k个输出写入outputs[k]的对应下标，
+     * 结果和更新后的状态都与逐个调用update相同。
+     * 默认逐个调用update，实现类可以覆盖为在局部变量上循环计算、结束时写回一次状态
+     *
+     * @param outputs 各输出列，数量为getOutputCount()
+     */
+    default void update(double[] values, int from, int to, double[][] outputs) {
+        double[] output = outputs[0];
+        for (int i = from; i < to; i++) {
+            output[i] = update(values[i]);
+        }
+    }
+
+    /**
+     * 批量计算时的输出数量，第0个输出为getValue，有多个输出的指标（如MACD、布林带）覆盖
+     */
+    default int getOutputCount() {
+        return 1;
+    }
+
+    /**
+     * 当前指标值，尚未输入任何值时为NaN
+     */
+    double getValue();
+
+    /**
+     * 是否已累积足够的数据，指标值不再受初始值影响
+     */
+    boolean isReady();
+
+    /**
+     * 清空状态，重新开始计算
+     */
+    void reset();
+
+    /**
+     * 写出指标状态，用于保存快照
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * 从快照恢复指标状态
+     *
+     * @throws IOException 快照损坏，或快照的指标参数（周期等）与当前指标不一致
+     */
+    void readState(DataInput in) throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 计算图批量更新的结果：每个节点的各输出列，下标与输入K线一一对应
+ */
+public final class IndicatorColumns {
+    private final Map<Indicator, double[][]> columns = new IdentityHashMap<>();
+
+    void put(Indicator indicator, double[][] outputs) {
+        columns.put(indicator, outputs);
+    }
+
+    /**
+     * 指标值列（第0个输出）
+     */
+    public double[] get(Indicator indicator) {
+        return get(indicator, 0);
+    }
+
+    /**
+     * 指标的第output个输出列
+     *
+     * @throws IllegalArgumentException 指标不属于该计算图
+     */
+    public double[] get(Indicator indicator, int output) {
+        double[][] outputs = columns.get(indicator);
+        if (outputs == null) {
+            throw new IllegalArgumentException("指标不属于该计算图");
+        }
+        return outputs[output];
+    }
+}
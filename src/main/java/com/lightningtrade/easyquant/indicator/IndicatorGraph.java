@@ -0,0 +1,144 @@
+package com.lightningtrade.easyquant.indicator;
+
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 指标计算图
+ * 同一(股票, K线类型)上的所有策略共用一个计算图。指标按定义（类型 + 参数 + 输入）去重为图中的一个节点，
+ * 多个策略订阅同一定义时拿到的是同一个指标实例，每根K线只更新一次。
+ *
+ * 节点的输入是收盘价或图中另一个节点的值，节点按注册顺序更新，输入节点总是先于依赖它的节点注册，
+ * 注册顺序即拓扑顺序。批量更新时按同样的顺序逐个节点算出整列，下游节点的输入就是上游节点的值列。
+ *
+ * 计算图本身是线程安全的；读取节点值时应持有计算图的锁，避免读到更新了一半的状态。
+ */
+public class IndicatorGraph {
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Node> nodesByKey = new HashMap<>();
+    private final Map<Indicator, Node> nodesByIndicator = new IdentityHashMap<>();
+    // 最近一次更新的K线时间
+    private long lastTime = Long.MIN_VALUE;
+
+    /**
+     * 订阅以收盘价为输入的指标
+     *
+     * @param key     指标定义，包含类型和参数，如 SMA(20)
+     * @param factory 图中还没有该定义时用于创建指标
+     * @return 图中该定义对应的指标实例
+     */
+    public <T extends Indicator> T subscribe(String key, Supplier<T> factory) {
+        return subscribe(key, null, factory);
+    }
+
+    /**
+     * 订阅以另一个指标的值为输入的指标
+     *
+     * @param key     指标定义，包含类型和参数
+     * @param input   输入指标，必须是从本计算图订阅得到的实例；为null时以收盘价为输入
+     * @param factory 图中还没有该定义时用于创建指标
+     * @return 图中该定义对应的指标实例
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends Indicator> T subscribe(String key, Indicator input, Supplier<T> factory) {
+        Node source = null;
+        String fullKey = key;
+        if (input != null) {
+            source = nodesByIndicator.get(input);
+            if (source == null) {
+                throw new IllegalArgumentException("输入指标不属于该计算图: " + key);
+            }
+            fullKey = key + "<" + source.key;
+        }
+        Node node = nodesByKey.get(fullKey);
+        if (node == null) {
+            node = new Node(fullKey, factory.get(), source);
+            nodes.add(node);
+            nodesByKey.put(fullKey, node);
+            nodesByIndicator.put(node.indicator, node);
+        }
+        return (T) node.indicator;
+    }
+
+    /**
+     * 用一根K线更新所有节点
+     * 时间不晚于上一次更新的K线会被忽略，订阅同一计算图的多个策略处理同一根K线时只有第一次生效
+     *
+     * @return 是否更新了节点
+     */
+    public synchronized boolean advance(long time, double close) {
+        if (time <= lastTime) {
+            return false;
+        }
+        lastTime = time;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.indicator.update(node.input == null ? close : node.input.indicator.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * 用一段K线批量更新所有节点，每个节点在一个循环内由输入列算出自己的各输出列，
+     * 结果和更新后的状态都与逐根调用advance(time, close)相同。
+     * 时间不晚于上一次更新的K线已由共用计算图的其他策略处理，不更新节点，对应的指标值为NaN
+     *
+     * @param bars  按时间升序的K线
+     * @param close 收盘价列
+     * @return 各节点的输出列
+     */
+    public synchronized IndicatorColumns advance(BarColumns bars, double[] close) {
+        int size = close.length;
+        int start = lastTime == Long.MIN_VALUE ? 0 : bars.lowerBound(lastTime + 1);
+        IndicatorColumns columns = new IndicatorColumns();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            double[][] outputs = new double[node.indicator.getOutputCount()][size];
+            for (double[] output : outputs) {
+                Arrays.fill(output, 0, start, Double.NaN);
+            }
+            double[] input = node.input == null ? close : columns.get(node.input.indicator);
+            node.indicator.update(input, start, size, outputs);
+            columns.put(node.indicator, outputs);
+        }
+        if (start < size) {
+            lastTime = bars.getTime(size - 1);
+        }
+        return columns;
+    }
+
+    /**
+     * 指标状态由快照恢复后，记录其对应的最后一根K线时间
+     */
+    public synchronized void markUpdated(long time) {
+        lastTime = Math.max(lastTime, time);
+    }
+
+    public synchronized long getLastTime() {
+        return lastTime;
+    }
+
+    public synchronized int getNodeCount() {
+        return nodes.size();
+    }
+
+    private static final class Node {
+        final String key;
+        final Indicator indicator;
+        // 输入节点，为null时以收盘价为输入
+        final Node input;
+
+        Node(String key, Indicator indicator, Node input) {
+            this.key = key;
+            this.indicator = indicator;
+            this.input = input;
+        }
+    }
+}
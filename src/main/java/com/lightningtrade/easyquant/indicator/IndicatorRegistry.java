@@ -0,0 +1,44 @@
+package com.lightningtrade.easyquant.indicator;
+
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标计算图注册表
+ * 每个(股票, K线类型)一个计算图，实盘交易中同一行情上的所有策略共用，
+ * 同时运行多个策略变体时相同的指标只保存和计算一次
+ */
+@Component
+public class IndicatorRegistry {
+    private final ConcurrentHashMap<String, IndicatorGraph> graphs = new ConcurrentHashMap<>();
+
+    /**
+     * 获取(股票, K线类型)的计算图，不存在时创建
+     */
+    public IndicatorGraph getGraph(String symbol, KType kType) {
+        return graphs.computeIfAbsent(symbol + "/" + kType.name(), key -> new IndicatorGraph());
+    }
+
+    /**
+     * 丢弃(股票, K线类型)的计算图，之后getGraph返回新建的空计算图
+     * 用于快照恢复失败后重建策略：失败的恢复可能已写入部分节点状态。
+     * 已订阅旧计算图的策略继续使用旧图，不受影响
+     */
+    public void resetGraph(String symbol, KType kType) {
+        graphs.remove(symbol + "/" + kType.name());
+    }
+
+    /**
+     * 获取统计信息：计算图数量和节点总数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("graphs", graphs.size());
+        stats.put("nodes", graphs.values().stream().mapToInt(IndicatorGraph::getNodeCount).sum());
+        return stats;
+    }
+}
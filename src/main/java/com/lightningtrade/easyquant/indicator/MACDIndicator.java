@@ -0,0 +1,127 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * MACD指标
+ * - DIF = 快速EMA - 慢速EMA（getValue）
+ * - DEA = DIF的EMA（getSignal）
+ * - MACD柱 = 2 * (DIF - DEA)（getHistogram）
+ */
+public class MACDIndicator implements Indicator {
+    private final EMAIndicator fast;
+    private final EMAIndicator slow;
+    private final EMAIndicator signal;
+    private final int warmUp;
+    private int count;
+    private double value = Double.NaN;
+
+    /**
+     * @param fastPeriod   快速EMA周期
+     * @param slowPeriod   慢速EMA周期
+     * @param signalPeriod 信号线周期
+     */
+    public MACDIndicator(int fastPeriod, int slowPeriod, int signalPeriod) {
+        if (fastPeriod >= slowPeriod) {
+            throw new IllegalArgumentException("Fast period must be less than slow period");
+        }
+        this.fast = new EMAIndicator(fastPeriod);
+        this.slow = new EMAIndicator(slowPeriod);
+        this.signal = new EMAIndicator(signalPeriod);
+        this.warmUp = slowPeriod + signalPeriod;
+    }
+
+    @Override
+    public double update(double input) {
+        value = fast.update(input) - slow.update(input);
+        signal.update(value);
+        if (count < warmUp) {
+            count++;
+        }
+        return value;
+    }
+
+    /**
+     * 批量计算：快慢EMA和信号线各算一整列，输出0为DIF，输出1为DEA
+     */
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        if (to <= from) {
+            return;
+        }
+        double[] dif = outputs[0];
+        double[] slowColumn = new double[to];
+        fast.update(values, from, to, new double[][] {dif});
+        slow.update(values, from, to, new double[][] {slowColumn});
+        for (int i = from; i < to; i++) {
+            dif[i] -= slowColumn[i];
+        }
+        signal.update(dif, from, to, new double[][] {outputs[1]});
+        count = Math.min(warmUp, count + (to - from));
+        value = dif[to - 1];
+    }
+
+    @Override
+    public int getOutputCount() {
+        return 2;
+    }
+
+    /**
+     * DIF
+     */
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * DEA（信号线）
+     */
+    public double getSignal() {
+        return signal.getValue();
+    }
+
+    /**
+     * MACD柱
+     */
+    public double getHistogram() {
+        return 2 * (value - signal.getValue());
+    }
+
+    /**
+     * 慢速EMA和信号线都累积满周期后就绪
+     */
+    @Override
+    public boolean isReady() {
+        return count >= warmUp;
+    }
+
+    @Override
+    public void reset() {
+        fast.reset();
+        slow.reset();
+        signal.reset();
+        count = 0;
+        value = Double.NaN;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        fast.writeState(out);
+        slow.writeState(out);
+        signal.writeState(out);
+        out.writeInt(count);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        fast.readState(in);
+        slow.readState(in);
+        signal.readState(in);
+        count = in.readInt();
+        value = in.readDouble();
+    }
+}
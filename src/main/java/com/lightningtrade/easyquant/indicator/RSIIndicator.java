@@ -0,0 +1,108 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 相对强弱指标（RSI），Wilder平滑
+ * 平均涨幅和平均跌幅分别用 α = 1 / 周期 的移动平均计算，
+ * RSI = 100 - 100 / (1 + 平均涨幅 / 平均跌幅)。
+ * 平均跌幅为0时：平均涨幅也为0取0，否则取100。
+ */
+public class RSIIndicator implements Indicator {
+    private final EMAIndicator averageGain;
+    private final EMAIndicator averageLoss;
+    private double previous = Double.NaN;
+    private double value = Double.NaN;
+
+    /**
+     * @param period RSI计算周期
+     */
+    public RSIIndicator(int period) {
+        this.averageGain = EMAIndicator.wilder(period);
+        this.averageLoss = EMAIndicator.wilder(period);
+    }
+
+    @Override
+    public double update(double input) {
+        // 第一个值没有前值，涨跌幅都按0计入
+        double change = Double.isNaN(previous) ? 0 : input - previous;
+        previous = input;
+        double gain = averageGain.update(change > 0 ? change : 0);
+        double loss = averageLoss.update(change < 0 ? -change : 0);
+        if (loss == 0) {
+            value = gain == 0 ? 0 : 100;
+        } else {
+            value = 100 - 100 / (1 + gain / loss);
+        }
+        return value;
+    }
+
+    /**
+     * 批量计算：先算出涨幅列和跌幅列，分别做Wilder平滑，再逐个合成RSI
+     */
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        if (to <= from) {
+            return;
+        }
+        double[] output = outputs[0];
+        double[] gains = new double[to];
+        double[] losses = new double[to];
+        double last = previous;
+        for (int i = from; i < to; i++) {
+            double change = Double.isNaN(last) ? 0 : values[i] - last;
+            last = values[i];
+            gains[i] = change > 0 ? change : 0;
+            losses[i] = change < 0 ? -change : 0;
+        }
+        averageGain.update(gains, from, to, new double[][] {gains});
+        averageLoss.update(losses, from, to, new double[][] {losses});
+        for (int i = from; i < to; i++) {
+            double gain = gains[i];
+            double loss = losses[i];
+            if (loss == 0) {
+                output[i] = gain == 0 ? 0 : 100;
+            } else {
+                output[i] = 100 - 100 / (1 + gain / loss);
+            }
+        }
+        previous = last;
+        value = output[to - 1];
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return averageGain.isReady();
+    }
+
+    @Override
+    public void reset() {
+        averageGain.reset();
+        averageLoss.reset();
+        previous = Double.NaN;
+        value = Double.NaN;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        averageGain.writeState(out);
+        averageLoss.writeState(out);
+        out.writeDouble(previous);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        averageGain.readState(in);
+        averageLoss.readState(in);
+        previous = in.readDouble();
+        value = in.readDouble();
+    }
+}
@@ -0,0 +1,84 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 定长滑动窗口
+ * 基于环形数组保存最近N个值，窗口满后新值覆盖最早的值
+ */
+final class RingWindow {
+    private final double[] values;
+    private int head;
+    private int size;
+
+    RingWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.values = new double[capacity];
+    }
+
+    /**
+     * 追加一个值
+     *
+     * @return 被挤出窗口的值，窗口未满时返回NaN
+     */
+    double push(double value) {
+        double evicted = Double.NaN;
+        if (size == values.length) {
+            evicted = values[head];
+        } else {
+            size++;
+        }
+        values[head] = value;
+        head = head + 1 == values.length ? 0 : head + 1;
+        return evicted;
+    }
+
+    boolean isFull() {
+        return size == values.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * 按从早到晚的顺序写出窗口内的值
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(values.length);
+        out.writeInt(size);
+        int start = size == values.length ? head : 0;
+        for (int i = 0; i < size; i++) {
+            int slot = start + i;
+            out.writeDouble(values[slot >= values.length ? slot - values.length : slot]);
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        int capacity = in.readInt();
+        if (capacity != values.length) {
+            throw new IOException("窗口长度不一致: " + capacity + " != " + values.length);
+        }
+        int count = in.readInt();
+        if (count < 0 || count > capacity) {
+            throw new IOException("窗口数据量无效: " + count);
+        }
+        clear();
+        for (int i = 0; i < count; i++) {
+            push(in.readDouble());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 简单移动平均（SMA）
+ * 维护窗口内的累计和，每次更新加上新值、减去移出窗口的值。
+ * 窗口未满时取已有数据的平均值。
+ */
+public class SMAIndicator implements Indicator {
+    private final RingWindow window;
+    private double sum;
+    private double value = Double.NaN;
+
+    /**
+     * @param period 均线周期
+     */
+    public SMAIndicator(int period) {
+        this.window = new RingWindow(period);
+    }
+
+    @Override
+    public double update(double input) {
+        double evicted = window.push(input);
+        sum += input;
+        if (!Double.isNaN(evicted)) {
+            sum -= evicted;
+        }
+        value = sum / window.size();
+        return value;
+    }
+
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        double[] output = outputs[0];
+        double total = sum;
+        for (int i = from; i < to; i++) {
+            double input = values[i];
+            double evicted = window.push(input);
+            total += input;
+            if (!Double.isNaN(evicted)) {
+                total -= evicted;
+            }
+            output[i] = total / window.size();
+        }
+        sum = total;
+        if (to > from) {
+            value = output[to - 1];
+        }
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    @Override
+    public void reset() {
+        window.clear();
+        sum = 0;
+        value = Double.NaN;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        window.write(out);
+        out.writeDouble(sum);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        window.read(in);
+        sum = in.readDouble();
+        value = in.readDouble();
+    }
+
+    public int getPeriod() {
+        return window.capacity();
+    }
+}
@@ -0,0 +1,119 @@
+package com.lightningtrade.easyquant.indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 滚动标准差（总体标准差）
+ * 用Welford算法维护窗口内的均值和离差平方和，窗口满后新值替换最早的值，
+ * 避免累计平方和相减带来的精度损失。窗口未满时按已有数据计算。
+ */
+public class StandardDeviationIndicator implements Indicator {
+    private final RingWindow window;
+    private double mean;
+    // 离差平方和
+    private double m2;
+    private double value = Double.NaN;
+
+    /**
+     * @param period 窗口长度
+     */
+    public StandardDeviationIndicator(int period) {
+        this.window = new RingWindow(period);
+    }
+
+    @Override
+    public double update(double input) {
+        double evicted = window.push(input);
+        if (Double.isNaN(evicted)) {
+            double delta = input - mean;
+            mean += delta / window.size();
+            m2 += delta * (input - mean);
+        } else {
+            double previousMean = mean;
+            mean += (input - evicted) / window.size();
+            m2 += (input - evicted) * (input - mean + evicted - previousMean);
+        }
+        // 舍入误差可能使m2略小于0
+        value = m2 > 0 ? Math.sqrt(m2 / window.size()) : 0;
+        return value;
+    }
+
+    /**
+     * 批量计算：输出0为标准差，输出1为均值
+     */
+    @Override
+    public void update(double[] values, int from, int to, double[][] outputs) {
+        double[] output = outputs[0];
+        double[] means = outputs[1];
+        double currentMean = mean;
+        double currentM2 = m2;
+        for (int i = from; i < to; i++) {
+            double input = values[i];
+            double evicted = window.push(input);
+            if (Double.isNaN(evicted)) {
+                double delta = input - currentMean;
+                currentMean += delta / window.size();
+                currentM2 += delta * (input - currentMean);
+            } else {
+                double previousMean = currentMean;
+                currentMean += (input - evicted) / window.size();
+                currentM2 += (input - evicted) * (input - currentMean + evicted - previousMean);
+            }
+            output[i] = currentM2 > 0 ? Math.sqrt(currentM2 / window.size()) : 0;
+            means[i] = currentMean;
+        }
+        mean = currentMean;
+        m2 = currentM2;
+        if (to > from) {
+            value = output[to - 1];
+        }
+    }
+
+    @Override
+    public int getOutputCount() {
+        return 2;
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * 窗口内的均值，与同周期的SMA相同
+     */
+    public double getMean() {
+        return window.size() == 0 ? Double.NaN : mean;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    @Override
+    public void reset() {
+        window.clear();
+        mean = 0;
+        m2 = 0;
+        value = Double.NaN;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        window.write(out);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        window.read(in);
+        mean = in.readDouble();
+        m2 = in.readDouble();
+        value = in.readDouble();
+    }
+}
@@ -1,21 +1,31 @@
 package com.lightningtrade.easyquant.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 
 /**
  * 市场数据
  * 用于存储和传输单个时间点的市场行情数据
+ *
+ * 时间在内部以毫秒时间戳表示，策略和回测只使用timestamp；
+ * 交易所当地时间只在对外输出（接口返回、交易记录）时按所属市场的时区计算
  */
 @Data
 public class MarketData {
     // 股票代码
     private String symbol;
 
-    // 时间，格式：yyyy-MM-dd HH:mm:ss
-    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8", shape = JsonFormat.Shape.STRING)
-    private LocalDateTime dateTime;
+    // 时间（毫秒时间戳）
+    private long timestamp;
+
+    // 所属市场的交易所时区
+    @JsonIgnore
+    private ZoneId zoneId;
 
     // 开盘价
     private double open;
@@ -34,4 +44,13 @@ public class MarketData {
 
     // 成交额
     private double amount;
-}
\ No newline at end of file
+
+    /**
+     * 交易所当地时间，格式：yyyy-MM-dd HH:mm:ss
+     * 未设置时区时按UTC计算
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", shape = JsonFormat.Shape.STRING)
+    public LocalDateTime getDateTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), zoneId != null ? zoneId : ZoneOffset.UTC);
+    }
+}
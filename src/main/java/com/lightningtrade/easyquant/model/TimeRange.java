@@ -0,0 +1,38 @@
+package com.lightningtrade.easyquant.model;
+
+/**
+ * 时间区间
+ * 以毫秒时间戳表示的闭区间[start, end]
+ */
+public final class TimeRange {
+    // 开始时间（毫秒时间戳，包含）
+    private final long start;
+
+    // 结束时间（毫秒时间戳，包含）
+    private final long end;
+
+    public TimeRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * 区间是否包含另一个区间
+     */
+    public boolean contains(long otherStart, long otherEnd) {
+        return start <= otherStart && end >= otherEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + "]";
+    }
+}
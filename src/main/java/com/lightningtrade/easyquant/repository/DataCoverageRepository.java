@@ -0,0 +1,22 @@
+package com.lightningtrade.easyquant.repository;
+
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DataCoverageRepository extends JpaRepository<DataCoverage, Long> {
+
+    /**
+     * 查询某个证券、K线周期在指定存储层中的全部覆盖区间，按开始时间升序
+     */
+    @Query("SELECT c FROM DataCoverage c WHERE c.symbol = :symbol AND c.kType = :kType AND c.layer = :layer ORDER BY c.rangeStart ASC")
+    List<DataCoverage> findBySymbolAndkTypeAndLayerOrderByRangeStartAsc(
+            @Param("symbol") String symbol,
+            @Param("kType") String kType,
+            @Param("layer") String layer);
+}
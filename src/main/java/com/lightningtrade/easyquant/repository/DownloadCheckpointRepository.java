@@ -0,0 +1,31 @@
+package com.lightningtrade.easyquant.repository;
+
+import com.lightningtrade.easyquant.entity.DownloadCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DownloadCheckpointRepository extends JpaRepository<DownloadCheckpoint, Long> {
+
+    /**
+     * 查询某个证券、K线周期的下载断点，不存在时返回null
+     */
+    @Query("SELECT c FROM DownloadCheckpoint c WHERE c.symbol = :symbol AND c.kType = :kType")
+    DownloadCheckpoint findBySymbolAndkType(
+            @Param("symbol") String symbol,
+            @Param("kType") String kType);
+
+    /**
+     * 删除某个证券、K线周期的下载断点
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DownloadCheckpoint c WHERE c.symbol = :symbol AND c.kType = :kType")
+    int deleteBySymbolAndkType(
+            @Param("symbol") String symbol,
+            @Param("kType") String kType);
+}
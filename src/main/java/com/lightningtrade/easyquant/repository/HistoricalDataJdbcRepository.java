@@ -0,0 +1,192 @@
+package com.lightningtrade.easyquant.repository;
+
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 历史行情数据的JDBC读写
+ *
+ * 写入：HistoricalData的主键为IDENTITY自增，JPA的saveAll无法使用JDBC批处理，每根K线都是一条单独的INSERT。
+ * 这里绕过JPA，直接用JDBC批量执行H2的MERGE语句，以(symbol, k_type, date_time)为键做插入或更新，
+ * 整个区间在一个事务内完成。
+ *
+ * 读取：只查询时间和OHLCV列，按游标逐行写入原始类型数组，不创建实体、不经过持久化上下文。
+ */
+@Repository
+public class HistoricalDataJdbcRepository {
+
+    private static final String MERGE_SQL = "MERGE INTO historical_data "
+            + "(symbol, k_type, date_time, open, high, low, close, volume, created_at) "
+            + "KEY (symbol, k_type, date_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_RANGE_SQL = "DELETE FROM historical_data "
+            + "WHERE symbol = ? AND k_type = ? AND date_time BETWEEN ? AND ?";
+
+    private static final String SELECT_RANGE_SQL = "SELECT date_time, open, high, low, close, volume "
+            + "FROM historical_data WHERE symbol = ? AND k_type = ? AND date_time BETWEEN ? AND ? "
+            + "ORDER BY date_time ASC";
+
+    private static final String SELECT_KEYS_BEFORE_SQL = "SELECT DISTINCT symbol, k_type FROM historical_data "
+            + "WHERE date_time < ?";
+
+    private static final String SELECT_KEYS_SQL = "SELECT DISTINCT symbol, k_type FROM historical_data";
+
+    private static final String SELECT_TIMES_SQL = "SELECT date_time FROM historical_data "
+            + "WHERE symbol = ? AND k_type = ? ORDER BY date_time ASC";
+
+    private static final String SELECT_EARLIEST_SQL = "SELECT MIN(date_time) FROM historical_data "
+            + "WHERE symbol = ? AND k_type = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 每个JDBC批次的语句数
+    @Value("${data.bulk.batch-size:1000}")
+    private int batchSize;
+
+    // 读取时每次从数据库取回的行数
+    @Value("${data.bulk.fetch-size:5000}")
+    private int fetchSize;
+
+    /**
+     * 读取指定股票、K线类型在[startTime, endTime]区间内的K线
+     *
+     * @param startTime 开始时间（毫秒时间戳，包含）
+     * @param endTime   结束时间（毫秒时间戳，包含）
+     * @return 按时间升序排列的K线列数组
+     */
+    public BarArrays readBars(String symbol, String kType, long startTime, long endTime) {
+        BarArrays bars = new BarArrays();
+        jdbcTemplate.query(SELECT_RANGE_SQL, ps -> {
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, symbol);
+            ps.setString(2, kType);
+            ps.setTimestamp(3, new Timestamp(startTime));
+            ps.setTimestamp(4, new Timestamp(endTime));
+        }, rs -> {
+            bars.add(rs.getTimestamp(1).getTime(), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4),
+                    rs.getDouble(5), rs.getDouble(6));
+        });
+        return bars;
+    }
+
+    /**
+     * 按(symbol, k_type, date_time)批量插入或更新列式K线，不经过实体对象
+     *
+     * @param symbol 股票代码
+     * @param kType  K线类型
+     * @param bars   按时间升序排列的K线
+     * @return 写入的记录数
+     */
+    @Transactional
+    public int upsert(String symbol, String kType, BarColumns bars) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int offset = 0; offset < bars.size(); offset += batchSize) {
+            int from = offset;
+            int count = Math.min(batchSize, bars.size() - offset);
+            jdbcTemplate.batchUpdate(MERGE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int index = from + i;
+                    ps.setString(1, symbol);
+                    ps.setString(2, kType);
+                    ps.setTimestamp(3, new Timestamp(bars.getTime(index)));
+                    ps.setDouble(4, bars.getOpen(index));
+                    ps.setDouble(5, bars.getHigh(index));
+                    ps.setDouble(6, bars.getLow(index));
+                    ps.setDouble(7, bars.getClose(index));
+                    ps.setDouble(8, bars.getVolume(index));
+                    ps.setTimestamp(9, createdAt);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+        return bars.size();
+    }
+
+    /**
+     * 删除指定股票、K线类型在[startTime, endTime]区间内的K线（毫秒时间戳）
+     *
+     * @return 删除的记录数
+     */
+    @Transactional
+    public int deleteRange(String symbol, String kType, long startTime, long endTime) {
+        return jdbcTemplate.update(DELETE_RANGE_SQL, symbol, kType,
+                new Timestamp(startTime), new Timestamp(endTime));
+    }
+
+    /**
+     * 用新数据替换指定股票、K线类型在[startTime, endTime]区间内的K线（毫秒时间戳）
+     * 删除区间内已不存在的旧K线，再批量写入新数据，两步在同一个事务内完成
+     *
+     * @return 删除的旧记录数
+     */
+    @Transactional
+    public int replaceRange(String symbol, String kType, long startTime, long endTime, BarColumns data) {
+        int deleted = deleteRange(symbol, kType, startTime, endTime);
+        upsert(symbol, kType, data);
+        return deleted;
+    }
+
+    /**
+     * 查询存在早于指定时间的K线的全部(股票, K线类型)
+     *
+     * @param time 毫秒时间戳
+     * @return 每项为[symbol, kType]
+     */
+    public List<String[]> findKeysBefore(long time) {
+        return jdbcTemplate.query(SELECT_KEYS_BEFORE_SQL,
+                (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) }, new Timestamp(time));
+    }
+
+    /**
+     * 查询有K线数据的全部(股票, K线类型)
+     *
+     * @return 每项为[symbol, kType]
+     */
+    public List<String[]> findKeys() {
+        return jdbcTemplate.query(SELECT_KEYS_SQL, (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) });
+    }
+
+    /**
+     * 按时间升序逐行读取指定股票、K线类型全部K线的时间，不在内存中保留结果
+     *
+     * @param consumer 接收每根K线的毫秒时间戳
+     */
+    public void scanTimes(String symbol, String kType, LongConsumer consumer) {
+        jdbcTemplate.query(SELECT_TIMES_SQL, ps -> {
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, symbol);
+            ps.setString(2, kType);
+        }, rs -> {
+            consumer.accept(rs.getTimestamp(1).getTime());
+        });
+    }
+
+    /**
+     * 查询指定股票、K线类型最早一根K线的时间
+     *
+     * @return 毫秒时间戳，没有数据时返回null
+     */
+    public Long findEarliestTime(String symbol, String kType) {
+        Timestamp earliest = jdbcTemplate.queryForObject(SELECT_EARLIEST_SQL, Timestamp.class, symbol, kType);
+        return earliest != null ? earliest.getTime() : null;
+    }
+}
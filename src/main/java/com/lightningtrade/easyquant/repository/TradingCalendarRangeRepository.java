@@ -0,0 +1,28 @@
+package com.lightningtrade.easyquant.repository;
+
+import com.lightningtrade.easyquant.entity.TradingCalendarRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface TradingCalendarRangeRepository extends JpaRepository<TradingCalendarRange, Long> {
+
+    /**
+     * 查询某个市场的全部已加载区间，按开始日期升序
+     */
+    List<TradingCalendarRange> findByMarketOrderByStartDateAsc(String market);
+
+    /**
+     * 删除某个市场的全部已加载区间
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TradingCalendarRange r WHERE r.market = :market")
+    int deleteByMarket(@Param("market") String market);
+}
@@ -0,0 +1,32 @@
+package com.lightningtrade.easyquant.repository;
+
+import com.lightningtrade.easyquant.entity.TradingDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TradingDayRepository extends JpaRepository<TradingDay, Long> {
+
+    /**
+     * 查询某个市场的全部交易日，按日期升序
+     */
+    List<TradingDay> findByMarketOrderByTradeDateAsc(String market);
+
+    /**
+     * 删除某个市场在日期范围内的交易日
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TradingDay t WHERE t.market = :market AND t.tradeDate BETWEEN :startDate AND :endDate")
+    int deleteByMarketAndTradeDateBetween(
+            @Param("market") String market,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+}
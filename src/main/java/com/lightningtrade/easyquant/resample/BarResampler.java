@@ -0,0 +1,387 @@
+package com.lightningtrade.easyquant.resample;
+
+import com.lightningtrade.easyquant.calendar.MarketCalendar;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * K线重采样器
+ * 将较细周期的K线聚合为较粗周期的K线（如min1 → min5/min15/min60/day，day → week/month/year），
+ * 支持对一段K线批量聚合，也支持逐根K线增量聚合。
+ *
+ * 分钟级别的聚合按连续交易时段计数：
+ * - 美股09:30-16:00共390分钟，min60的最后一根为15:30-16:00
+ * - 港股午休不计入，上午150分钟与下午180分钟首尾相接，min60的第三根为11:30-12:00加13:00-13:30
+ * - 不在交易时段内的分钟K线（盘前盘后）不参与分钟和日K线的聚合
+ * - 提供交易日历时，提前收市日收盘后的分钟K线同样不参与聚合
+ *
+ * K线时间取周期的开始时间：分钟K线为所在时段的开始分钟，日及以上周期为周期内第一个交易日的零点（交易所时区）。
+ */
+public final class BarResampler {
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    private final MarketSession session;
+    private final KType source;
+    private final KType target;
+
+    // 交易日历，用于识别提前收市日，为null时按正常交易时段处理
+    private final MarketCalendar calendar;
+
+    // 目标周期的分钟数，目标为日及以上周期时为-1
+    private final int targetMinutes;
+
+    // 源K线是否为分钟级别
+    private final boolean intradaySource;
+
+    private BarResampler(MarketSession session, KType source, KType target, MarketCalendar calendar) {
+        this.session = session;
+        this.source = source;
+        this.target = target;
+        this.calendar = calendar;
+        this.targetMinutes = minutesOf(target);
+        this.intradaySource = minutesOf(source) > 0;
+    }
+
+    /**
+     * 创建重采样器
+     *
+     * @param session 市场交易时段
+     * @param source  源K线周期
+     * @param target  目标K线周期
+     * @throws IllegalArgumentException 目标周期无法由源周期聚合得到
+     */
+    public static BarResampler of(MarketSession session, KType source, KType target) {
+        return of(session, source, target, null);
+    }
+
+    /**
+     * 创建按交易日历识别提前收市日的重采样器
+     *
+     * @param calendar 交易日历，为null时按正常交易时段处理
+     * @throws IllegalArgumentException 目标周期无法由源周期聚合得到
+     */
+    public static BarResampler of(MarketSession session, KType source, KType target, MarketCalendar calendar) {
+        if (!canDerive(source, target)) {
+            throw new IllegalArgumentException("无法由" + source + "聚合得到" + target);
+        }
+        return new BarResampler(session, source, target, calendar);
+    }
+
+    /**
+     * K线周期的分钟数，非分钟级别返回-1
+     */
+    public static int minutesOf(KType kType) {
+        String name = kType.name();
+        return name.startsWith("min") ? Integer.parseInt(name.substring(3)) : -1;
+    }
+
+    /**
+     * 一根目标周期K线最多包含的源周期K线数量，用于估算需要读取的源K线数量
+     * 周按5个交易日、月按23个交易日、年按262个交易日估算
+     *
+     * @throws IllegalArgumentException 目标周期无法由源周期聚合得到
+     */
+    public static int maxSourceBars(MarketSession session, KType source, KType target) {
+        if (!canDerive(source, target)) {
+            throw new IllegalArgumentException("无法由" + source + "聚合得到" + target);
+        }
+        int sourceMinutes = minutesOf(source);
+        switch (target) {
+            case day:
+                return (session.getMinutesPerDay(false) + sourceMinutes - 1) / sourceMinutes;
+            case week:
+                return 5;
+            case month:
+                return 23;
+            case year:
+                return source == KType.month ? 12 : 262;
+            default:
+                return minutesOf(target) / sourceMinutes;
+        }
+    }
+
+    /**
+     * 目标周期是否可以由源周期聚合得到
+     */
+    public static boolean canDerive(KType source, KType target) {
+        int sourceMinutes = minutesOf(source);
+        int targetMinutes = minutesOf(target);
+        switch (target) {
+            case day:
+                return sourceMinutes > 0;
+            case week:
+            case month:
+                return source == KType.day;
+            case year:
+                return source == KType.day || source == KType.month;
+            default:
+                return sourceMinutes > 0 && sourceMinutes < targetMinutes && targetMinutes % sourceMinutes == 0;
+        }
+    }
+
+    /**
+     * 可以聚合得到目标周期的源周期列表，周期越粗越靠前（需要读取和聚合的K线越少）
+     */
+    public static List<KType> sourcesFor(KType target) {
+        List<KType> sources = new ArrayList<>();
+        for (KType candidate : KType.values()) {
+            if (canDerive(candidate, target)) {
+                sources.add(candidate);
+            }
+        }
+        sources.sort((a, b) -> Integer.compare(rank(b), rank(a)));
+        return sources;
+    }
+
+    // 周期粗细排序用：分钟级别按分钟数，日及以上周期排在所有分钟周期之后
+    private static int rank(KType kType) {
+        int minutes = minutesOf(kType);
+        if (minutes > 0) {
+            return minutes;
+        }
+        switch (kType) {
+            case day:
+                return 100000;
+            case week:
+                return 200000;
+            case month:
+                return 300000;
+            default:
+                return 400000;
+        }
+    }
+
+    public KType getSource() {
+        return source;
+    }
+
+    public KType getTarget() {
+        return target;
+    }
+
+    /**
+     * 时间所在目标周期的开始时间（毫秒时间戳）
+     * 分钟和日K线为当天零点，周K线为周一零点，月K线为当月1日零点，年K线为1月1日零点
+     */
+    public long periodStart(long epochMilli) {
+        return periodStartDate(session.tradeDate(epochMilli)).atStartOfDay(session.getZoneId())
+                .toInstant().toEpochMilli();
+    }
+
+    /**
+     * 时间所在目标周期的结束时间（毫秒时间戳，包含）
+     */
+    public long periodEnd(long epochMilli) {
+        LocalDate start = periodStartDate(session.tradeDate(epochMilli));
+        LocalDate next;
+        switch (target) {
+            case week:
+                next = start.plusWeeks(1);
+                break;
+            case month:
+                next = start.plusMonths(1);
+                break;
+            case year:
+                next = start.plusYears(1);
+                break;
+            default:
+                next = start.plusDays(1);
+                break;
+        }
+        return next.atStartOfDay(session.getZoneId()).toInstant().toEpochMilli() - 1;
+    }
+
+    private LocalDate periodStartDate(LocalDate date) {
+        switch (target) {
+            case week:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case month:
+                return date.withDayOfMonth(1);
+            case year:
+                return date.withDayOfYear(1);
+            default:
+                return date;
+        }
+    }
+
+    /**
+     * 批量聚合一段按时间升序排列的K线
+     */
+    public BarArrays resample(BarColumns bars) {
+        BarArrays result = new BarArrays(Math.max(bars.size() / 4, 16));
+        Incremental incremental = incremental();
+        for (int i = 0; i < bars.size(); i++) {
+            incremental.update(bars.getTime(i), bars.getOpen(i), bars.getHigh(i), bars.getLow(i),
+                    bars.getClose(i), bars.getVolume(i), result);
+        }
+        incremental.flush(result);
+        return result;
+    }
+
+    /**
+     * 创建增量聚合器
+     */
+    public Incremental incremental() {
+        return new Incremental();
+    }
+
+    // K线所属目标周期的编号，不参与聚合的K线返回NO_BUCKET
+    private long bucketOf(long epochMilli) {
+        LocalDate date = session.tradeDate(epochMilli);
+        if (intradaySource) {
+            int minute = session.minuteOfSession(epochMilli);
+            if (minute < 0 || calendar != null && minute >= session.getMinutesPerDay(true)
+                    && calendar.isEarlyClose(date)) {
+                return NO_BUCKET;
+            }
+        }
+        switch (target) {
+            case day:
+                return date.toEpochDay();
+            case week:
+                return periodStartDate(date).toEpochDay();
+            case month:
+                return date.getYear() * 12L + date.getMonthValue() - 1;
+            case year:
+                return date.getYear();
+            default:
+                return date.toEpochDay() * 100000L + session.minuteOfSession(epochMilli) / targetMinutes;
+        }
+    }
+
+    // 周期内第一根K线对应的目标K线时间
+    private long bucketTime(long epochMilli) {
+        LocalDate date = session.tradeDate(epochMilli);
+        if (targetMinutes > 0) {
+            int minute = session.minuteOfSession(epochMilli) / targetMinutes * targetMinutes;
+            return session.sessionMinuteToMillis(date, minute);
+        }
+        return date.atStartOfDay(session.getZoneId()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 增量聚合器
+     * 逐根输入源K线，源K线进入新的周期时输出上一个已完成的目标K线；
+     * 当前尚未完成的目标K线可以随时查询，不会提前输出，不存在未来数据
+     */
+    public final class Incremental {
+        private long bucket = NO_BUCKET;
+        private long time;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private double volume;
+
+        private Incremental() {
+        }
+
+        /**
+         * 输入一根源K线
+         *
+         * @param out 已完成的目标K线追加到这里
+         * @return 本次是否完成了一根目标K线
+         */
+        public boolean update(long t, double o, double h, double l, double c, double v, BarArrays out) {
+            long barBucket = bucketOf(t);
+            if (barBucket == NO_BUCKET) {
+                return false;
+            }
+            if (barBucket == bucket) {
+                high = Math.max(high, h);
+                low = Math.min(low, l);
+                close = c;
+                volume += v;
+                return false;
+            }
+            boolean completed = flush(out);
+            bucket = barBucket;
+            time = bucketTime(t);
+            open = o;
+            high = h;
+            low = l;
+            close = c;
+            volume = v;
+            return completed;
+        }
+
+        /**
+         * 将当前未完成的目标K线作为完成输出（如区间末尾或收盘后）
+         *
+         * @return 是否输出了K线
+         */
+        public boolean flush(BarArrays out) {
+            if (bucket == NO_BUCKET) {
+                return false;
+            }
+            out.add(time, open, high, low, close, volume);
+            bucket = NO_BUCKET;
+            return true;
+        }
+
+        /**
+         * 是否存在未完成的目标K线
+         */
+        public boolean hasPartial() {
+            return bucket != NO_BUCKET;
+        }
+
+        /**
+         * 写出未完成的目标K线，用于策略状态快照
+         */
+        public void writeState(DataOutput out) throws IOException {
+            out.writeLong(bucket);
+            out.writeLong(time);
+            out.writeDouble(open);
+            out.writeDouble(high);
+            out.writeDouble(low);
+            out.writeDouble(close);
+            out.writeDouble(volume);
+        }
+
+        public void readState(DataInput in) throws IOException {
+            bucket = in.readLong();
+            time = in.readLong();
+            open = in.readDouble();
+            high = in.readDouble();
+            low = in.readDouble();
+            close = in.readDouble();
+            volume = in.readDouble();
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public double getOpen() {
+            return open;
+        }
+
+        public double getHigh() {
+            return high;
+        }
+
+        public double getLow() {
+            return low;
+        }
+
+        public double getClose() {
+            return close;
+        }
+
+        public double getVolume() {
+            return volume;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.lightningtrade.easyquant.service;
 
+import com.lightningtrade.easyquant.calendar.MarketSession;
 import com.lightningtrade.easyquant.config.TradingConfig;
 import com.lightningtrade.easyquant.execution.TradeExecutor;
+import com.lightningtrade.easyquant.indicator.IndicatorRegistry;
 import com.lightningtrade.easyquant.model.MarketData;
 import com.lightningtrade.easyquant.strategy.StrategyFactory;
+import com.lightningtrade.easyquant.store.BarColumns;
 import com.lightningtrade.easyquant.strategy.TradingStrategy;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public abstract class AbstractTradingService {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
@@ -25,6 +35,13 @@ public abstract class AbstractTradingService {
     @Autowired
     protected StrategyFactory strategyFactory;
 
+    @Autowired
+    protected StrategySnapshotService snapshotService;
+
+    @Autowired
+    protected IndicatorRegistry indicatorRegistry;
+
+    // 每个交易品种独立的策略实例，行情处理时以实例为锁，不同品种可以并行处理
     protected final ConcurrentHashMap<String, TradingStrategy> strategies = new ConcurrentHashMap<>();
     protected final ConcurrentHashMap<String, Integer> positions = new ConcurrentHashMap<>();
 
@@ -49,19 +66,126 @@ public abstract class AbstractTradingService {
             return;
         }
 
-        // 为每个交易品种创建策略实例
-        TradingStrategy strategy = strategyFactory.createStrategy(strategyConfig);
+        // 策略的指标从(股票, K线类型)共用的计算图订阅，K线类型无效时各策略使用独立的计算图
+        KType kType = null;
+        try {
+            kType = KType.valueOf(strategyConfig.getKType());
+        } catch (Exception e) {
+            logger.warn("策略K线类型无效，不共用指标计算图 - 市场: {}, K线类型: {}", getMarket(), strategyConfig.getKType());
+        }
+
+        // 为每个交易品种创建独立的策略实例，有快照时恢复策略状态
+        int restored = 0;
         for (TradingConfig.Symbol symbol : symbols) {
+            TradingStrategy strategy = createStrategy(strategyConfig, symbol.getCode(), kType);
+            if (snapshotService.exists(getMarket(), symbol.getCode())) {
+                if (snapshotService.restore(getMarket(), symbol.getCode(), strategy)) {
+                    restored++;
+                } else {
+                    // 恢复失败时计算图中的节点可能只恢复了一部分，换用新的计算图重建策略
+                    if (kType != null) {
+                        indicatorRegistry.resetGraph(symbol.getCode(), kType);
+                    }
+                    strategy = createStrategy(strategyConfig, symbol.getCode(), kType);
+                }
+            }
             strategies.put(symbol.getCode(), strategy);
             positions.put(symbol.getCode(), 0);
         }
 
-        logger.info("初始化交易服务 - 策略: {}, 交易品种数量: {}",
-                strategyConfig.getType(), symbols.size());
+        logger.info("初始化交易服务 - 策略: {}, 交易品种数量: {}, 从快照恢复: {}",
+                strategyConfig.getType(), symbols.size(), restored);
+    }
+
+    /**
+     * 创建策略实例，绑定交易品种的指标计算图和策略声明的高周期
+     */
+    private TradingStrategy createStrategy(TradingConfig.Strategy strategyConfig, String symbol, KType kType) {
+        TradingStrategy strategy = strategyFactory.createStrategy(strategyConfig);
+        if (kType != null) {
+            strategy.bindTimeframes(MarketSession.of(getMarket()), kType);
+            strategy.attach(indicatorRegistry.getGraph(symbol, kType));
+        }
+        return strategy;
+    }
+
+    /**
+     * 用本地历史K线预热各交易品种的策略状态，只更新指标，不下单
+     * 每个品种一个任务，在持有策略实例锁的情况下执行
+     *
+     * @param executor 执行预热任务的线程池
+     * @param minBars  每个品种至少读取的K线数量（不少于策略预热需要的K线数量，包括高周期折算的K线）
+     * @param maxDays  最多向前读取的天数
+     * @return 各品种的预热任务，结果为预热后策略是否可以产生信号
+     */
+    public List<CompletableFuture<Boolean>> primeStrategies(Executor executor, int minBars, int maxDays) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        TradingConfig.Strategy strategyConfig = getStrategyConfig();
+        if (strategies.isEmpty() || strategyConfig == null) {
+            return futures;
+        }
+        KType kType;
+        try {
+            kType = KType.valueOf(strategyConfig.getKType());
+        } catch (Exception e) {
+            logger.warn("策略K线类型无效，跳过预热 - 市场: {}, K线类型: {}", getMarket(), strategyConfig.getKType());
+            return futures;
+        }
+        for (Map.Entry<String, TradingStrategy> entry : strategies.entrySet()) {
+            String symbol = entry.getKey();
+            TradingStrategy strategy = entry.getValue();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    int count = Math.max(minBars, strategy.getWarmUpBars());
+                    BarColumns bars = dataService.getRecentLocalBars(symbol, getMarket(), kType, count, maxDays);
+                    synchronized (strategy) {
+                        int primed = strategy.prime(symbol, bars);
+                        logger.debug("预热策略 - 股票: {}, K线类型: {}, 读取K线: {}, 处理K线: {}, 就绪: {}",
+                                symbol, kType, bars.size(), primed, strategy.isReady());
+                        return strategy.isReady();
+                    }
+                } catch (Exception e) {
+                    logger.error("预热策略失败 - 股票: {}, K线类型: {}", symbol, kType, e);
+                    return false;
+                }
+            }, executor));
+        }
+        return futures;
+    }
+
+    /**
+     * 定期保存各交易品种的策略快照
+     */
+    @Scheduled(initialDelayString = "${trading.snapshot.interval-ms:300000}",
+            fixedDelayString = "${trading.snapshot.interval-ms:300000}")
+    public void saveSnapshots() {
+        if (strategies.isEmpty() || !snapshotService.isEnabled()) {
+            return;
+        }
+        int saved = 0;
+        for (Map.Entry<String, TradingStrategy> entry : strategies.entrySet()) {
+            if (snapshotService.save(getMarket(), entry.getKey(), entry.getValue())) {
+                saved++;
+            }
+        }
+        logger.debug("保存策略快照 - 市场: {}, 数量: {}/{}", getMarket(), saved, strategies.size());
+    }
+
+    /**
+     * 关闭时保存策略快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshots();
     }
 
     public abstract boolean isEnabled();
 
+    /**
+     * 市场标识（us/hk），用于区分快照目录
+     */
+    public abstract String getMarket();
+
     public abstract List<TradingConfig.Symbol> getSymbols();
 
     protected abstract TradingConfig.Strategy getStrategyConfig();
@@ -2,6 +2,7 @@ package com.lightningtrade.easyquant.service;
 
 import com.lightningtrade.easyquant.backtest.BacktestEngine;
 import com.lightningtrade.easyquant.backtest.BacktestResult;
+import com.lightningtrade.easyquant.calendar.MarketSession;
 import com.lightningtrade.easyquant.config.TradingConfig;
 import com.lightningtrade.easyquant.strategy.StrategyFactory;
 import com.lightningtrade.easyquant.strategy.TradingStrategy;
@@ -38,6 +39,15 @@ public class BacktestService {
         logger.info("开始回测 - 策略: {}, 股票: {}, 初始资金: {}",
                 strategyConfig.getType(), symbol, initialCapital);
 
+        // 创建策略实例，高周期K线在回测中由基础周期K线增量聚合，需要市场的交易时段
+        TradingStrategy strategy = strategyFactory.createStrategy(strategyConfig);
+        if (strategyConfig.getMarket() != null) {
+            strategy.bindTimeframes(MarketSession.of(strategyConfig.getMarket()),
+                    KType.valueOf(strategyConfig.getKType()));
+        } else if (!strategy.getTimeframes().isEmpty()) {
+            throw new IllegalArgumentException("策略使用了较高周期" + strategy.getTimeframes() + "，回测需要指定市场");
+        }
+
         try {
             // 获取历史数据
             List<MarketData> historicalData = dataService.getHistoricalData(symbol, strategyConfig.getMarket(),
@@ -47,9 +57,6 @@ public class BacktestService {
                 return createEmptyResult(Collections.singletonList(symbol), initialCapital);
             }
 
-            // 创建策略实例
-            TradingStrategy strategy = strategyFactory.createStrategy(strategyConfig);
-
             // 执行回测
             BacktestResult result = backtestEngine.runBacktest(symbol, historicalData, strategy, initialCapital,
                     KType.valueOf(strategyConfig.getKType()));
@@ -0,0 +1,246 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.archive.BarArchiveReader;
+import com.lightningtrade.easyquant.archive.BarArchiveWriter;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import com.lightningtrade.easyquant.repository.HistoricalDataJdbcRepository;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarCache;
+import com.lightningtrade.easyquant.store.BarSegmentStore;
+import com.lightningtrade.easyquant.store.ColumnarBarStore;
+import com.lightningtrade.easyquant.store.SymbolPaths;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * K线归档服务
+ * 将数据库中已完整下载的历史区间导出为压缩归档文件，或把归档文件导入数据库
+ * 归档文件都位于归档目录下，接口中的文件名是相对归档目录的路径
+ *
+ * 配置项：
+ * - data.archive.path：归档文件目录，默认 ./data/archive
+ */
+@Service
+public class BarArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(BarArchiveService.class);
+
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // 归档文件扩展名
+    public static final String FILE_SUFFIX = ".ltba";
+
+    @Autowired
+    private DataService dataService;
+
+    @Autowired
+    private DataCoverageService coverageService;
+
+    @Autowired
+    private HistoricalDataJdbcRepository jdbcRepository;
+
+    @Autowired
+    private BarTierService barTierService;
+
+    @Autowired
+    private ColumnarBarStore barStore;
+
+    @Autowired
+    private BarCache barCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${data.archive.path:./data/archive}")
+    private String archivePath;
+
+    /**
+     * 导出历史区间为归档文件
+     * 区间尚未完整下载时先下载缺失部分
+     *
+     * @param symbol    股票代码
+     * @param market    市场（US/HK）
+     * @param kType     K线类型
+     * @param startTime 开始时间
+     * @param endTime   结束时间（不能晚于当前时间）
+     * @return 导出结果：文件名（相对归档目录）、K线数量、文件字节数
+     */
+    public Map<String, Object> exportArchive(String symbol, String market, KType kType, LocalDateTime startTime,
+            LocalDateTime endTime) throws IOException {
+        SymbolPaths.check(symbol);
+        ZoneId zoneId = MarketSession.of(market).getZoneId();
+        long startMillis = startTime.atZone(zoneId).toInstant().toEpochMilli();
+        long endMillis = endTime.atZone(zoneId).toInstant().toEpochMilli();
+        if (endMillis >= System.currentTimeMillis()) {
+            throw new IllegalArgumentException("归档区间不能晚于当前时间");
+        }
+        if (!dataService.prefetchHistoricalData(symbol, market, startTime, endTime, kType)
+                || !coverageService.isCovered(symbol, kType, DataCoverage.LAYER_DATABASE, startMillis, endMillis)) {
+            throw new IllegalStateException("区间数据不完整，无法归档: " + symbol + " " + kType);
+        }
+
+        String fileName = symbol + "/" + kType.name() + "_" + FILE_DATE_FORMAT.format(startTime) + "_"
+                + FILE_DATE_FORMAT.format(endTime) + FILE_SUFFIX;
+        Path target = resolveArchiveFile(fileName);
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        // 按月分段读取并写入，内存中最多只有一个月的K线
+        long count;
+        try (OutputStream output = Files.newOutputStream(tmp);
+                BarArchiveWriter writer = new BarArchiveWriter(output, symbol, kType.name(), startMillis,
+                        endMillis)) {
+            for (YearMonth month = BarSegmentStore.monthOf(startMillis);
+                    BarSegmentStore.monthStart(month) <= endMillis; month = month.plusMonths(1)) {
+                long from = Math.max(startMillis, BarSegmentStore.monthStart(month));
+                long to = Math.min(endMillis, BarSegmentStore.monthEnd(month));
+                writer.write(barTierService.readBars(symbol, kType, from, to));
+            }
+            count = writer.getBarCount();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long bytes = Files.size(target);
+        logger.info("导出K线归档 - 股票: {}, K线类型: {}, 区间: [{}, {}], 数据点数: {}, 文件大小: {}字节",
+                symbol, kType, startTime, endTime, count, bytes);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("file", fileName);
+        result.put("bars", count);
+        result.put("bytes", bytes);
+        return result;
+    }
+
+    /**
+     * 导入归档文件到数据库
+     * 1. 先完整解码一遍归档文件并校验，文件损坏或被截断时不改动任何已有数据
+     * 2. 清除区间的覆盖记录，之后任何一步失败，区间都会按缺口重新下载
+     * 3. 在一个事务内删除区间内的旧K线并逐块写入归档中的K线，失败时整体回滚
+     * 4. 事务提交后再删除分段文件和列式存储中区间内的旧K线，最后标记数据库已覆盖；
+     *    列式存储在下次查询时从数据库同步
+     *
+     * @param fileName 归档文件名（相对归档目录）
+     * @return 导入结果：股票代码、K线类型、K线数量
+     */
+    public Map<String, Object> importArchive(String fileName) throws IOException {
+        Path file = resolveArchiveFile(fileName);
+        String symbol;
+        KType kType;
+        long startMillis;
+        long endMillis;
+        long count;
+        try (InputStream input = Files.newInputStream(file);
+                BarArchiveReader reader = new BarArchiveReader(input)) {
+            symbol = SymbolPaths.check(reader.getSymbol());
+            kType = KType.valueOf(reader.getKType());
+            startMillis = reader.getRangeStart();
+            endMillis = reader.getRangeEnd();
+            count = validate(reader, startMillis, endMillis);
+        }
+
+        synchronized (barTierService.writeLock(symbol, kType)) {
+            coverageService.clearCovered(symbol, kType, DataCoverage.LAYER_DATABASE, startMillis, endMillis);
+            coverageService.clearCovered(symbol, kType, DataCoverage.LAYER_BAR_STORE, startMillis, endMillis);
+            barCache.invalidate(symbol, kType, startMillis, endMillis);
+            try {
+                transactionTemplate.executeWithoutResult(status -> replaceFromArchive(file, symbol, kType,
+                        startMillis, endMillis));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            barTierService.dropSegments(symbol, kType, startMillis, endMillis);
+            if (barStore.isEnabled()) {
+                barStore.deleteRange(symbol, kType, startMillis, endMillis);
+            }
+            barCache.invalidate(symbol, kType, startMillis, endMillis);
+            coverageService.markCovered(symbol, kType, DataCoverage.LAYER_DATABASE, startMillis, endMillis);
+        }
+
+        logger.info("导入K线归档 - 文件: {}, 股票: {}, K线类型: {}, 数据点数: {}", file, symbol, kType, count);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("symbol", symbol);
+        result.put("kType", kType.name());
+        result.put("bars", count);
+        return result;
+    }
+
+    /**
+     * 解码全部数据块，校验K线时间严格递增且都在归档区间内
+     *
+     * @return K线数量
+     * @throws IOException 文件损坏、被截断或K线时间不符
+     */
+    private static long validate(BarArchiveReader reader, long startMillis, long endMillis) throws IOException {
+        BarArrays block = new BarArrays();
+        long count = 0;
+        long lastTime = Long.MIN_VALUE;
+        while (reader.readBlock(block)) {
+            for (int i = 0; i < block.size(); i++) {
+                long time = block.getTime(i);
+                if (time <= lastTime || time < startMillis || time > endMillis) {
+                    throw new IOException("归档文件中的K线时间无序或超出归档区间: " + time);
+                }
+                lastTime = time;
+            }
+            count += block.size();
+            block.clear();
+        }
+        return count;
+    }
+
+    /**
+     * 用归档文件中的K线替换数据库中区间内的K线，在调用方的事务内执行
+     */
+    private void replaceFromArchive(Path file, String symbol, KType kType, long startMillis, long endMillis) {
+        try (InputStream input = Files.newInputStream(file);
+                BarArchiveReader reader = new BarArchiveReader(input)) {
+            int deleted = jdbcRepository.deleteRange(symbol, kType.name(), startMillis, endMillis);
+            BarArrays block = new BarArrays();
+            while (reader.readBlock(block)) {
+                jdbcRepository.upsert(symbol, kType.name(), block);
+                block.clear();
+            }
+            logger.debug("替换数据库中的K线 - 股票: {}, K线类型: {}, 删除旧数据: {}", symbol, kType, deleted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档文件失败: " + file, e);
+        }
+    }
+
+    /**
+     * 把相对归档目录的文件名解析为归档目录下的路径
+     *
+     * @throws IllegalArgumentException 文件名不是归档文件或位于归档目录之外
+     */
+    Path resolveArchiveFile(String fileName) {
+        if (fileName == null || !fileName.endsWith(FILE_SUFFIX)) {
+            throw new IllegalArgumentException("不是归档文件: " + fileName);
+        }
+        Path root = Paths.get(archivePath).toAbsolutePath().normalize();
+        Path file = root.resolve(fileName).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new IllegalArgumentException("归档文件必须位于归档目录下: " + fileName);
+        }
+        return file;
+    }
+}
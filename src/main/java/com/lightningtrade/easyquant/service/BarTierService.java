@@ -0,0 +1,261 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.repository.HistoricalDataJdbcRepository;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.store.BarSegmentStore;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * K线分层存储服务
+ * 近期的K线留在数据库（热数据），较早的分钟K线由后台任务按月压缩为分段文件（冷数据）并从数据库删除，
+ * 数据库中的K线数量不随历史增长，写入和索引维护的开销保持不变。
+ *
+ * 读取时同时查询两层并按时间合并，同一时间两层都有时以数据库为准。
+ * 覆盖区间（DataCoverage的DB层）表示数据已持久化到本地，不区分在哪一层。
+ * 对同一(股票, K线类型)的下载写入、归档导入和压缩通过writeLock互斥。
+ *
+ * 配置项：
+ * - data.tiering.enabled：是否启用自动压缩，默认启用
+ * - data.tiering.hot-days：数据库中保留的天数，默认90天，更早的整月数据被压缩
+ * - data.tiering.k-types：参与压缩的K线类型，默认各分钟K线
+ * - data.tiering.interval-ms：压缩任务执行间隔，默认6小时
+ */
+@Service
+public class BarTierService {
+    private static final Logger logger = LoggerFactory.getLogger(BarTierService.class);
+
+    @Autowired
+    private HistoricalDataJdbcRepository jdbcRepository;
+
+    @Autowired
+    private BarSegmentStore segmentStore;
+
+    @Value("${data.tiering.enabled:true}")
+    private boolean enabled;
+
+    @Value("${data.tiering.hot-days:90}")
+    private int hotDays;
+
+    @Value("${data.tiering.k-types:min1,min3,min5,min15,min30,min60}")
+    private List<String> kTypes;
+
+    // 上一轮压缩尚未完成时不重复执行
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong compactedMonths = new AtomicLong();
+    private final AtomicLong compactedBars = new AtomicLong();
+    private volatile long lastRunTime;
+
+    // 每个(股票, K线类型)的写入锁
+    private final ConcurrentHashMap<String, Object> writeLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 获取(股票, K线类型)的写入锁
+     * 替换数据库区间、导入归档和压缩都需持有该锁，避免压缩删除并发写入的K线
+     */
+    public Object writeLock(String symbol, KType kType) {
+        return writeLocks.computeIfAbsent(symbol + "/" + kType.name(), key -> new Object());
+    }
+
+    /**
+     * 读取区间内的K线，合并数据库与分段文件
+     *
+     * @param startTime 开始时间（毫秒时间戳，包含）
+     * @param endTime   结束时间（毫秒时间戳，包含）
+     * @return 按时间升序排列的K线
+     */
+    public BarArrays readBars(String symbol, KType kType, long startTime, long endTime) {
+        BarArrays hot = jdbcRepository.readBars(symbol, kType.name(), startTime, endTime);
+        if (!segmentStore.hasSegments(symbol, kType, startTime, endTime)) {
+            return hot;
+        }
+        BarArrays cold = new BarArrays();
+        segmentStore.read(symbol, kType, startTime, endTime, cold);
+        return merge(cold, hot);
+    }
+
+    /**
+     * 定期压缩早于保留期的分钟K线
+     */
+    @Scheduled(initialDelayString = "${data.tiering.initial-delay-ms:300000}",
+            fixedDelayString = "${data.tiering.interval-ms:21600000}")
+    public void compact() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(hotDays);
+            int months = compactBefore(cutoff);
+            lastRunTime = System.currentTimeMillis();
+            logger.info("K线分层压缩完成 - 截止时间: {}, 压缩月份数: {}", BarSegmentStore.monthOf(cutoff), months);
+        } catch (Exception e) {
+            logger.error("K线分层压缩异常", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 把结束时间早于cutoff的整月K线从数据库移到分段文件
+     *
+     * @param cutoff 毫秒时间戳
+     * @return 压缩的月份数
+     */
+    public int compactBefore(long cutoff) {
+        int months = 0;
+        for (String[] key : jdbcRepository.findKeysBefore(cutoff)) {
+            String symbol = key[0];
+            if (!kTypes.contains(key[1])) {
+                continue;
+            }
+            KType kType = KType.valueOf(key[1]);
+            Long earliest = jdbcRepository.findEarliestTime(symbol, kType.name());
+            if (earliest == null) {
+                continue;
+            }
+            for (YearMonth month = BarSegmentStore.monthOf(earliest);
+                    BarSegmentStore.monthEnd(month) < cutoff; month = month.plusMonths(1)) {
+                try {
+                    if (compactMonth(symbol, kType, month)) {
+                        months++;
+                    }
+                } catch (Exception e) {
+                    logger.error("压缩K线失败 - 股票: {}, K线类型: {}, 月份: {}", symbol, kType, month, e);
+                    break;
+                }
+            }
+        }
+        return months;
+    }
+
+    /**
+     * 压缩一个月的K线
+     * 先写分段文件（已有分段时与其合并后整体替换），成功后再删除数据库中该月的K线，
+     * 任何时刻读取两层的合并结果都是完整的
+     *
+     * @return 该月数据库中是否有K线被压缩
+     */
+    private boolean compactMonth(String symbol, KType kType, YearMonth month) throws Exception {
+        long start = BarSegmentStore.monthStart(month);
+        long end = BarSegmentStore.monthEnd(month);
+        BarArrays merged;
+        int deleted;
+        synchronized (writeLock(symbol, kType)) {
+            BarArrays hot = jdbcRepository.readBars(symbol, kType.name(), start, end);
+            if (hot.size() == 0) {
+                return false;
+            }
+            merged = merge(segmentStore.readMonth(symbol, kType, month), hot);
+            segmentStore.write(symbol, kType, month, merged);
+            deleted = jdbcRepository.deleteRange(symbol, kType.name(), start, end);
+        }
+
+        compactedMonths.incrementAndGet();
+        compactedBars.addAndGet(deleted);
+        logger.info("压缩K线 - 股票: {}, K线类型: {}, 月份: {}, 数据点数: {}, 删除数据库记录: {}",
+                symbol, kType, month, merged.size(), deleted);
+        return true;
+    }
+
+    /**
+     * 从分段文件中移除区间内的K线
+     * 数据库区间被整体替换（重新下载、导入归档）后调用，否则分段中的旧K线会在合并读取时重新出现。
+     * 调用方需持有writeLock
+     *
+     * @param startTime 开始时间（毫秒时间戳，包含）
+     * @param endTime   结束时间（毫秒时间戳，包含）
+     * @throws UncheckedIOException 分段文件读写失败
+     */
+    public void dropSegments(String symbol, KType kType, long startTime, long endTime) {
+        if (!segmentStore.hasSegments(symbol, kType, startTime, endTime)) {
+            return;
+        }
+        for (YearMonth month = BarSegmentStore.monthOf(startTime);
+                !month.isAfter(BarSegmentStore.monthOf(endTime)); month = month.plusMonths(1)) {
+            BarArrays bars = segmentStore.readMonth(symbol, kType, month);
+            BarArrays kept = new BarArrays(bars.size());
+            for (int i = 0; i < bars.size(); i++) {
+                long time = bars.getTime(i);
+                if (time < startTime || time > endTime) {
+                    kept.add(time, bars.getOpen(i), bars.getHigh(i), bars.getLow(i), bars.getClose(i),
+                            bars.getVolume(i));
+                }
+            }
+            if (kept.size() == bars.size()) {
+                continue;
+            }
+            try {
+                if (kept.size() == 0) {
+                    segmentStore.delete(symbol, kType, month);
+                } else {
+                    segmentStore.write(symbol, kType, month, kept);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("移除分段K线失败: " + symbol + " " + kType + " " + month, e);
+            }
+            logger.info("移除分段K线 - 股票: {}, K线类型: {}, 月份: {}, 移除数据点数: {}",
+                    symbol, kType, month, bars.size() - kept.size());
+        }
+    }
+
+    /**
+     * 获取分层存储统计信息
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("hotDays", hotDays);
+        status.put("kTypes", kTypes);
+        status.put("running", running.get());
+        status.put("segments", segmentStore.getSegmentCount());
+        status.put("compactedMonths", compactedMonths.get());
+        status.put("compactedBars", compactedBars.get());
+        status.put("lastRunTime", lastRunTime);
+        return status;
+    }
+
+    /**
+     * 合并两段按时间升序的K线，同一时间两边都有时取newer
+     */
+    private static BarArrays merge(BarColumns older, BarColumns newer) {
+        if (older.size() == 0 && newer instanceof BarArrays) {
+            return (BarArrays) newer;
+        }
+        BarArrays merged = new BarArrays(older.size() + newer.size());
+        int i = 0;
+        int j = 0;
+        while (i < older.size() || j < newer.size()) {
+            if (j >= newer.size() || (i < older.size() && older.getTime(i) < newer.getTime(j))) {
+                merged.add(older.getTime(i), older.getOpen(i), older.getHigh(i), older.getLow(i),
+                        older.getClose(i), older.getVolume(i));
+                i++;
+            } else {
+                if (i < older.size() && older.getTime(i) == newer.getTime(j)) {
+                    i++;
+                }
+                merged.add(newer.getTime(j), newer.getOpen(j), newer.getHigh(j), newer.getLow(j),
+                        newer.getClose(j), newer.getVolume(j));
+                j++;
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,127 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import com.lightningtrade.easyquant.repository.HistoricalDataJdbcRepository;
+import com.lightningtrade.easyquant.resample.BarResampler;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 覆盖区间回填服务
+ * 覆盖区间表出现之前下载的历史数据没有覆盖记录，查询时会被当作缺失整段重新下载。
+ * 应用就绪时先于预热任务执行一次：对数据库中有K线但没有任何数据库层覆盖记录的(证券, K线周期)，
+ * 按时间顺序扫描已有K线，把连续的K线段登记为已覆盖。相邻两根K线的间隔超过一个周期再加上
+ * 允许的最长休市天数时视为缺口，缺口留给正常的补齐流程下载；最后一根K线可能尚未走完，不计入覆盖。
+ * 只回填日及以上周期：分钟K线按这种方式会把交易日内缺失的K线和整天缺失的交易日一并当作已覆盖，
+ * 之后再也不会补下载，所以分钟K线不回填，查询时按缺口重新下载。
+ *
+ * 配置项：
+ * - data.coverage.backfill-enabled：是否启用，默认启用
+ * - data.coverage.backfill-max-gap-days：连续段内允许的最长休市天数，默认6天
+ */
+@Service
+public class CoverageBackfillService {
+    private static final Logger logger = LoggerFactory.getLogger(CoverageBackfillService.class);
+
+    @Autowired
+    private HistoricalDataJdbcRepository jdbcRepository;
+
+    @Autowired
+    private DataCoverageService coverageService;
+
+    @Autowired
+    private BarTierService barTierService;
+
+    @Value("${data.coverage.backfill-enabled:true}")
+    private boolean enabled;
+
+    @Value("${data.coverage.backfill-max-gap-days:6}")
+    private int maxGapDays;
+
+    /**
+     * 应用就绪后回填，在预热等下载任务之前完成
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int backfilled = 0;
+        for (String[] key : jdbcRepository.findKeys()) {
+            KType kType;
+            try {
+                kType = KType.valueOf(key[1]);
+            } catch (IllegalArgumentException e) {
+                logger.warn("跳过未知的K线类型 - 股票: {}, K线类型: {}", key[0], key[1]);
+                continue;
+            }
+            if (BarResampler.minutesOf(kType) > 0) {
+                continue;
+            }
+            if (coverageService.hasCoverage(key[0], kType, DataCoverage.LAYER_DATABASE)) {
+                continue;
+            }
+            try {
+                backfill(key[0], kType);
+                backfilled++;
+            } catch (Exception e) {
+                logger.error("回填覆盖区间失败 - 股票: {}, K线类型: {}", key[0], kType, e);
+            }
+        }
+        if (backfilled > 0) {
+            logger.info("回填覆盖区间完成 - 数量: {}, 耗时: {}ms", backfilled, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void backfill(String symbol, KType kType) {
+        long maxGap = periodMillis(kType) + TimeUnit.DAYS.toMillis(maxGapDays);
+        long[] run = { -1, -1 };
+        int[] runs = { 0 };
+        synchronized (barTierService.writeLock(symbol, kType)) {
+            jdbcRepository.scanTimes(symbol, kType.name(), time -> {
+                if (run[0] >= 0 && time - run[1] > maxGap) {
+                    coverageService.markCovered(symbol, kType, DataCoverage.LAYER_DATABASE, run[0], run[1]);
+                    runs[0]++;
+                    run[0] = -1;
+                }
+                if (run[0] < 0) {
+                    run[0] = time;
+                }
+                run[1] = time;
+            });
+            if (run[0] >= 0) {
+                coverageService.markCovered(symbol, kType, DataCoverage.LAYER_DATABASE, run[0], run[1] - 1);
+                runs[0]++;
+            }
+        }
+        logger.info("回填覆盖区间 - 股票: {}, K线类型: {}, 连续段数: {}", symbol, kType, runs[0]);
+    }
+
+    /**
+     * 一根K线的最长周期（日及以上周期）
+     */
+    private static long periodMillis(KType kType) {
+        switch (kType) {
+            case day:
+                return TimeUnit.DAYS.toMillis(1);
+            case week:
+                return TimeUnit.DAYS.toMillis(7);
+            case month:
+                return TimeUnit.DAYS.toMillis(31);
+            default:
+                return TimeUnit.DAYS.toMillis(366);
+        }
+    }
+}
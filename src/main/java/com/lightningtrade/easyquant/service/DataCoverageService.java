@@ -0,0 +1,169 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import com.lightningtrade.easyquant.model.TimeRange;
+import com.lightningtrade.easyquant.repository.DataCoverageRepository;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 历史数据覆盖区间服务
+ * 维护每个(证券, K线周期, 存储层)已下载的区间集合，计算查询范围内的缺失子区间
+ *
+ * 更新区间要先读出已有区间再合并写回，同一(证券, K线周期, 存储层)的更新按锁串行执行，
+ * 事务在锁内提交，下一个更新读到的一定是已提交的区间。调用方不能处于外层事务中。
+ */
+@Service
+public class DataCoverageService {
+    private static final Logger logger = LoggerFactory.getLogger(DataCoverageService.class);
+
+    @Autowired
+    private DataCoverageRepository coverageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 每个(证券, K线周期, 存储层)的更新锁
+    private final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 计算查询范围内尚未覆盖的子区间
+     *
+     * @param symbol 股票代码
+     * @param kType  K线类型
+     * @param layer  存储层
+     * @param start  开始时间（毫秒时间戳，包含）
+     * @param end    结束时间（毫秒时间戳，包含）
+     * @return 按时间升序排列的缺失区间
+     */
+    public List<TimeRange> findGaps(String symbol, KType kType, String layer, long start, long end) {
+        List<TimeRange> gaps = new ArrayList<>();
+        long cursor = start;
+        for (DataCoverage coverage : load(symbol, kType, layer)) {
+            if (coverage.getRangeEnd() < cursor) {
+                continue;
+            }
+            if (coverage.getRangeStart() > end) {
+                break;
+            }
+            if (canHoldBar(cursor, coverage.getRangeStart() - 1)) {
+                gaps.add(new TimeRange(cursor, coverage.getRangeStart() - 1));
+            }
+            cursor = Math.max(cursor, coverage.getRangeEnd() + 1);
+        }
+        if (canHoldBar(cursor, end)) {
+            gaps.add(new TimeRange(cursor, end));
+        }
+        return gaps;
+    }
+
+    /**
+     * 将一个区间标记为已覆盖，并与相交或相邻的已有区间合并
+     */
+    public void markCovered(String symbol, KType kType, String layer, long start, long end) {
+        if (end < start) {
+            return;
+        }
+        synchronized (lock(symbol, kType, layer)) {
+            transactionTemplate.executeWithoutResult(status -> merge(symbol, kType, layer, start, end));
+        }
+    }
+
+    /**
+     * 将一个区间从覆盖区间中移除，与之相交的已有区间只保留区间之外的部分
+     * 用于区间内的数据即将被替换、替换完成之前不能再视为已覆盖的场景
+     */
+    public void clearCovered(String symbol, KType kType, String layer, long start, long end) {
+        if (end < start) {
+            return;
+        }
+        synchronized (lock(symbol, kType, layer)) {
+            transactionTemplate.executeWithoutResult(status -> remove(symbol, kType, layer, start, end));
+        }
+    }
+
+    private void merge(String symbol, KType kType, String layer, long start, long end) {
+        long mergedStart = start;
+        long mergedEnd = end;
+        List<DataCoverage> merged = new ArrayList<>();
+        for (DataCoverage coverage : load(symbol, kType, layer)) {
+            boolean touches = !canHoldBar(mergedEnd + 1, coverage.getRangeStart() - 1)
+                    && !canHoldBar(coverage.getRangeEnd() + 1, mergedStart - 1);
+            if (touches) {
+                mergedStart = Math.min(mergedStart, coverage.getRangeStart());
+                mergedEnd = Math.max(mergedEnd, coverage.getRangeEnd());
+                merged.add(coverage);
+            }
+        }
+        coverageRepository.deleteAll(merged);
+        coverageRepository.save(newCoverage(symbol, kType, layer, mergedStart, mergedEnd));
+
+        logger.debug("更新覆盖区间 - 股票: {}, K线类型: {}, 存储层: {}, 区间: [{}, {}], 合并区间数: {}",
+                symbol, kType, layer, mergedStart, mergedEnd, merged.size());
+    }
+
+    private void remove(String symbol, KType kType, String layer, long start, long end) {
+        for (DataCoverage coverage : load(symbol, kType, layer)) {
+            if (coverage.getRangeEnd() < start || coverage.getRangeStart() > end) {
+                continue;
+            }
+            coverageRepository.delete(coverage);
+            if (coverage.getRangeStart() < start) {
+                coverageRepository.save(newCoverage(symbol, kType, layer, coverage.getRangeStart(), start - 1));
+            }
+            if (coverage.getRangeEnd() > end) {
+                coverageRepository.save(newCoverage(symbol, kType, layer, end + 1, coverage.getRangeEnd()));
+            }
+        }
+        logger.debug("清除覆盖区间 - 股票: {}, K线类型: {}, 存储层: {}, 区间: [{}, {}]",
+                symbol, kType, layer, start, end);
+    }
+
+    private static DataCoverage newCoverage(String symbol, KType kType, String layer, long start, long end) {
+        DataCoverage coverage = new DataCoverage();
+        coverage.setSymbol(symbol);
+        coverage.setKType(kType.name());
+        coverage.setLayer(layer);
+        coverage.setRangeStart(start);
+        coverage.setRangeEnd(end);
+        return coverage;
+    }
+
+    /**
+     * 查询区间是否已被完整覆盖
+     */
+    public boolean isCovered(String symbol, KType kType, String layer, long start, long end) {
+        return findGaps(symbol, kType, layer, start, end).isEmpty();
+    }
+
+    /**
+     * 是否已有任何覆盖记录
+     */
+    public boolean hasCoverage(String symbol, KType kType, String layer) {
+        return !load(symbol, kType, layer).isEmpty();
+    }
+
+    /**
+     * 判断区间[from, to]内是否可能存在K线
+     * K线时间都落在整秒上，不包含任何整秒时刻的区间（如23:59:59到次日00:00:00之间）视为连续
+     */
+    private static boolean canHoldBar(long from, long to) {
+        return from <= to && Math.floorDiv(from + 999, 1000) * 1000 <= to;
+    }
+
+    private Object lock(String symbol, KType kType, String layer) {
+        return locks.computeIfAbsent(symbol + "/" + kType.name() + "/" + layer, key -> new Object());
+    }
+
+    private List<DataCoverage> load(String symbol, KType kType, String layer) {
+        return coverageRepository.findBySymbolAndkTypeAndLayerOrderByRangeStartAsc(symbol, kType.name(), layer);
+    }
+}
@@ -1,300 +1,727 @@
 package com.lightningtrade.easyquant.service;
 
-import com.lightningtrade.easyquant.entity.HistoricalData;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.calendar.TradingCalendarService;
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import com.lightningtrade.easyquant.entity.DownloadCheckpoint;
 import com.lightningtrade.easyquant.model.MarketData;
-import com.lightningtrade.easyquant.repository.HistoricalDataRepository;
-import com.tigerbrokers.stock.openapi.client.https.client.TigerHttpClient;
-import com.tigerbrokers.stock.openapi.client.https.request.quote.QuoteKlineRequest;
-import com.tigerbrokers.stock.openapi.client.https.request.quote.QuoteTradeCalendarRequest;
+import com.lightningtrade.easyquant.model.TimeRange;
+import com.lightningtrade.easyquant.repository.DownloadCheckpointRepository;
+import com.lightningtrade.easyquant.repository.HistoricalDataJdbcRepository;
+import com.lightningtrade.easyquant.resample.BarResampler;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarCache;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.store.ColumnarBarStore;
+import com.lightningtrade.easyquant.transport.TigerTransport;
 import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteKlineResponse;
-import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteTradeCalendarResponse;
 import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
-import com.tigerbrokers.stock.openapi.client.struct.enums.Market;
-import com.tigerbrokers.stock.openapi.client.struct.enums.TimeZoneId;
-import com.tigerbrokers.stock.openapi.client.util.DateUtils;
 import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.KlineItem;
 import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.KlinePoint;
-import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.TradeCalendar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class DataService {
     private static final Logger logger = LoggerFactory.getLogger(DataService.class);
 
     @Autowired
-    private HistoricalDataRepository historicalDataRepository;
+    private TigerTransport transport;
 
     @Autowired
-    private TigerHttpClient tigerClient;
+    private RequestRateLimiter rateLimiter;
+
+    @Autowired
+    private HistoricalDataJdbcRepository jdbcRepository;
+
+    @Autowired
+    private DownloadCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private BarTierService barTierService;
+
+    @Autowired
+    private ColumnarBarStore barStore;
+
+    @Autowired
+    private BarCache barCache;
+
+    @Autowired
+    private DataCoverageService coverageService;
+
+    @Autowired
+    private TradingCalendarService calendarService;
+
+    // 分页下载时每多少页提交一次并记录断点
+    @Value("${data.download.pages-per-commit:5}")
+    private int pagesPerCommit;
+
+    // 批量下载时每次请求合并的证券数
+    @Value("${data.download.symbols-per-request:50}")
+    private int symbolsPerRequest;
+
+    // 进行中的查询，键为 股票/K线类型/开始时间/结束时间
+    private final ConcurrentHashMap<String, CompletableFuture<BarColumns>> inFlightLoads =
+            new ConcurrentHashMap<>();
 
     /**
-     * 获取交易日历
+     * 获取历史数据
+     * 
+     * @param symbol    股票代码
+     * @param market    市场（US/HK）
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @param kType     K线类型
+     * @return K线数据列表
      */
-    public List<TradeCalendar> getTradingDays(String market, LocalDateTime startTime, LocalDateTime endTime) {
+    public List<MarketData> getHistoricalData(String symbol, String market, LocalDateTime startTime,
+            LocalDateTime endTime,
+            KType kType) {
         try {
-            // 市场代码转大写
-            market = market.toUpperCase();
-            Market marketEnum = Market.valueOf(market);
-
-            QuoteTradeCalendarRequest request = QuoteTradeCalendarRequest.newRequest(
-                    marketEnum,
-                    DateUtils.printDate(startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
-                            TimeZoneId.NewYork),
-                    DateUtils.printDate(endTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
-                            TimeZoneId.NewYork));
-
-            QuoteTradeCalendarResponse response = tigerClient.execute(request);
-            if (!response.isSuccess()) {
-                logger.error("获取交易日历失败 - 市场: {}, 错误码: {}, 错误信息: {}",
-                        market, response.getCode(), response.getMessage());
-                return new ArrayList<>();
+            ZoneId zoneId = MarketSession.of(market).getZoneId();
+            long startMillis = toEpochMilli(startTime, zoneId);
+            long endMillis = toEpochMilli(endTime, zoneId);
+
+            // 内存缓存完整覆盖时直接返回，不访问数据库
+            BarColumns cached = barCache.get(symbol, kType, startMillis, endMillis);
+            if (cached != null) {
+                logger.debug("获取K线数据命中缓存 - 股票: {}, K线类型: {}, 数据点数: {}", symbol, kType, cached.size());
+                return cached.asMarketDataList(symbol, zoneId);
+            }
+
+            // 相同查询已在进行中时等待并共用其结果，否则由当前线程加载
+            String key = symbol + "/" + kType.name() + "/" + startMillis + "/" + endMillis;
+            CompletableFuture<BarColumns> future = new CompletableFuture<>();
+            CompletableFuture<BarColumns> inFlight = inFlightLoads.putIfAbsent(key, future);
+            if (inFlight != null) {
+                logger.debug("合并进行中的K线查询 - 股票: {}, K线类型: {}", symbol, kType);
+                return inFlight.join().asMarketDataList(symbol, zoneId);
+            }
+            try {
+                BarColumns bars = loadHistoricalData(symbol, market, kType, startMillis, endMillis);
+                future.complete(bars);
+                return bars.asMarketDataList(symbol, zoneId);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightLoads.remove(key, future);
             }
 
-            return response.getItems();
         } catch (Exception e) {
-            logger.error("获取交易日历异常", e);
+            logger.error("获取K线数据异常", e);
             return new ArrayList<>();
         }
     }
 
     /**
-     * 获取历史数据
-     * 
+     * 加载历史K线：补齐缺失区间后从本地读取
+     * 同一(股票, K线类型)的加载串行执行，后到的查询等前一个完成后重新计算缺失区间，
+     * 相交的区间不会被重复下载，也不会并发执行删除和写入
+     */
+    private BarColumns loadHistoricalData(String symbol, String market, KType kType, long startMillis,
+            long endMillis) {
+        synchronized (loadLock(symbol, kType)) {
+            // 等锁期间其他线程可能已经加载了同一区间
+            BarColumns cached = barCache.get(symbol, kType, startMillis, endMillis);
+            if (cached != null) {
+                return cached;
+            }
+
+            // 数据库中缺失时，优先由本地已完整覆盖的较细周期K线聚合得到，避免重新下载
+            List<TimeRange> gaps = coverageService.findGaps(symbol, kType, DataCoverage.LAYER_DATABASE,
+                    startMillis, endMillis);
+            if (!gaps.isEmpty()) {
+                BarColumns derived = resampleFromFinerBars(symbol, market, kType, startMillis, endMillis);
+                if (derived != null) {
+                    cacheBars(symbol, market, kType, startMillis, endMillis, derived, false);
+                    logger.info("获取K线数据成功（本地聚合） - 股票: {}, 市场: {}, K线类型: {}, 数据点数: {}",
+                            symbol, market, kType, derived.size());
+                    return derived;
+                }
+            }
+
+            // 只下载数据库中缺失的子区间
+            for (TimeRange gap : gaps) {
+                fetchRange(symbol, market, kType, gap.getStart(), gap.getEnd());
+            }
+
+            BarColumns bars = readLocalBars(symbol, kType, startMillis, endMillis);
+            cacheBars(symbol, market, kType, startMillis, endMillis, bars, true);
+            logger.info("获取K线数据成功 - 股票: {}, 市场: {}, K线类型: {}, 数据点数: {}, 补齐区间数: {}",
+                    symbol, market, kType, bars.size(), gaps.size());
+            return bars;
+        }
+    }
+
+    /**
+     * 每个(股票, K线类型)的加载锁，与分层压缩共用同一把写入锁
+     */
+    private Object loadLock(String symbol, KType kType) {
+        return barTierService.writeLock(symbol, kType);
+    }
+
+    /**
+     * 将查询结果放入内存缓存
+     * 只缓存到已走完的K线为止（见finalizedUntil），尚未走完的K线下次查询时重新获取
+     *
+     * @param verifyCoverage 是否要求数据库已完整覆盖该区间（下载失败时不缓存不完整的数据）
+     */
+    private void cacheBars(String symbol, String market, KType kType, long startMillis, long endMillis,
+            BarColumns bars, boolean verifyCoverage) {
+        long cacheEnd = Math.min(endMillis, finalizedUntil(market, kType));
+        if (cacheEnd < startMillis) {
+            return;
+        }
+        int count = bars.lowerBound(cacheEnd + 1);
+        if (verifyCoverage && !coverageService.isCovered(symbol, kType, DataCoverage.LAYER_DATABASE,
+                startMillis, cacheEnd)) {
+            return;
+        }
+        barCache.put(symbol, kType, startMillis, cacheEnd, bars.subRange(0, count));
+    }
+
+    /**
+     * 从本地读取已下载的K线
+     * 启用列式存储时，先把本地已持久化、列式存储缺失的部分同步过去，再从列式存储读取；
+     * 否则合并读取数据库与冷数据分段文件
+     */
+    private BarColumns readLocalBars(String symbol, KType kType, long startMillis, long endMillis) {
+        if (barStore.isEnabled()) {
+            syncBarStore(symbol, kType, startMillis, endMillis);
+            return barStore.read(symbol, kType, startMillis, endMillis);
+        }
+        return barTierService.readBars(symbol, kType, startMillis, endMillis);
+    }
+
+    /**
+     * 由本地已完整覆盖的较细周期K线聚合出目标周期K线
+     * 读取范围扩展到目标周期的边界，保证首尾两根K线完整
+     *
+     * @return 聚合结果，没有可用的较细周期数据时返回null
+     */
+    private BarColumns resampleFromFinerBars(String symbol, String market, KType kType, long startMillis,
+            long endMillis) {
+        MarketSession session;
+        try {
+            session = MarketSession.of(market);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        for (KType source : BarResampler.sourcesFor(kType)) {
+            BarResampler resampler = BarResampler.of(session, source, kType,
+                    calendarService.loadedCalendar(session));
+            long readStart = resampler.periodStart(startMillis);
+            long readEnd = resampler.periodEnd(endMillis);
+            if (!coverageService.isCovered(symbol, source, DataCoverage.LAYER_DATABASE, readStart,
+                    Math.min(readEnd, now))) {
+                continue;
+            }
+
+            BarArrays resampled;
+            synchronized (loadLock(symbol, source)) {
+                resampled = resampler.resample(readLocalBars(symbol, source, readStart, readEnd));
+            }
+            int from = resampled.lowerBound(startMillis);
+            int to = resampled.lowerBound(endMillis + 1);
+            BarArrays result = new BarArrays(Math.max(to - from, 1));
+            result.addAll(resampled, from, to);
+            logger.debug("由较细周期聚合K线 - 股票: {}, 源K线类型: {}, 目标K线类型: {}, 数据点数: {}",
+                    symbol, source, kType, result.size());
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * 读取本地最近的K线，不下载缺失数据
+     * 按K线周期和每日交易时长估算需要的天数，数据不足时把读取区间加倍，直到达到maxDays。
+     * 最后一根K线所在周期尚未结束时（见finalizedUntil）可能还会变化，不包含在结果中；收盘后则保留。
+     *
+     * @param symbol  股票代码
+     * @param market  市场（US/HK）
+     * @param kType   K线类型
+     * @param count   需要的K线数量
+     * @param maxDays 最多向前读取的天数
+     * @return 按时间升序的最近count根K线，本地数据不足时返回全部已有数据
+     */
+    public BarColumns getRecentLocalBars(String symbol, String market, KType kType, int count, int maxDays) {
+        MarketSession session = MarketSession.of(market);
+        long now = System.currentTimeMillis();
+        int minutes = BarResampler.minutesOf(kType);
+        double barsPerDay;
+        if (minutes > 0) {
+            barsPerDay = (double) session.getMinutesPerDay(false) / minutes;
+        } else if (kType == KType.day) {
+            barsPerDay = 1;
+        } else if (kType == KType.week) {
+            barsPerDay = 1.0 / 5;
+        } else if (kType == KType.month) {
+            barsPerDay = 1.0 / 21;
+        } else {
+            barsPerDay = 1.0 / 252;
+        }
+        // 交易日按每周5天换算为自然日，再留出节假日的余量
+        int days = Math.min((int) Math.ceil((count + 1) / barsPerDay * 7 / 5) + 7, maxDays);
+
+        BarColumns bars;
+        while (true) {
+            long startMillis = now - TimeUnit.DAYS.toMillis(days);
+            synchronized (loadLock(symbol, kType)) {
+                bars = readLocalBars(symbol, kType, startMillis, now);
+            }
+            if (bars.size() > count || days >= maxDays) {
+                break;
+            }
+            days = Math.min(days * 2, maxDays);
+        }
+        int to = bars.size();
+        if (to > 0 && bars.getTime(to - 1) > finalizedUntil(market, kType)) {
+            to--;
+        }
+        return bars.subRange(Math.max(to - count, 0), to);
+    }
+
+    /**
+     * 下载数据库中缺失的历史K线，不读取数据
+     * 供预加载等只需要把数据落到本地的场景使用
+     *
      * @param symbol    股票代码
      * @param market    市场（US/HK）
      * @param startTime 开始时间
      * @param endTime   结束时间
      * @param kType     K线类型
-     * @return K线数据列表
+     * @return 是否全部下载成功
      */
-    public List<MarketData> getHistoricalData(String symbol, String market, LocalDateTime startTime,
-            LocalDateTime endTime,
-            KType kType) {
-        List<MarketData> result = new ArrayList<>();
+    public boolean prefetchHistoricalData(String symbol, String market, LocalDateTime startTime,
+            LocalDateTime endTime, KType kType) {
+        ZoneId zoneId = MarketSession.of(market).getZoneId();
+        long startMillis = toEpochMilli(startTime, zoneId);
+        long endMillis = toEpochMilli(endTime, zoneId);
+        synchronized (loadLock(symbol, kType)) {
+            boolean success = true;
+            for (TimeRange gap : coverageService.findGaps(symbol, kType, DataCoverage.LAYER_DATABASE,
+                    startMillis, endMillis)) {
+                success &= fetchRange(symbol, market, kType, gap.getStart(), gap.getEnd());
+            }
+            return success;
+        }
+    }
+
+    /**
+     * 批量下载多个证券数据库中缺失的历史K线
+     * 每次请求合并最多symbolsPerRequest个证券查询第一页，再按证券拆分响应分别保存；
+     * 第一页未取完的证券凭各自的分页令牌单独续传。日常增量刷新时每批证券只需一次请求。
+     * 每个证券下载的区间为第一个缺失区间的开始到最后一个缺失区间的结束。
+     *
+     * @param symbols   股票代码列表（同一市场）
+     * @param market    市场（US/HK）
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @param kType     K线类型
+     * @return 各证券是否全部下载成功
+     */
+    public Map<String, Boolean> batchPrefetchHistoricalData(List<String> symbols, String market,
+            LocalDateTime startTime, LocalDateTime endTime, KType kType) {
+        ZoneId zoneId = MarketSession.of(market).getZoneId();
+        long startMillis = toEpochMilli(startTime, zoneId);
+        long endMillis = toEpochMilli(endTime, zoneId);
+        Map<String, Boolean> result = new LinkedHashMap<>();
+
+        List<Map.Entry<String, TimeRange>> pending = new ArrayList<>();
+        for (String symbol : symbols) {
+            List<TimeRange> gaps = coverageService.findGaps(symbol, kType, DataCoverage.LAYER_DATABASE,
+                    startMillis, endMillis);
+            if (gaps.isEmpty()) {
+                result.put(symbol, true);
+            } else {
+                pending.add(new AbstractMap.SimpleEntry<>(symbol,
+                        new TimeRange(gaps.get(0).getStart(), gaps.get(gaps.size() - 1).getEnd())));
+            }
+        }
+
+        // 按下载区间的开始时间排序，开始时间相近的证券合并到同一个请求
+        pending.sort(Comparator.comparingLong(entry -> entry.getValue().getStart()));
+        for (int from = 0; from < pending.size(); from += symbolsPerRequest) {
+            result.putAll(fetchBatch(market, kType,
+                    pending.subList(from, Math.min(from + symbolsPerRequest, pending.size()))));
+        }
+        logger.info("批量下载K线数据完成 - 市场: {}, K线类型: {}, 证券数: {}, 需要下载: {}, 失败: {}",
+                market, kType, symbols.size(), pending.size(),
+                result.values().stream().filter(success -> !success).count());
+        return result;
+    }
+
+    /**
+     * 合并请求一批证券的第一页K线，按证券拆分保存
+     *
+     * @param batch 证券及其下载区间，按区间开始时间升序
+     */
+    private Map<String, Boolean> fetchBatch(String market, KType kType, List<Map.Entry<String, TimeRange>> batch) {
+        Map<String, Boolean> result = new HashMap<>();
+        List<String> symbols = new ArrayList<>(batch.size());
+        for (Map.Entry<String, TimeRange> entry : batch) {
+            symbols.add(entry.getKey());
+            result.put(entry.getKey(), false);
+        }
 
         try {
-            // 先从数据库获取数据
-            List<HistoricalData> dbData = historicalDataRepository
-                    .findBySymbolAndkTypeAndDateTimeBetweenOrderByDateTimeAsc(symbol, kType.name(), startTime, endTime);
-
-            // 如果数据库中有数据，检查数据完整性
-            if (!dbData.isEmpty()) {
-                // 获取预期的K线数量
-                int expectedCount = calculateKlineCount(market, kType, startTime, endTime);
-
-                // 如果数据完整，直接返回
-                if (dbData.size() == expectedCount) {
-                    return dbData.stream()
-                            .map(this::convertToMarketData)
-                            .collect(Collectors.toList());
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("批量获取K线数据被中断 - 市场: {}, 证券数: {}", market, symbols.size());
+            return result;
+        }
+        QuoteKlineResponse response = transport.queryKline(symbols, kType, batch.get(0).getValue().getStart(),
+                -1, null);
+        if (!response.isSuccess()) {
+            logger.error("批量获取K线数据失败 - 市场: {}, 证券: {}, 错误码: {}, 错误信息: {}",
+                    market, symbols, response.getCode(), response.getMessage());
+            return result;
+        }
+
+        Map<String, KlineItem> itemsBySymbol = new HashMap<>();
+        if (response.getKlineItems() != null) {
+            for (KlineItem item : response.getKlineItems()) {
+                itemsBySymbol.put(item.getSymbol(), item);
+            }
+        }
+        for (Map.Entry<String, TimeRange> entry : batch) {
+            String symbol = entry.getKey();
+            try {
+                synchronized (loadLock(symbol, kType)) {
+                    result.put(symbol, saveBatchItem(symbol, market, kType, entry.getValue().getStart(),
+                            entry.getValue().getEnd(), itemsBySymbol.get(symbol)));
                 }
+            } catch (Exception e) {
+                logger.error("保存批量K线数据失败 - 股票: {}, K线类型: {}", symbol, kType, e);
+            }
+        }
+        return result;
+    }
 
-                logger.warn("数据库中的数据不完整 - 股票: {}, 市场: {}, K线类型: {}, 实际数量: {}, 预期数量: {}",
-                        symbol, market, kType, dbData.size(), expectedCount);
+    /**
+     * 保存批量响应中一个证券的第一页K线
+     * 区间已取完时整段提交并放入内存缓存；未取完时提交已取到的部分并记录断点，再单独续传剩余部分
+     */
+    private boolean saveBatchItem(String symbol, String market, KType kType, long startMillis, long endMillis,
+            KlineItem item) {
+        BarArrays dataToSave = new BarArrays();
+        boolean reachEndTime = false;
+        long lastTime = -1;
+        if (item != null && item.getItems() != null) {
+            for (KlinePoint point : item.getItems()) {
+                long itemTime = point.getTime();
+                if (itemTime > endMillis) {
+                    reachEndTime = true;
+                    break;
+                }
+                if (itemTime < startMillis) {
+                    continue;
+                }
+                dataToSave.add(itemTime, point.getOpen(), point.getHigh(), point.getLow(), point.getClose(),
+                        point.getVolume());
+                lastTime = itemTime;
+            }
+        }
 
-                // 删除不完整的数据
-                historicalDataRepository.deleteAll(dbData);
-                logger.info("删除旧数据 - 股票: {}, 市场: {}, K线类型: {}, 数据点数: {}",
-                        symbol, market, kType, dbData.size());
+        String pageToken = item == null || reachEndTime ? null : item.getNextPageToken();
+        if (pageToken != null) {
+            if (dataToSave.size() == 0) {
+                return fetchRange(symbol, market, kType, startMillis, endMillis);
             }
+            commitChunk(symbol, kType, startMillis, lastTime, lastTime, dataToSave);
+            saveCheckpoint(symbol, kType, lastTime, pageToken, dataToSave.size());
+            return fetchRange(symbol, market, kType, lastTime + 1, endMillis);
+        }
 
-            // 如果数据库中没有数据或数据不完整，从API获取
-            String pageToken = null;
-            boolean reachEndTime = false;
-            List<HistoricalData> dataToSave = new ArrayList<>();
-
-            do {
-                // 构建K线请求
-                QuoteKlineRequest request = QuoteKlineRequest.newRequest(
-                        Collections.singletonList(symbol),
-                        kType,
-                        DateUtils.printDate(startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
-                                TimeZoneId.NewYork),
-                        "-1");
-
-                if (pageToken != null) {
-                    request.withPageToken(pageToken);
-                }
+        long coveredEnd = Math.min(endMillis, finalizedUntil(market, kType));
+        commitChunk(symbol, kType, startMillis, endMillis, coveredEnd, dataToSave);
+        checkpointRepository.deleteBySymbolAndkType(symbol, kType.name());
+        cacheBars(symbol, market, kType, startMillis, endMillis, dataToSave, false);
+        return true;
+    }
 
-                // 执行请求
-                QuoteKlineResponse response = tigerClient.execute(request);
-                if (!response.isSuccess()) {
-                    logger.error("获取K线数据失败 - 股票: {}, 市场: {}, 错误码: {}, 错误信息: {}",
-                            symbol, market, response.getCode(), response.getMessage());
-                    break;
+    /**
+     * 从API下载[startMillis, endMillis]区间的K线，写入数据库与列式存储，并记录覆盖区间
+     * 每下载若干页提交一次：已提交部分立即标记为已覆盖，并记录断点（最后一根K线时间与下一页的分页令牌）。
+     * 中途失败时已提交的K线不会丢失，之后缺失区间恰好从断点之后开始，凭分页令牌续传。
+     *
+     * @return 是否下载成功（区间内没有K线也视为成功）
+     */
+    private boolean fetchRange(String symbol, String market, KType kType, long startMillis, long endMillis) {
+        String pageToken = null;
+        long savedCount = 0;
+        DownloadCheckpoint checkpoint = checkpointRepository.findBySymbolAndkType(symbol, kType.name());
+        if (checkpoint != null && checkpoint.getPageToken() != null && checkpoint.getLastTime() + 1 == startMillis) {
+            pageToken = checkpoint.getPageToken();
+            savedCount = checkpoint.getSavedCount();
+            logger.info("断点续传K线数据 - 股票: {}, K线类型: {}, 断点: {}, 已保存: {}",
+                    symbol, kType, Instant.ofEpochMilli(checkpoint.getLastTime()), savedCount);
+        } else if (checkpoint != null) {
+            // 断点不属于本次下载的区间（缺失区间已被其他下载补齐或发生变化），令牌不可再用
+            checkpointRepository.deleteBySymbolAndkType(symbol, kType.name());
+            logger.info("清除过期的下载断点 - 股票: {}, K线类型: {}, 断点: {}",
+                    symbol, kType, Instant.ofEpochMilli(checkpoint.getLastTime()));
+        }
+        boolean resumed = pageToken != null;
+
+        // 当前批次的开始时间，每提交一批后推进到已提交的最后一根K线之后
+        long chunkStart = startMillis;
+        long lastTime = -1;
+        int pages = 0;
+        BarArrays dataToSave = new BarArrays();
+
+        while (true) {
+            // 执行请求（所有行情请求共享全局限流）
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("获取K线数据被中断 - 股票: {}, 市场: {}", symbol, market);
+                savePartial(symbol, kType, chunkStart, lastTime, pageToken, savedCount, dataToSave);
+                return false;
+            }
+            QuoteKlineResponse response = transport.queryKline(symbol, kType, startMillis, -1, pageToken);
+            if (!response.isSuccess()) {
+                if (resumed && pages == 0) {
+                    // 分页令牌可能已过期，改为从断点时间重新开始
+                    logger.warn("断点续传失败，从断点时间重新下载 - 股票: {}, K线类型: {}, 错误信息: {}",
+                            symbol, kType, response.getMessage());
+                    resumed = false;
+                    pageToken = null;
+                    savedCount = 0;
+                    continue;
                 }
+                logger.error("获取K线数据失败 - 股票: {}, 市场: {}, 错误码: {}, 错误信息: {}",
+                        symbol, market, response.getCode(), response.getMessage());
+                savePartial(symbol, kType, chunkStart, lastTime, pageToken, savedCount, dataToSave);
+                return false;
+            }
+            pages++;
 
-                // 处理响应数据
-                List<KlineItem> items = response.getKlineItems();
-                if (items == null || items.isEmpty()) {
-                    logger.warn("未获取到K线数据 - 股票: {}, 市场: {}", symbol, market);
-                    break;
+            // 处理响应数据
+            List<KlineItem> items = response.getKlineItems();
+            if (items == null || items.isEmpty()) {
+                logger.warn("未获取到K线数据 - 股票: {}, 市场: {}", symbol, market);
+                break;
+            }
+
+            boolean reachEndTime = false;
+            pageToken = null;
+            for (KlineItem item : items) {
+                List<KlinePoint> points = item.getItems();
+                if (points == null || points.isEmpty()) {
+                    continue;
                 }
 
-                // 处理每个K线数据
-                for (KlineItem item : items) {
-                    List<KlinePoint> points = item.getItems();
-                    if (points == null || points.isEmpty()) {
-                        continue;
-                    }
+                for (KlinePoint point : points) {
+                    long itemTime = point.getTime();
 
-                    for (KlinePoint point : points) {
-                        LocalDateTime itemTime = LocalDateTime.ofInstant(
-                                java.time.Instant.ofEpochMilli(point.getTime()),
-                                ZoneId.systemDefault());
-
-                        // 如果数据时间超过结束时间，停止获取
-                        if (itemTime.isAfter(endTime)) {
-                            reachEndTime = true;
-                            break;
-                        }
-
-                        // 如果数据时间在开始时间之前，跳过
-                        if (itemTime.isBefore(startTime)) {
-                            continue;
-                        }
-
-                        // 创建数据实体并保存
-                        HistoricalData data = new HistoricalData();
-                        data.setSymbol(symbol);
-                        data.setDateTime(itemTime);
-                        data.setOpen(point.getOpen());
-                        data.setHigh(point.getHigh());
-                        data.setLow(point.getLow());
-                        data.setClose(point.getClose());
-                        data.setVolume(point.getVolume());
-                        data.setKType(kType.name());
-                        dataToSave.add(data);
-
-                        // 添加到结果集
-                        MarketData marketData = new MarketData();
-                        marketData.setSymbol(symbol);
-                        marketData.setDateTime(itemTime);
-                        marketData.setOpen(point.getOpen());
-                        marketData.setHigh(point.getHigh());
-                        marketData.setLow(point.getLow());
-                        marketData.setClose(point.getClose());
-                        marketData.setVolume((long) point.getVolume());
-                        result.add(marketData);
+                    // 如果数据时间超过结束时间，停止获取
+                    if (itemTime > endMillis) {
+                        reachEndTime = true;
+                        break;
                     }
 
-                    if (reachEndTime) {
-                        break;
+                    // 如果数据时间在本批开始时间之前，跳过
+                    if (itemTime < chunkStart) {
+                        continue;
                     }
 
-                    pageToken = item.getNextPageToken();
+                    dataToSave.add(itemTime, point.getOpen(), point.getHigh(), point.getLow(), point.getClose(),
+                            point.getVolume());
+                    lastTime = itemTime;
                 }
 
-            } while (pageToken != null && !reachEndTime);
+                if (reachEndTime) {
+                    break;
+                }
 
-            // 保存数据到数据库
-            if (!dataToSave.isEmpty()) {
-                historicalDataRepository.saveAll(dataToSave);
-                logger.info("保存K线数据成功 - 股票: {}, 市场: {}, K线类型: {}, 数据点数: {}",
-                        symbol, market, kType, dataToSave.size());
+                pageToken = item.getNextPageToken();
             }
 
-            logger.info("获取K线数据成功 - 股票: {}, 市场: {}, K线类型: {}, 数据点数: {}",
-                    symbol, market, kType, result.size());
-            return result;
+            if (pageToken == null || reachEndTime) {
+                break;
+            }
 
-        } catch (Exception e) {
-            logger.error("获取K线数据异常", e);
-            return new ArrayList<>();
+            // 每pagesPerCommit页提交一批，内存中最多保留这么多页
+            if (pages % pagesPerCommit == 0 && dataToSave.size() > 0) {
+                savedCount += dataToSave.size();
+                commitChunk(symbol, kType, chunkStart, lastTime, lastTime, dataToSave);
+                saveCheckpoint(symbol, kType, lastTime, pageToken, savedCount);
+                chunkStart = lastTime + 1;
+                dataToSave.clear();
+            }
         }
+
+        // 最后一批覆盖到区间结束，但不包括尚未走完的K线周期
+        long coveredEnd = Math.min(endMillis, finalizedUntil(market, kType));
+        savedCount += dataToSave.size();
+        commitChunk(symbol, kType, chunkStart, endMillis, coveredEnd, dataToSave);
+        checkpointRepository.deleteBySymbolAndkType(symbol, kType.name());
+
+        logger.info("保存K线数据成功 - 股票: {}, 市场: {}, K线类型: {}, 区间: [{}, {}], 数据点数: {}, 页数: {}",
+                symbol, market, kType, Instant.ofEpochMilli(startMillis), Instant.ofEpochMilli(endMillis),
+                savedCount, pages);
+        return true;
     }
 
-    private MarketData convertToMarketData(HistoricalData historicalData) {
-        MarketData marketData = new MarketData();
-        marketData.setSymbol(historicalData.getSymbol());
-        marketData.setDateTime(historicalData.getDateTime());
-        marketData.setOpen(historicalData.getOpen());
-        marketData.setHigh(historicalData.getHigh());
-        marketData.setLow(historicalData.getLow());
-        marketData.setClose(historicalData.getClose());
-        marketData.setVolume((long) historicalData.getVolume());
-        return marketData;
+    /**
+     * 提交一批K线：覆盖写入[chunkStart, chunkEnd]区间，并把[chunkStart, coveredEnd]标记为已覆盖
+     */
+    private void commitChunk(String symbol, KType kType, long chunkStart, long chunkEnd, long coveredEnd,
+            BarColumns data) {
+        // 覆盖写入：在一个事务内删除区间内的旧数据并批量写入新数据
+        int deleted = jdbcRepository.replaceRange(symbol, kType.name(), chunkStart, chunkEnd, data);
+        barTierService.dropSegments(symbol, kType, chunkStart, chunkEnd);
+        barCache.invalidate(symbol, kType, chunkStart, chunkEnd);
+        logger.debug("提交K线数据 - 股票: {}, K线类型: {}, 区间: [{}, {}], 数据点数: {}, 替换旧数据: {}",
+                symbol, kType, Instant.ofEpochMilli(chunkStart), Instant.ofEpochMilli(chunkEnd), data.size(),
+                deleted);
+
+        if (coveredEnd < chunkStart) {
+            return;
+        }
+        coverageService.markCovered(symbol, kType, DataCoverage.LAYER_DATABASE, chunkStart, coveredEnd);
+        if (writeToBarStore(symbol, kType, data)) {
+            coverageService.markCovered(symbol, kType, DataCoverage.LAYER_BAR_STORE, chunkStart, coveredEnd);
+        }
     }
 
     /**
-     * 计算指定时间范围内的K线数量
-     * 
-     * @param market    市场（US/HK）
-     * @param kType     K线类型
-     * @param startTime 开始时间
-     * @param endTime   结束时间
-     * @return 预计的K线数量
+     * 下载失败时提交已下载但尚未提交的K线，并记录断点
      */
-    public int calculateKlineCount(String market, KType kType, LocalDateTime startTime, LocalDateTime endTime) {
+    private void savePartial(String symbol, KType kType, long chunkStart, long lastTime, String pageToken,
+            long savedCount, BarColumns data) {
+        if (data.size() == 0 || pageToken == null) {
+            return;
+        }
         try {
-            // 获取交易日历
-            List<TradeCalendar> tradingDays = getTradingDays(market, startTime, endTime);
-            if (tradingDays.isEmpty()) {
-                return 0;
-            }
-
-            int tradingDaysCount = tradingDays.size();
-            logger.info("交易日数量: {}", tradingDaysCount);
-
-            // 根据不同的K线类型计算数量
-            String kTypeName = kType.name().toLowerCase();
-            int count;
-
-            if (kTypeName.equals("day")) {
-                count = tradingDaysCount;
-            } else if (kTypeName.equals("week")) {
-                count = (int) Math.ceil(tradingDaysCount / 5.0);
-            } else if (kTypeName.equals("month")) {
-                count = (int) Math.ceil(tradingDaysCount / 21.0); // 假设每月平均21个交易日
-            } else if (kTypeName.equals("year")) {
-                count = (int) Math.ceil(tradingDaysCount / 252.0); // 假设每年平均252个交易日
-            } else if (kTypeName.startsWith("min")) {
-                // 分钟级别K线
-                int minutesPerDay;
-                if (market.equalsIgnoreCase("US")) {
-                    minutesPerDay = 390; // 美股每天6.5小时 = 390分钟
-                } else {
-                    minutesPerDay = 330; // 港股每天5.5小时 = 330分钟
-                }
+            commitChunk(symbol, kType, chunkStart, lastTime, lastTime, data);
+            saveCheckpoint(symbol, kType, lastTime, pageToken, savedCount + data.size());
+        } catch (Exception e) {
+            logger.error("保存已下载的K线数据失败 - 股票: {}, K线类型: {}", symbol, kType, e);
+        }
+    }
 
-                // 获取K线的分钟数
-                int minutes;
-                try {
-                    minutes = Integer.parseInt(kTypeName.substring(3));
-                } catch (NumberFormatException e) {
-                    logger.error("无法解析K线周期: {}", kTypeName);
-                    return 0;
-                }
+    private void saveCheckpoint(String symbol, KType kType, long lastTime, String pageToken, long savedCount) {
+        DownloadCheckpoint checkpoint = checkpointRepository.findBySymbolAndkType(symbol, kType.name());
+        if (checkpoint == null) {
+            checkpoint = new DownloadCheckpoint();
+            checkpoint.setSymbol(symbol);
+            checkpoint.setKType(kType.name());
+        }
+        checkpoint.setLastTime(lastTime);
+        checkpoint.setPageToken(pageToken);
+        checkpoint.setSavedCount(savedCount);
+        checkpointRepository.save(checkpoint);
+    }
 
-                // 验证分钟数是否有效
-                if (minutes <= 0) {
-                    logger.error("无效的分钟数: {}", minutes);
-                    return 0;
+    /**
+     * 将本地已持久化（数据库或冷数据分段）、列式存储尚未同步的子区间写入列式存储
+     */
+    private void syncBarStore(String symbol, KType kType, long startMillis, long endMillis) {
+        List<TimeRange> storeGaps = coverageService.findGaps(symbol, kType, DataCoverage.LAYER_BAR_STORE,
+                startMillis, endMillis);
+        for (TimeRange gap : storeGaps) {
+            for (TimeRange covered : intersectCovered(symbol, kType, gap)) {
+                BarArrays dbData = barTierService.readBars(symbol, kType, covered.getStart(), covered.getEnd());
+                if (writeToBarStore(symbol, kType, dbData)) {
+                    coverageService.markCovered(symbol, kType, DataCoverage.LAYER_BAR_STORE,
+                            covered.getStart(), covered.getEnd());
                 }
+            }
+        }
+    }
 
-                // 计算每天的K线数量
-                int barsPerDay = minutesPerDay / minutes;
-                count = barsPerDay * tradingDaysCount;
-            } else {
-                logger.warn("不支持的K线类型: {}", kTypeName);
-                return 0;
+    /**
+     * 求一个区间中已被数据库覆盖的部分
+     */
+    private List<TimeRange> intersectCovered(String symbol, KType kType, TimeRange range) {
+        List<TimeRange> result = new ArrayList<>();
+        long cursor = range.getStart();
+        for (TimeRange missing : coverageService.findGaps(symbol, kType, DataCoverage.LAYER_DATABASE,
+                range.getStart(), range.getEnd())) {
+            if (missing.getStart() > cursor) {
+                result.add(new TimeRange(cursor, missing.getStart() - 1));
             }
+            cursor = missing.getEnd() + 1;
+        }
+        if (cursor <= range.getEnd()) {
+            result.add(new TimeRange(cursor, range.getEnd()));
+        }
+        return result;
+    }
 
-            logger.info("计算K线数量 - 市场: {}, K线类型: {}, 开始时间: {}, 结束时间: {}, 数量: {}",
-                    market, kType, startTime, endTime, count);
-            return count;
+    /**
+     * 将K线同步写入列式存储，写入失败不影响本次查询
+     *
+     * @return 是否写入成功
+     */
+    private boolean writeToBarStore(String symbol, KType kType, BarColumns bars) {
+        if (!barStore.isEnabled()) {
+            return false;
+        }
+        try {
+            barStore.write(symbol, kType, bars);
+            return true;
         } catch (Exception e) {
-            logger.error("计算K线数量失败", e);
-            return 0;
+            logger.warn("写入列式存储失败 - 股票: {}, K线类型: {}", symbol, kType, e);
+            return false;
+        }
+    }
+
+    /**
+     * 截至当前时间已经走完、不会再变化的K线数据的截止时间（毫秒时间戳，包含）
+     * 从下一次可能产生新行情的时间（交易时段内为当前时间，休市时为下一个交易时段开盘）所在的K线周期起，
+     * K线都可能变化；收盘后当天的K线已经走完，周末不会再去重新下载周五的K线
+     */
+    private static long finalizedUntil(String market, KType kType) {
+        MarketSession session = MarketSession.of(market);
+        long now = System.currentTimeMillis();
+        long active = session.nextActiveTime(now);
+        int minutes = BarResampler.minutesOf(kType);
+        if (minutes > 0) {
+            // 休市期间开盘前的K线都已走完；交易时段内K线时间不论取周期开始还是结束，早于一个周期的都已走完
+            return active > now ? active - 1 : now - TimeUnit.MINUTES.toMillis(minutes);
+        }
+        LocalDate periodStart = session.tradeDate(active);
+        switch (kType) {
+            case day:
+                break;
+            case week:
+                periodStart = periodStart.with(DayOfWeek.MONDAY);
+                break;
+            case month:
+                periodStart = periodStart.withDayOfMonth(1);
+                break;
+            default:
+                periodStart = periodStart.withDayOfYear(1);
+                break;
         }
+        return periodStart.atStartOfDay(session.getZoneId()).toInstant().toEpochMilli() - 1;
+    }
+
+    /**
+     * 接口传入的交易所当地时间转为毫秒时间戳，内部一律使用毫秒时间戳
+     */
+    private static long toEpochMilli(LocalDateTime dateTime, ZoneId zoneId) {
+        return dateTime.atZone(zoneId).toInstant().toEpochMilli();
     }
 
 }
\ No newline at end of file
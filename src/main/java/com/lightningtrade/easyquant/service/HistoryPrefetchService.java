@@ -0,0 +1,216 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.config.TradingConfig;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 历史数据预加载服务
+ * 通过有界线程池并发下载多个(证券, K线周期)的历史区间，所有请求共享全局限流器。
+ * 单个请求的网络延迟由多个线程重叠掉，整体吞吐只受限流速率约束。
+ */
+@Service
+public class HistoryPrefetchService {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryPrefetchService.class);
+
+    @Autowired
+    private DataService dataService;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private RequestRateLimiter rateLimiter;
+
+    // 下载线程数
+    @Value("${data.prefetch.threads:8}")
+    private int threads;
+
+    // 等待队列容量
+    @Value("${data.prefetch.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // 批量任务每批合并的证券数
+    @Value("${data.download.symbols-per-request:50}")
+    private int symbolsPerRequest;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "history-prefetch-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 预加载交易配置中所有启用市场的交易标的
+     *
+     * @param kType     K线类型
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 所有任务完成时结束的Future
+     */
+    public CompletableFuture<Void> prefetchUniverse(KType kType, LocalDateTime startTime, LocalDateTime endTime) {
+        return prefetchUniverse(Collections.singletonList(kType), startTime, endTime);
+    }
+
+    /**
+     * 按优先级预加载交易配置中所有启用市场的交易标的
+     * 同一市场的标的按优先级从高到低每symbolsPerRequest个合并为一个批量任务，
+     * 每个批量任务对每种K线类型只需一次合并请求即可完成增量刷新
+     *
+     * @param kTypes    K线类型列表
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @return 所有任务完成时结束的Future
+     */
+    public CompletableFuture<Void> prefetchUniverse(List<KType> kTypes, LocalDateTime startTime,
+            LocalDateTime endTime) {
+        List<Map.Entry<String, TradingConfig.Symbol>> symbols = new ArrayList<>();
+        if (tradingConfig.getMarkets() != null) {
+            for (Map.Entry<String, TradingConfig.Market> entry : tradingConfig.getMarkets().entrySet()) {
+                TradingConfig.Market market = entry.getValue();
+                if (!market.isEnabled() || market.getSymbols() == null) {
+                    continue;
+                }
+                for (TradingConfig.Symbol symbol : market.getSymbols().values()) {
+                    symbols.add(new AbstractMap.SimpleEntry<>(entry.getKey().toUpperCase(), symbol));
+                }
+            }
+        }
+        symbols.sort(Comparator.comparingInt(
+                (Map.Entry<String, TradingConfig.Symbol> entry) -> entry.getValue().getPriority()).reversed());
+
+        // 按市场分组，组内保持优先级顺序
+        Map<String, List<String>> symbolsByMarket = new LinkedHashMap<>();
+        for (Map.Entry<String, TradingConfig.Symbol> entry : symbols) {
+            symbolsByMarket.computeIfAbsent(entry.getKey(), key -> new ArrayList<>())
+                    .add(entry.getValue().getCode());
+        }
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : symbolsByMarket.entrySet()) {
+            List<String> codes = entry.getValue();
+            for (int from = 0; from < codes.size(); from += symbolsPerRequest) {
+                List<String> batch = new ArrayList<>(codes.subList(from,
+                        Math.min(from + symbolsPerRequest, codes.size())));
+                for (KType kType : kTypes) {
+                    futures.add(prefetchBatch(batch, entry.getKey(), kType, startTime, endTime));
+                }
+            }
+        }
+        logger.info("开始预加载历史数据 - K线类型: {}, 区间: [{}, {}], 证券数: {}, 任务数: {}",
+                kTypes, startTime, endTime, symbols.size(), futures.size());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 提交一批同一市场证券的批量预加载任务
+     *
+     * @return 任务结果，true表示所有证券的区间都已全部下载
+     */
+    public CompletableFuture<Boolean> prefetchBatch(List<String> symbols, String market, KType kType,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        submittedCount.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    boolean success = !dataService.batchPrefetchHistoricalData(symbols, market, startTime, endTime,
+                            kType).containsValue(false);
+                    (success ? completedCount : failedCount).incrementAndGet();
+                    return success;
+                } catch (Exception e) {
+                    failedCount.incrementAndGet();
+                    logger.error("批量预加载历史数据失败 - 证券: {}, 市场: {}, K线类型: {}", symbols, market, kType, e);
+                    return false;
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            logger.warn("预加载队列已满，丢弃任务 - 证券: {}, 市场: {}, K线类型: {}", symbols, market, kType);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * 提交单个(证券, K线周期)区间的预加载任务
+     *
+     * @return 任务结果，true表示区间已全部下载
+     */
+    public CompletableFuture<Boolean> prefetch(String symbol, String market, KType kType,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        submittedCount.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    boolean success = dataService.prefetchHistoricalData(symbol, market, startTime, endTime, kType);
+                    (success ? completedCount : failedCount).incrementAndGet();
+                    return success;
+                } catch (Exception e) {
+                    failedCount.incrementAndGet();
+                    logger.error("预加载历史数据失败 - 股票: {}, 市场: {}, K线类型: {}", symbol, market, kType, e);
+                    return false;
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            logger.warn("预加载队列已满，丢弃任务 - 股票: {}, 市场: {}, K线类型: {}", symbol, market, kType);
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * 获取预加载进度统计
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("threads", threads);
+        status.put("active", executor.getActiveCount());
+        status.put("queued", executor.getQueue().size());
+        status.put("submitted", submittedCount.get());
+        status.put("completed", completedCount.get());
+        status.put("failed", failedCount.get());
+        status.put("rejected", rejectedCount.get());
+        status.put("rateLimiter", rateLimiter.getStats());
+        return status;
+    }
+}
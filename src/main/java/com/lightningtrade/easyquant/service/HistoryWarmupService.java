@@ -0,0 +1,128 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.config.TradingConfig;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 历史数据预热服务
+ * 应用就绪后在后台按优先级把交易配置中各标的最近一段历史补齐到本地，之后定期增量刷新。
+ * 预热任务提交到预加载线程池执行，不阻塞应用启动，也不占用HTTP请求线程。
+ *
+ * 配置项：
+ * - data.warmup.enabled：是否启用，默认启用
+ * - data.warmup.lookback-days：预热的历史天数，默认365天
+ * - data.warmup.k-types：预热的K线类型，默认day；各市场策略使用的K线类型会自动加入
+ * - data.warmup.refresh-interval-ms：增量刷新间隔，默认30分钟
+ */
+@Service
+public class HistoryWarmupService {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryWarmupService.class);
+
+    @Autowired
+    private HistoryPrefetchService prefetchService;
+
+    @Autowired
+    private TradingConfig tradingConfig;
+
+    @Autowired
+    private StrategyWarmupService strategyWarmupService;
+
+    @Value("${data.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${data.warmup.lookback-days:365}")
+    private int lookbackDays;
+
+    @Value("${data.warmup.k-types:day}")
+    private List<String> kTypes;
+
+    // 上一轮预热尚未完成时不重复提交
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 应用就绪后开始预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // 首轮下载完成后再预热一次策略，补推新下载的K线
+        warmup("启动预热").whenComplete((result, e) -> strategyWarmupService.primeAll());
+    }
+
+    /**
+     * 定期增量刷新，只下载上次之后新增的K线
+     */
+    @Scheduled(initialDelayString = "${data.warmup.refresh-interval-ms:1800000}",
+            fixedDelayString = "${data.warmup.refresh-interval-ms:1800000}")
+    public void refresh() {
+        warmup("增量刷新");
+    }
+
+    /**
+     * @return 本轮预热完成时结束的Future，未执行时为已完成的Future
+     */
+    private CompletableFuture<Void> warmup(String stage) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running.compareAndSet(false, true)) {
+            logger.info("上一轮预热尚未完成，跳过{}", stage);
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            LocalDateTime endTime = LocalDateTime.now();
+            LocalDateTime startTime = endTime.toLocalDate().minusDays(lookbackDays).atStartOfDay();
+            List<KType> types = resolveKTypes();
+            long begin = System.currentTimeMillis();
+            logger.info("开始{} - K线类型: {}, 区间: [{}, {}]", stage, types, startTime, endTime);
+            return prefetchService.prefetchUniverse(types, startTime, endTime).whenComplete((result, e) -> {
+                running.set(false);
+                logger.info("{}完成 - 耗时: {}ms", stage, System.currentTimeMillis() - begin);
+            });
+        } catch (Exception e) {
+            running.set(false);
+            logger.error("{}失败", stage, e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    // 配置的K线类型加上各启用市场策略使用的K线类型
+    private List<KType> resolveKTypes() {
+        List<KType> types = new ArrayList<>();
+        for (String name : kTypes) {
+            addKType(types, name);
+        }
+        if (tradingConfig.getMarkets() != null) {
+            for (TradingConfig.Market market : tradingConfig.getMarkets().values()) {
+                if (market.isEnabled() && market.getStrategy() != null) {
+                    addKType(types, market.getStrategy().getKType());
+                }
+            }
+        }
+        return types;
+    }
+
+    private void addKType(List<KType> types, String name) {
+        try {
+            KType kType = KType.valueOf(name.trim());
+            if (!types.contains(kType)) {
+                types.add(kType);
+            }
+        } catch (Exception e) {
+            logger.warn("忽略无效的预热K线类型: {}", name);
+        }
+    }
+}
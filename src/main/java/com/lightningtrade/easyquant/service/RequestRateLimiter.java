@@ -0,0 +1,89 @@
+package com.lightningtrade.easyquant.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行情API全局限流器（令牌桶）
+ * 所有行情请求在发出前获取一个令牌，令牌按固定速率补充，桶容量决定允许的突发请求数。
+ * 多个线程共享同一个令牌桶，保证总请求速率不超过Tiger的接口配额。
+ */
+@Component
+public class RequestRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestRateLimiter.class);
+
+    // 每分钟允许的请求数
+    @Value("${data.rate-limit.requests-per-minute:60}")
+    private int requestsPerMinute;
+
+    // 令牌桶容量（允许的突发请求数）
+    @Value("${data.rate-limit.burst:10}")
+    private int burst;
+
+    // 补充一个令牌所需的纳秒数
+    private long nanosPerPermit;
+
+    // 当前可用令牌数
+    private double permits;
+
+    // 上次补充令牌的时间
+    private long lastRefillNanos;
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong waitedMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        nanosPerPermit = TimeUnit.MINUTES.toNanos(1) / Math.max(requestsPerMinute, 1);
+        burst = Math.max(burst, 1);
+        permits = burst;
+        lastRefillNanos = System.nanoTime();
+        logger.info("行情请求限流 - 每分钟请求数: {}, 突发容量: {}", requestsPerMinute, burst);
+    }
+
+    /**
+     * 获取一个令牌，令牌不足时阻塞等待
+     *
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            waitedMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        acquiredCount.incrementAndGet();
+    }
+
+    /**
+     * 预占一个令牌，返回需要等待的纳秒数
+     * 令牌不足时允许透支，透支部分由后续请求按顺序排队等待
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (double) (now - lastRefillNanos) / nanosPerPermit);
+        lastRefillNanos = now;
+        permits -= 1;
+        return permits >= 0 ? 0 : (long) (-permits * nanosPerPermit);
+    }
+
+    /**
+     * 获取限流统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requestsPerMinute", requestsPerMinute);
+        stats.put("burst", burst);
+        stats.put("acquired", acquiredCount.get());
+        stats.put("waitedMillis", waitedMillis.get());
+        return stats;
+    }
+}
@@ -0,0 +1,113 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.strategy.TradingStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 策略状态快照服务
+ * 每个交易标的的策略状态（最近K线和指标状态）保存为一个快照文件：
+ * {trading.snapshot.path}/{market}/{symbol}.snap
+ *
+ * 交易服务定期和关闭时保存快照，启动时恢复，重启后不需要重新预热即可继续产生信号。
+ * 保存时先写临时文件再原子移动，不会留下写了一半的快照。
+ *
+ * 配置项：
+ * - trading.snapshot.enabled：是否启用快照，默认启用
+ * - trading.snapshot.path：快照目录，默认 ./data/snapshots
+ * - trading.snapshot.interval-ms：定期保存间隔，默认5分钟
+ */
+@Service
+public class StrategySnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(StrategySnapshotService.class);
+
+    private static final String FILE_SUFFIX = ".snap";
+
+    @Value("${trading.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trading.snapshot.path:./data/snapshots}")
+    private String basePath;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否存在该标的的快照
+     */
+    public boolean exists(String market, String symbol) {
+        return enabled && Files.isRegularFile(file(market, symbol));
+    }
+
+    /**
+     * 保存策略状态
+     * 保存期间持有策略实例的锁，与行情处理互斥
+     *
+     * @return 是否保存成功
+     */
+    public boolean save(String market, String symbol, TradingStrategy strategy) {
+        if (!enabled) {
+            return false;
+        }
+        Path target = file(market, symbol);
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tmp));
+                    DataOutputStream out = new DataOutputStream(output)) {
+                synchronized (strategy) {
+                    strategy.saveState(out);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("保存策略快照 - 市场: {}, 股票: {}", market, symbol);
+            return true;
+        } catch (Exception e) {
+            logger.error("保存策略快照失败 - 市场: {}, 股票: {}", market, symbol, e);
+            return false;
+        }
+    }
+
+    /**
+     * 从快照恢复策略状态
+     * 失败时策略实例可能只恢复了一部分，调用方应改用新创建的实例
+     *
+     * @return 是否恢复成功
+     */
+    public boolean restore(String market, String symbol, TradingStrategy strategy) {
+        if (!exists(market, symbol)) {
+            return false;
+        }
+        Path source = file(market, symbol);
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(source));
+                DataInputStream in = new DataInputStream(input)) {
+            synchronized (strategy) {
+                strategy.restoreState(in);
+            }
+            logger.info("恢复策略快照 - 市场: {}, 股票: {}", market, symbol);
+            return true;
+        } catch (Exception e) {
+            logger.warn("恢复策略快照失败，将重新计算策略状态 - 市场: {}, 股票: {}, 原因: {}", market, symbol,
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    private Path file(String market, String symbol) {
+        return Paths.get(basePath, market, symbol + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,98 @@
+package com.lightningtrade.easyquant.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 策略预热服务
+ * 应用就绪后从本地K线读取各交易品种最近的历史，在后台并行推送给策略，只更新指标状态、不下单，
+ * 策略启动后几秒内即可产生信号，不必等待实时K线累积到回看周期。
+ * 已从快照恢复的策略只补推快照之后的K线；历史数据预热的首轮下载完成后会再执行一次，补上新下载的K线。
+ *
+ * 配置项：
+ * - trading.warmup.enabled：是否启用，默认启用
+ * - trading.warmup.min-bars：每个品种至少推送的K线数量，默认200（不少于策略预热需要的K线数量）
+ * - trading.warmup.max-days：最多向前读取的天数，默认730天
+ * - trading.warmup.threads：预热线程数，默认4
+ */
+@Service
+public class StrategyWarmupService {
+    private static final Logger logger = LoggerFactory.getLogger(StrategyWarmupService.class);
+
+    @Autowired
+    private List<AbstractTradingService> tradingServices;
+
+    @Value("${trading.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trading.warmup.min-bars:200}")
+    private int minBars;
+
+    @Value("${trading.warmup.max-days:730}")
+    private int maxDays;
+
+    @Value("${trading.warmup.threads:4}")
+    private int threads;
+
+    // 上一轮预热尚未完成时不重复执行
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 应用就绪后开始预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        primeAll();
+    }
+
+    /**
+     * 预热所有启用市场的策略
+     *
+     * @return 所有品种预热完成时结束的Future
+     */
+    public CompletableFuture<Void> primeAll() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "strategy-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long begin = System.currentTimeMillis();
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (AbstractTradingService service : tradingServices) {
+                if (service.isEnabled()) {
+                    futures.addAll(service.primeStrategies(executor, minBars, maxDays));
+                }
+            }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+                executor.shutdown();
+                running.set(false);
+                long ready = futures.stream().filter(future -> future.join()).count();
+                logger.info("策略预热完成 - 品种数量: {}, 可产生信号: {}, 耗时: {}ms",
+                        futures.size(), ready, System.currentTimeMillis() - begin);
+            });
+        } catch (Exception e) {
+            executor.shutdown();
+            running.set(false);
+            logger.error("策略预热失败", e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
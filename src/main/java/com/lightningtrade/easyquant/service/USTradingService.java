@@ -1,15 +1,13 @@
 package com.lightningtrade.easyquant.service;
 
 import com.lightningtrade.easyquant.config.TradingConfig;
+import com.lightningtrade.easyquant.model.Signal;
 import com.lightningtrade.easyquant.strategy.TradingStrategy;
-import com.lightningtrade.easyquant.backtest.BacktestResult;
-import com.lightningtrade.easyquant.backtest.BacktestTradeRecord;
 import com.tigerbrokers.stock.openapi.client.struct.enums.ActionType;
 import com.tigerbrokers.stock.openapi.client.struct.enums.Currency;
 import com.tigerbrokers.stock.openapi.client.struct.enums.SecType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -32,6 +30,11 @@ public class USTradingService extends AbstractTradingService {
                 && tradingConfig.getMarkets().get(MARKET).isEnabled();
     }
 
+    @Override
+    public String getMarket() {
+        return MARKET;
+    }
+
     @Override
     public List<TradingConfig.Symbol> getSymbols() {
         if (!isEnabled()) {
@@ -61,17 +64,19 @@ public class USTradingService extends AbstractTradingService {
             return;
         }
 
-        BacktestResult result = strategy.backtest(symbol, List.of(data), 1000000, KType.min1);
-        List<BacktestTradeRecord> trades = result.getTrades();
-        if (trades == null || trades.isEmpty()) {
+        // 同一品种的行情串行处理，不同品种互不阻塞
+        Signal signal;
+        synchronized (strategy) {
+            signal = strategy.onBar(data);
+        }
+        if (signal == Signal.NONE) {
             logger.debug("无交易信号 - 股票: {}", symbol);
             return;
         }
 
-        BacktestTradeRecord lastTrade = trades.get(trades.size() - 1);
         int position = positions.getOrDefault(symbol, 0);
         logger.info("策略执行结果 - 股票: {}, 信号: {}, 当前持仓: {}",
-                symbol, lastTrade.getType(), position);
+                symbol, signal, position);
 
         // 获取交易配置
         TradingConfig.Symbol symbolConfig = tradingConfig.getMarkets().get(MARKET)
@@ -83,7 +88,7 @@ public class USTradingService extends AbstractTradingService {
         }
 
         // 根据信号执行交易
-        if ("BUY".equals(lastTrade.getType())) {
+        if (signal == Signal.BUY) {
             if (position <= 0) {
                 double price = data.getClose();
                 int lotSize = symbolConfig.getLotSize();
@@ -97,7 +102,7 @@ public class USTradingService extends AbstractTradingService {
                             symbol, orderId, lotSize, "BUY");
                 }
             }
-        } else if ("SELL".equals(lastTrade.getType())) {
+        } else if (signal == Signal.SELL) {
             if (position > 0) {
                 Long orderId = tradeExecutor.placeMarketOrder(
                         symbol, position, SecType.STK, Currency.USD, ActionType.SELL);
@@ -0,0 +1,122 @@
+package com.lightningtrade.easyquant.store;
+
+import java.util.Arrays;
+
+/**
+ * 基于原始类型数组的K线列存储
+ * 按时间顺序追加写入，容量不足时自动扩容
+ */
+public class BarArrays implements BarColumns {
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] time;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+
+    public BarArrays() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BarArrays(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.time = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+    }
+
+    /**
+     * 追加一根K线
+     */
+    public void add(long t, double o, double h, double l, double c, double v) {
+        if (size == time.length) {
+            grow(size + 1);
+        }
+        time[size] = t;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    /**
+     * 追加另一段K线中[from, to)区间的数据
+     */
+    public void addAll(BarColumns bars, int from, int to) {
+        if (to <= from) {
+            return;
+        }
+        if (size + (to - from) > time.length) {
+            grow(size + (to - from));
+        }
+        for (int i = from; i < to; i++) {
+            time[size] = bars.getTime(i);
+            open[size] = bars.getOpen(i);
+            high[size] = bars.getHigh(i);
+            low[size] = bars.getLow(i);
+            close[size] = bars.getClose(i);
+            volume[size] = bars.getVolume(i);
+            size++;
+        }
+    }
+
+    /**
+     * 清空数据，保留已分配的数组
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, time.length + (time.length >> 1));
+        time = Arrays.copyOf(time, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTime(int i) {
+        return time[i];
+    }
+
+    @Override
+    public double getOpen(int i) {
+        return open[i];
+    }
+
+    @Override
+    public double getHigh(int i) {
+        return high[i];
+    }
+
+    @Override
+    public double getLow(int i) {
+        return low[i];
+    }
+
+    @Override
+    public double getClose(int i) {
+        return close[i];
+    }
+
+    @Override
+    public double getVolume(int i) {
+        return volume[i];
+    }
+}
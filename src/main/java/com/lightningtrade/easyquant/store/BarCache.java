@@ -0,0 +1,201 @@
+package com.lightningtrade.easyquant.store;
+
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 内存K线缓存
+ * 按(股票, K线类型)缓存若干段连续时间区间的K线，每段以原始类型数组存放：
+ * - 新放入的区间与相交或相邻的已有区间合并为一段
+ * - 查询区间落在某一段内时直接返回该段上的零拷贝子视图
+ * - 总字节数超过上限时按(股票, K线类型)的最近最少使用顺序淘汰
+ *
+ * 配置项：
+ * - data.cache.enabled：是否启用，默认启用
+ * - data.cache.max-bytes：缓存上限字节数，默认256MB
+ */
+@Component
+public class BarCache {
+    private static final Logger logger = LoggerFactory.getLogger(BarCache.class);
+
+    // 每根K线占用的字节数（1个long + 5个double）
+    private static final int BYTES_PER_BAR = 48;
+
+    @Value("${data.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${data.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // 按访问顺序排列，最久未访问的在前
+    private final LinkedHashMap<String, TreeMap<Long, Segment>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param startTime 开始时间（毫秒时间戳，包含）
+     * @param endTime   结束时间（毫秒时间戳，包含）
+     * @return 区间内的K线，缓存未完整覆盖该区间时返回null
+     */
+    public synchronized BarColumns get(String symbol, KType kType, long startTime, long endTime) {
+        TreeMap<Long, Segment> segments = enabled ? entries.get(key(symbol, kType)) : null;
+        Map.Entry<Long, Segment> floor = segments != null ? segments.floorEntry(startTime) : null;
+        if (floor == null || floor.getValue().end < endTime) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        BarArrays bars = floor.getValue().bars;
+        return bars.subRange(bars.lowerBound(startTime), bars.lowerBound(endTime + 1));
+    }
+
+    /**
+     * 放入一段K线，与相交或相邻的已有区间合并
+     *
+     * @param startTime 区间开始时间（毫秒时间戳，包含）
+     * @param endTime   区间结束时间（毫秒时间戳，包含）
+     * @param bars      区间内按时间升序的全部K线
+     */
+    public synchronized void put(String symbol, KType kType, long startTime, long endTime, BarColumns bars) {
+        if (!enabled || endTime < startTime) {
+            return;
+        }
+        String key = key(symbol, kType);
+        TreeMap<Long, Segment> segments = entries.computeIfAbsent(key, k -> new TreeMap<>());
+
+        // 找出所有相交或相邻的区间
+        List<Segment> touched = new ArrayList<>();
+        Map.Entry<Long, Segment> floor = segments.floorEntry(startTime);
+        Long from = floor != null && floor.getValue().end >= startTime - 1 ? floor.getKey() : startTime;
+        for (Segment segment : segments.subMap(from, true, endTime + 1, true).values()) {
+            touched.add(segment);
+        }
+
+        long mergedStart = touched.isEmpty() ? startTime : Math.min(startTime, touched.get(0).start);
+        long mergedEnd = touched.isEmpty() ? endTime : Math.max(endTime, touched.get(touched.size() - 1).end);
+        BarArrays merged = new BarArrays(bars.size() + touched.stream().mapToInt(s -> s.bars.size()).sum());
+        if (!touched.isEmpty()) {
+            BarArrays head = touched.get(0).bars;
+            merged.addAll(head, 0, head.lowerBound(startTime));
+        }
+        merged.addAll(bars, 0, bars.size());
+        if (!touched.isEmpty()) {
+            BarArrays tail = touched.get(touched.size() - 1).bars;
+            merged.addAll(tail, tail.lowerBound(endTime + 1), tail.size());
+        }
+
+        for (Segment segment : touched) {
+            segments.remove(segment.start);
+            totalBytes -= segment.bytes();
+        }
+        Segment segment = new Segment(mergedStart, mergedEnd, merged);
+        segments.put(mergedStart, segment);
+        totalBytes += segment.bytes();
+
+        evict(key);
+    }
+
+    /**
+     * 丢弃与指定区间相交的缓存（数据被重新下载后调用）
+     */
+    public synchronized void invalidate(String symbol, KType kType, long startTime, long endTime) {
+        TreeMap<Long, Segment> segments = entries.get(key(symbol, kType));
+        if (segments == null) {
+            return;
+        }
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment.start <= endTime && segment.end >= startTime) {
+                totalBytes -= segment.bytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxBytes", maxBytes);
+        stats.put("bytes", totalBytes);
+        stats.put("entries", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictionCount);
+        return stats;
+    }
+
+    // 超过上限时从最久未访问的(股票, K线类型)开始淘汰，刚放入的一项最后淘汰
+    private void evict(String currentKey) {
+        Iterator<Map.Entry<String, TreeMap<Long, Segment>>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, TreeMap<Long, Segment>> entry = iterator.next();
+            if (!entry.getKey().equals(currentKey)) {
+                remove(iterator, entry);
+            }
+        }
+        if (totalBytes > maxBytes && entries.containsKey(currentKey)) {
+            for (Segment segment : entries.remove(currentKey).values()) {
+                totalBytes -= segment.bytes();
+            }
+            evictionCount++;
+            logger.debug("淘汰K线缓存 - 键: {}, 当前字节数: {}", currentKey, totalBytes);
+        }
+    }
+
+    private void remove(Iterator<Map.Entry<String, TreeMap<Long, Segment>>> iterator,
+            Map.Entry<String, TreeMap<Long, Segment>> entry) {
+        for (Segment segment : entry.getValue().values()) {
+            totalBytes -= segment.bytes();
+        }
+        iterator.remove();
+        evictionCount++;
+        logger.debug("淘汰K线缓存 - 键: {}, 当前字节数: {}", entry.getKey(), totalBytes);
+    }
+
+    private static String key(String symbol, KType kType) {
+        return symbol + "/" + kType.name();
+    }
+
+    /**
+     * 一段连续区间的K线
+     */
+    private static final class Segment {
+        private final long start;
+        private final long end;
+        private final BarArrays bars;
+
+        private Segment(long start, long end, BarArrays bars) {
+            this.start = start;
+            this.end = end;
+            this.bars = bars;
+        }
+
+        private long bytes() {
+            return (long) bars.size() * BYTES_PER_BAR;
+        }
+    }
+}
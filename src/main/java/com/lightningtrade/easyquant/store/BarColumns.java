@@ -0,0 +1,125 @@
+package com.lightningtrade.easyquant.store;
+
+import com.lightningtrade.easyquant.model.MarketData;
+
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 列式K线数据视图
+ * 以原始类型按列访问一段按时间升序排列的K线，时间为毫秒级时间戳
+ *
+ * 实现类：
+ * - MappedBarSlice：内存映射文件上的零拷贝切片
+ * - BarArrays：堆内原始类型数组
+ * - BarColumnsSlice：另一段K线上的子区间
+ * - BarRingBuffer：只保留最近若干根K线的定长环形缓冲区
+ */
+public interface BarColumns {
+
+    /**
+     * K线数量
+     */
+    int size();
+
+    /**
+     * 第i根K线的时间（毫秒时间戳）
+     */
+    long getTime(int i);
+
+    double getOpen(int i);
+
+    double getHigh(int i);
+
+    double getLow(int i);
+
+    double getClose(int i);
+
+    double getVolume(int i);
+
+    /**
+     * [from, to)下标区间上的零拷贝子视图
+     */
+    default BarColumns subRange(int from, int to) {
+        return new BarColumnsSlice(this, from, Math.max(to - from, 0));
+    }
+
+    /**
+     * 二分查找第一根时间不早于指定时间的K线下标
+     *
+     * @param time 毫秒时间戳
+     * @return 下标，所有K线都早于该时间时返回size()
+     */
+    default int lowerBound(long time) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 包装为MarketData列表
+     * 列表不复制数据，只在访问某个元素时才创建对应的MarketData对象
+     *
+     * @param symbol 股票代码
+     * @param zoneId 所属市场的交易所时区
+     * @return 只读的MarketData列表
+     */
+    default List<MarketData> asMarketDataList(String symbol, ZoneId zoneId) {
+        return new MarketDataListView(this, symbol, zoneId);
+    }
+
+    /**
+     * BarColumns的MarketData只读视图
+     */
+    final class MarketDataListView extends AbstractList<MarketData> implements RandomAccess {
+        private final BarColumns bars;
+        private final String symbol;
+        private final ZoneId zoneId;
+
+        MarketDataListView(BarColumns bars, String symbol, ZoneId zoneId) {
+            this.bars = bars;
+            this.symbol = symbol;
+            this.zoneId = zoneId;
+        }
+
+        @Override
+        public MarketData get(int index) {
+            MarketData marketData = new MarketData();
+            marketData.setSymbol(symbol);
+            marketData.setTimestamp(bars.getTime(index));
+            marketData.setZoneId(zoneId);
+            marketData.setOpen(bars.getOpen(index));
+            marketData.setHigh(bars.getHigh(index));
+            marketData.setLow(bars.getLow(index));
+            marketData.setClose(bars.getClose(index));
+            marketData.setVolume((long) bars.getVolume(index));
+            return marketData;
+        }
+
+        @Override
+        public int size() {
+            return bars.size();
+        }
+
+        /**
+         * 底层的列式K线
+         */
+        public BarColumns getBars() {
+            return bars;
+        }
+
+        public ZoneId getZoneId() {
+            return zoneId;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.lightningtrade.easyquant.store;
+
+/**
+ * 另一段K线上的连续子区间视图
+ * 只记录偏移和长度，不复制数据
+ */
+class BarColumnsSlice implements BarColumns {
+    private final BarColumns base;
+    private final int offset;
+    private final int length;
+
+    BarColumnsSlice(BarColumns base, int offset, int length) {
+        this.base = base;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public long getTime(int i) {
+        return base.getTime(offset + i);
+    }
+
+    @Override
+    public double getOpen(int i) {
+        return base.getOpen(offset + i);
+    }
+
+    @Override
+    public double getHigh(int i) {
+        return base.getHigh(offset + i);
+    }
+
+    @Override
+    public double getLow(int i) {
+        return base.getLow(offset + i);
+    }
+
+    @Override
+    public double getClose(int i) {
+        return base.getClose(offset + i);
+    }
+
+    @Override
+    public double getVolume(int i) {
+        return base.getVolume(offset + i);
+    }
+}
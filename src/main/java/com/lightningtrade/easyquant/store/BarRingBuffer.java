@@ -0,0 +1,112 @@
+package com.lightningtrade.easyquant.store;
+
+/**
+ * 定长环形K线缓冲区
+ * 只保留最近capacity根K线，写满后新K线覆盖最早的K线，内存占用不随运行时长增长。
+ * 下标0为保留的最早一根K线，size() - 1为最新一根。
+ */
+public class BarRingBuffer implements BarColumns {
+    private final long[] time;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    // 最早一根K线所在的数组位置
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity 保留的K线数量
+     */
+    public BarRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.time = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+    }
+
+    /**
+     * 追加一根K线，缓冲区已满时覆盖最早的K线
+     */
+    public void add(long t, double o, double h, double l, double c, double v) {
+        int slot;
+        if (size == time.length) {
+            slot = head;
+            head = head + 1 == time.length ? 0 : head + 1;
+        } else {
+            slot = physical(size);
+            size++;
+        }
+        time[slot] = t;
+        open[slot] = o;
+        high[slot] = h;
+        low[slot] = l;
+        close[slot] = c;
+        volume[slot] = v;
+    }
+
+    /**
+     * 缓冲区是否已写满
+     */
+    public boolean isFull() {
+        return size == time.length;
+    }
+
+    public int capacity() {
+        return time.length;
+    }
+
+    /**
+     * 清空数据，保留已分配的数组
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int physical(int i) {
+        int slot = head + i;
+        return slot >= time.length ? slot - time.length : slot;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTime(int i) {
+        return time[physical(i)];
+    }
+
+    @Override
+    public double getOpen(int i) {
+        return open[physical(i)];
+    }
+
+    @Override
+    public double getHigh(int i) {
+        return high[physical(i)];
+    }
+
+    @Override
+    public double getLow(int i) {
+        return low[physical(i)];
+    }
+
+    @Override
+    public double getClose(int i) {
+        return close[physical(i)];
+    }
+
+    @Override
+    public double getVolume(int i) {
+        return volume[physical(i)];
+    }
+}
@@ -0,0 +1,185 @@
+package com.lightningtrade.easyquant.store;
+
+import com.lightningtrade.easyquant.archive.BarArchiveReader;
+import com.lightningtrade.easyquant.archive.BarArchiveWriter;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 冷数据分段存储
+ * 较早的K线按(股票, K线类型, 月份)压缩为不可变的分段文件，文件格式与K线归档相同：
+ * {data.tiering.path}/{symbol}/{kType}/{yyyyMM}.ltba
+ *
+ * 月份按UTC划分。分段文件只会被整体替换（写临时文件后原子移动），读取时不需要加锁。
+ *
+ * 配置项：
+ * - data.tiering.path：分段文件目录，默认 ./data/segments
+ */
+@Component
+public class BarSegmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(BarSegmentStore.class);
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String FILE_SUFFIX = ".ltba";
+
+    @Value("${data.tiering.path:./data/segments}")
+    private String basePath;
+
+    // 每个(股票, K线类型)已有分段的月份，首次访问时扫描目录；目录不存在时不缓存
+    private final ConcurrentHashMap<String, NavigableSet<YearMonth>> months = new ConcurrentHashMap<>();
+
+    /**
+     * 时间所在的分段月份
+     */
+    public static YearMonth monthOf(long epochMilli) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMilli).atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * 分段月份的开始时间（毫秒时间戳，包含）
+     */
+    public static long monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 分段月份的结束时间（毫秒时间戳，包含）
+     */
+    public static long monthEnd(YearMonth month) {
+        return monthStart(month.plusMonths(1)) - 1;
+    }
+
+    /**
+     * 区间内是否存在分段文件
+     */
+    public boolean hasSegments(String symbol, KType kType, long startTime, long endTime) {
+        NavigableSet<YearMonth> existing = months(symbol, kType);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        YearMonth first = existing.ceiling(monthOf(startTime));
+        return first != null && !first.isAfter(monthOf(endTime));
+    }
+
+    /**
+     * 读取区间内的冷数据，按时间升序追加到out
+     *
+     * @throws UncheckedIOException 分段文件读取失败
+     */
+    public void read(String symbol, KType kType, long startTime, long endTime, BarArrays out) {
+        for (YearMonth month : months(symbol, kType).subSet(monthOf(startTime), true, monthOf(endTime), true)) {
+            try (InputStream input = Files.newInputStream(file(symbol, kType, month));
+                    BarArchiveReader reader = new BarArchiveReader(input)) {
+                while (reader.readBlock(out, startTime, endTime)) {
+                    // 逐块读取直到文件结束
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取分段文件失败: " + symbol + " " + kType + " " + month, e);
+            }
+        }
+    }
+
+    /**
+     * 读取一个月的全部冷数据，没有分段文件时返回空
+     */
+    public BarArrays readMonth(String symbol, KType kType, YearMonth month) {
+        BarArrays bars = new BarArrays();
+        if (months(symbol, kType).contains(month)) {
+            read(symbol, kType, monthStart(month), monthEnd(month), bars);
+        }
+        return bars;
+    }
+
+    /**
+     * 写入（或整体替换）一个月的分段文件
+     *
+     * @param bars 该月按时间升序的全部K线
+     */
+    public void write(String symbol, KType kType, YearMonth month, BarColumns bars) throws IOException {
+        Path target = file(symbol, kType, month);
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream output = Files.newOutputStream(tmp);
+                BarArchiveWriter writer = new BarArchiveWriter(output, symbol, kType.name(), monthStart(month),
+                        monthEnd(month))) {
+            writer.write(bars);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        months(symbol, kType).add(month);
+        logger.debug("写入分段文件 - 股票: {}, K线类型: {}, 月份: {}, 数据点数: {}", symbol, kType, month, bars.size());
+    }
+
+    /**
+     * 删除一个月的分段文件
+     */
+    public void delete(String symbol, KType kType, YearMonth month) throws IOException {
+        Files.deleteIfExists(file(symbol, kType, month));
+        NavigableSet<YearMonth> existing = months.get(symbol + "/" + kType.name());
+        if (existing != null) {
+            existing.remove(month);
+        }
+        logger.debug("删除分段文件 - 股票: {}, K线类型: {}, 月份: {}", symbol, kType, month);
+    }
+
+    /**
+     * 分段文件总数
+     */
+    public int getSegmentCount() {
+        return months.values().stream().mapToInt(NavigableSet::size).sum();
+    }
+
+    private NavigableSet<YearMonth> months(String symbol, KType kType) {
+        String key = symbol + "/" + kType.name();
+        NavigableSet<YearMonth> cached = months.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Path dir = dir(symbol, kType);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyNavigableSet();
+        }
+        return months.computeIfAbsent(key, k -> scan(dir));
+    }
+
+    private NavigableSet<YearMonth> scan(Path dir) {
+        NavigableSet<YearMonth> result = new ConcurrentSkipListSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                result.add(YearMonth.parse(name.substring(0, name.length() - FILE_SUFFIX.length()), MONTH_FORMAT));
+            }
+        } catch (Exception e) {
+            logger.error("扫描分段文件目录失败 - 目录: {}", dir, e);
+        }
+        return result;
+    }
+
+    private Path dir(String symbol, KType kType) {
+        return Paths.get(basePath, SymbolPaths.check(symbol), kType.name());
+    }
+
+    private Path file(String symbol, KType kType, YearMonth month) {
+        return dir(symbol, kType).resolve(MONTH_FORMAT.format(month) + FILE_SUFFIX);
+    }
+}
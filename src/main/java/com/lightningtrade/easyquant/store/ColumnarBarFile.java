@@ -0,0 +1,288 @@
+package com.lightningtrade.easyquant.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个(股票, K线类型)的列式K线文件
+ *
+ * 文件布局（小端序）：
+ * - 0~63字节：文件头（魔数、版本、K线数量、容量）
+ * - 之后依次为time、open、high、low、close、volume六列，每列容量*8字节
+ *
+ * 文件通过MappedByteBuffer整体映射，读取时返回零拷贝切片。
+ * 按时间顺序追加的数据直接写入映射区；容量不足或需要插入中间数据时，
+ * 合并后写入临时文件并原子替换，已发出的切片仍指向旧映射，不受影响。
+ */
+class ColumnarBarFile implements Closeable {
+    private static final int MAGIC = 0x4C544253; // "LTBS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COLUMN_COUNT = 6;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / (COLUMN_COUNT * 8);
+
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private LongBuffer time;
+    private DoubleBuffer open;
+    private DoubleBuffer high;
+    private DoubleBuffer low;
+    private DoubleBuffer close;
+    private DoubleBuffer volume;
+    private int count;
+    private int capacity;
+
+    private ColumnarBarFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 打开列文件，文件不存在时创建空文件
+     */
+    static ColumnarBarFile open(Path path) throws IOException {
+        ColumnarBarFile file = new ColumnarBarFile(path);
+        if (!Files.exists(path)) {
+            Files.createDirectories(path.getParent());
+            file.rewrite(new BarArrays(0), MIN_CAPACITY);
+        }
+        file.map();
+        return file;
+    }
+
+    /**
+     * 查询[startTime, endTime]区间内的K线
+     *
+     * @return 零拷贝切片
+     */
+    MappedBarSlice slice(long startTime, long endTime) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(startTime);
+            int to = lowerBound(endTime == Long.MAX_VALUE ? endTime : endTime + 1);
+            return new MappedBarSlice(time, open, high, low, close, volume, from, Math.max(to - from, 0));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 合并写入一批按时间升序的K线，时间相同的K线以新数据为准
+     *
+     * @return 文件已关闭时返回false，调用方需重新打开后再写
+     */
+    boolean merge(BarColumns bars) throws IOException {
+        if (bars.size() == 0) {
+            return true;
+        }
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return false;
+            }
+            boolean appendOnly = count == 0 || bars.getTime(0) > time.get(count - 1);
+            if (appendOnly && count + bars.size() <= capacity) {
+                append(bars);
+                return true;
+            }
+
+            BarArrays merged = appendOnly ? copyExisting(count + bars.size()) : mergeSorted(bars);
+            if (appendOnly) {
+                merged.addAll(bars, 0, bars.size());
+            }
+            rewrite(merged, nextCapacity(merged.size()));
+            map();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除[startTime, endTime]区间内的K线
+     * 总是写入新文件后替换，已发出的切片仍指向旧映射，不受影响
+     *
+     * @return 文件已关闭时返回false，调用方需重新打开后再删除
+     */
+    boolean deleteRange(long startTime, long endTime) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return false;
+            }
+            int from = lowerBound(startTime);
+            int to = lowerBound(endTime == Long.MAX_VALUE ? endTime : endTime + 1);
+            if (from >= to) {
+                return true;
+            }
+            MappedBarSlice existing = new MappedBarSlice(time, open, high, low, close, volume, 0, count);
+            BarArrays remaining = new BarArrays(count - (to - from));
+            remaining.addAll(existing, 0, from);
+            remaining.addAll(existing, to, count);
+            rewrite(remaining, capacity);
+            map();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(BarColumns bars) {
+        int n = bars.size();
+        for (int i = 0; i < n; i++) {
+            int index = count + i;
+            time.put(index, bars.getTime(i));
+            open.put(index, bars.getOpen(i));
+            high.put(index, bars.getHigh(i));
+            low.put(index, bars.getLow(i));
+            close.put(index, bars.getClose(i));
+            volume.put(index, bars.getVolume(i));
+        }
+        count += n;
+        // 数据写完后再更新文件头中的数量
+        buffer.putLong(8, count);
+    }
+
+    private BarArrays copyExisting(int expectedSize) {
+        BarArrays existing = new BarArrays(expectedSize);
+        existing.addAll(new MappedBarSlice(time, open, high, low, close, volume, 0, count), 0, count);
+        return existing;
+    }
+
+    private BarArrays mergeSorted(BarColumns bars) {
+        MappedBarSlice existing = new MappedBarSlice(time, open, high, low, close, volume, 0, count);
+        BarArrays merged = new BarArrays(count + bars.size());
+        int i = 0;
+        int j = 0;
+        while (i < existing.size() || j < bars.size()) {
+            if (j >= bars.size() || (i < existing.size() && existing.getTime(i) < bars.getTime(j))) {
+                merged.addAll(existing, i, i + 1);
+                i++;
+            } else {
+                if (i < existing.size() && existing.getTime(i) == bars.getTime(j)) {
+                    i++;
+                }
+                merged.addAll(bars, j, j + 1);
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    private int nextCapacity(int required) {
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("列文件容量超出上限: " + path + ", 需要: " + required);
+        }
+        long doubled = Math.max((long) required * 2, MIN_CAPACITY);
+        return (int) Math.min(doubled, MAX_CAPACITY);
+    }
+
+    private void rewrite(BarColumns bars, int newCapacity) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+            target.order(ByteOrder.LITTLE_ENDIAN);
+            int n = bars.size();
+            for (int i = 0; i < n; i++) {
+                target.putLong(columnOffset(0, newCapacity) + i * 8, bars.getTime(i));
+                target.putDouble(columnOffset(1, newCapacity) + i * 8, bars.getOpen(i));
+                target.putDouble(columnOffset(2, newCapacity) + i * 8, bars.getHigh(i));
+                target.putDouble(columnOffset(3, newCapacity) + i * 8, bars.getLow(i));
+                target.putDouble(columnOffset(4, newCapacity) + i * 8, bars.getClose(i));
+                target.putDouble(columnOffset(5, newCapacity) + i * 8, bars.getVolume(i));
+            }
+            target.putInt(0, MAGIC);
+            target.putInt(4, VERSION);
+            target.putLong(8, n);
+            target.putLong(16, newCapacity);
+            target.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void map() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("无效的列文件: " + path);
+        }
+        count = (int) buffer.getLong(8);
+        capacity = (int) buffer.getLong(16);
+        time = column(0).asLongBuffer();
+        open = column(1).asDoubleBuffer();
+        high = column(2).asDoubleBuffer();
+        low = column(3).asDoubleBuffer();
+        close = column(4).asDoubleBuffer();
+        volume = column(5).asDoubleBuffer();
+    }
+
+    private ByteBuffer column(int index) {
+        int offset = columnOffset(index, capacity);
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + capacity * 8);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int lowerBound(long value) {
+        int lowIndex = 0;
+        int highIndex = count;
+        while (lowIndex < highIndex) {
+            int mid = (lowIndex + highIndex) >>> 1;
+            if (time.get(mid) < value) {
+                lowIndex = mid + 1;
+            } else {
+                highIndex = mid;
+            }
+        }
+        return lowIndex;
+    }
+
+    private static int columnOffset(int column, int capacity) {
+        return HEADER_SIZE + column * capacity * 8;
+    }
+
+    private static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) COLUMN_COUNT * capacity * 8;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
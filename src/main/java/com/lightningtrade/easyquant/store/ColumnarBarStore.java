@@ -0,0 +1,162 @@
+package com.lightningtrade.easyquant.store;
+
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 列式K线存储
+ * 每个(股票, K线类型)对应一个内存映射列文件，按时间二分查找区间，
+ * 读取结果是映射区上的零拷贝切片，不创建任何实体对象。
+ * 读取不存在的文件时直接返回空切片，只有写入才会创建文件；
+ * 打开的文件数超过上限时关闭最久未访问的文件，已发出的切片不受影响
+ *
+ * 配置项：
+ * - data.bar-store.enabled：是否启用，默认启用
+ * - data.bar-store.path：文件目录，默认 ./data/bars
+ * - data.bar-store.max-open-files：同时打开的文件数上限，默认256
+ */
+@Component
+public class ColumnarBarStore {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarBarStore.class);
+
+    @Value("${data.bar-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${data.bar-store.path:./data/bars}")
+    private String basePath;
+
+    @Value("${data.bar-store.max-open-files:256}")
+    private int maxOpenFiles;
+
+    /**
+     * 按访问顺序排列的已打开文件，所有访问都在files上同步
+     */
+    private final LinkedHashMap<String, ColumnarBarFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取指定时间范围内的K线
+     *
+     * @param symbol    股票代码
+     * @param kType     K线类型
+     * @param startTime 开始时间（毫秒时间戳，包含）
+     * @param endTime   结束时间（毫秒时间戳，包含）
+     * @return 零拷贝切片，无数据时返回空切片
+     */
+    public BarColumns read(String symbol, KType kType, long startTime, long endTime) {
+        ColumnarBarFile file = file(symbol, kType, false);
+        if (file == null) {
+            return new BarArrays(0);
+        }
+        return file.slice(startTime, endTime);
+    }
+
+    /**
+     * 写入一批按时间升序的K线，与已有数据按时间合并
+     */
+    public void write(String symbol, KType kType, BarColumns bars) {
+        if (bars.size() == 0) {
+            return;
+        }
+        try {
+            // 文件可能在取出后被淘汰关闭，此时重新打开再写
+            while (!file(symbol, kType, true).merge(bars)) {
+                logger.debug("列式存储文件已关闭，重新打开 - 股票: {}, K线类型: {}", symbol, kType);
+            }
+            logger.debug("写入列式存储 - 股票: {}, K线类型: {}, 数据点数: {}", symbol, kType, bars.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入列式存储失败: " + symbol + "/" + kType, e);
+        }
+    }
+
+    /**
+     * 删除指定时间范围内的K线，文件不存在时不做任何操作
+     */
+    public void deleteRange(String symbol, KType kType, long startTime, long endTime) {
+        try {
+            ColumnarBarFile file;
+            // 文件可能在取出后被淘汰关闭，此时重新打开再删
+            while ((file = file(symbol, kType, false)) != null && !file.deleteRange(startTime, endTime)) {
+                logger.debug("列式存储文件已关闭，重新打开 - 股票: {}, K线类型: {}", symbol, kType);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除列式存储数据失败: " + symbol + "/" + kType, e);
+        }
+    }
+
+    /**
+     * 取出已打开的文件，未打开时打开
+     * 淘汰和打开都在files锁内完成，同一文件不会同时存在两个打开的实例
+     *
+     * @param create 文件不存在时是否创建
+     * @return 文件不存在且不创建时返回null
+     */
+    private ColumnarBarFile file(String symbol, KType kType, boolean create) {
+        String key = symbol + "/" + kType.name();
+        synchronized (files) {
+            ColumnarBarFile file = files.get(key);
+            if (file != null) {
+                return file;
+            }
+            Path path = resolve(symbol, kType);
+            if (!create && !Files.exists(path)) {
+                return null;
+            }
+            try {
+                file = ColumnarBarFile.open(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("打开列式存储文件失败: " + key, e);
+            }
+            files.put(key, file);
+            evictIfNeeded();
+            return file;
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, ColumnarBarFile>> iterator = files.entrySet().iterator();
+        while (files.size() > Math.max(maxOpenFiles, 1) && iterator.hasNext()) {
+            Map.Entry<String, ColumnarBarFile> eldest = iterator.next();
+            iterator.remove();
+            closeQuietly(eldest.getValue());
+        }
+    }
+
+    private Path resolve(String symbol, KType kType) {
+        return Paths.get(basePath, SymbolPaths.check(symbol), kType.name() + ".bars");
+    }
+
+    private static void closeQuietly(ColumnarBarFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            logger.warn("关闭列式存储文件失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (files) {
+            for (ColumnarBarFile file : files.values()) {
+                closeQuietly(file);
+            }
+            files.clear();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.lightningtrade.easyquant.store;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * 内存映射列文件上的K线切片
+ * 直接读取映射缓冲区，不复制任何数据
+ */
+public class MappedBarSlice implements BarColumns {
+    private final LongBuffer time;
+    private final DoubleBuffer open;
+    private final DoubleBuffer high;
+    private final DoubleBuffer low;
+    private final DoubleBuffer close;
+    private final DoubleBuffer volume;
+    private final int offset;
+    private final int length;
+
+    MappedBarSlice(LongBuffer time, DoubleBuffer open, DoubleBuffer high, DoubleBuffer low,
+            DoubleBuffer close, DoubleBuffer volume, int offset, int length) {
+        this.time = time;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public long getTime(int i) {
+        return time.get(offset + i);
+    }
+
+    @Override
+    public double getOpen(int i) {
+        return open.get(offset + i);
+    }
+
+    @Override
+    public double getHigh(int i) {
+        return high.get(offset + i);
+    }
+
+    @Override
+    public double getLow(int i) {
+        return low.get(offset + i);
+    }
+
+    @Override
+    public double getClose(int i) {
+        return close.get(offset + i);
+    }
+
+    @Override
+    public double getVolume(int i) {
+        return volume.get(offset + i);
+    }
+}
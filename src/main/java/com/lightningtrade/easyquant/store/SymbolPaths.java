@@ -0,0 +1,29 @@
+package com.lightningtrade.easyquant.store;
+
+import java.util.regex.Pattern;
+
+/**
+ * 股票代码用作文件路径一部分时的校验
+ * 只允许字母、数字和 . _ -，且首字符为字母或数字，股票代码不会包含路径分隔符或 ..
+ */
+public final class SymbolPaths {
+    private static final Pattern SYMBOL = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,31}");
+
+    private SymbolPaths() {
+    }
+
+    public static boolean isValid(String symbol) {
+        return symbol != null && SYMBOL.matcher(symbol).matches();
+    }
+
+    /**
+     * @return 校验通过的股票代码
+     * @throws IllegalArgumentException 股票代码不能用作路径
+     */
+    public static String check(String symbol) {
+        if (!isValid(symbol)) {
+            throw new IllegalArgumentException("无效的股票代码: " + symbol);
+        }
+        return symbol;
+    }
+}
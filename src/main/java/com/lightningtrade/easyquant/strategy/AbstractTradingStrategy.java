@@ -1,152 +1,382 @@
 package com.lightningtrade.easyquant.strategy;
 
-import com.lightningtrade.easyquant.backtest.BacktestResult;
-import com.lightningtrade.easyquant.backtest.BacktestTradeRecord;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.indicator.Indicator;
+import com.lightningtrade.easyquant.indicator.IndicatorColumns;
+import com.lightningtrade.easyquant.indicator.IndicatorGraph;
 import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.store.BarRingBuffer;
 import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * 抽象交易策略类
- * 这是所有交易策略的基类，提供了回测功能的基本实现
+ * 这是所有交易策略的基类，维护最近的K线，提供逐根K线计算信号、预热和状态快照的基本实现
+ *
+ * 策略可以在构造时通过declareTimeframe声明较高周期（如基础周期为min5时声明day），
+ * 高周期K线由基础周期K线增量聚合，计算信号时通过getTimeframe读取已完成的高周期K线和指标
  */
 public abstract class AbstractTradingStrategy implements TradingStrategy {
 
-    // K线类型（比如1分钟、5分钟、日K等）
-    protected KType kType;
+    // 状态快照格式版本
+    private static final int STATE_VERSION = 2;
 
-    // 交易费率（假设为0.1%）
-    protected static final double TRANSACTION_FEE_RATE = 0.001;
+    // 最近的K线，容量为策略的回看周期，首次使用时创建
+    private BarRingBuffer recentBars;
 
-    // 最小交易单位
-    protected static final int MIN_TRADE_UNIT = 100;
+    // 指标计算图，未绑定共享计算图时首次使用时创建独立的计算图
+    private IndicatorGraph graph;
+
+    // 声明的较高周期，按声明顺序
+    private final Map<KType, Timeframe> timeframes = new LinkedHashMap<>();
+
+    @Override
+    public void attach(IndicatorGraph graph) {
+        if (this.graph != null) {
+            throw new IllegalStateException("策略已绑定指标计算图");
+        }
+        this.graph = graph;
+        bindIndicators();
+    }
 
     /**
-     * 执行回测的方法
-     * 
-     * @param symbol         交易品种的代码
-     * @param data           历史数据列表
-     * @param initialCapital 初始资金
-     * @param kType          K线类型
-     * @return 回测结果
+     * 策略使用的指标计算图
+     */
+    protected IndicatorGraph getGraph() {
+        if (graph == null) {
+            attach(new IndicatorGraph());
+        }
+        return graph;
+    }
+
+    /**
+     * 从计算图订阅策略使用的指标，绑定计算图时调用一次
+     */
+    protected abstract void bindIndicators();
+
+    /**
+     * 订阅以收盘价为输入的指标
+     *
+     * @param key 指标定义，包含类型和参数，如 SMA(20)
+     */
+    protected <T extends Indicator> T subscribe(String key, Supplier<T> factory) {
+        return graph.subscribe(key, factory);
+    }
+
+    @Override
+    public void bindTimeframes(MarketSession session, KType baseKType) {
+        for (Timeframe timeframe : timeframes.values()) {
+            timeframe.bind(session, baseKType);
+        }
+    }
+
+    /**
+     * 声明策略使用的较高周期，应在构造函数中调用，重复声明时取较大的所需K线数量
+     *
+     * @param kType        高周期
+     * @param requiredBars 就绪需要的已完成高周期K线数量
      */
+    protected Timeframe declareTimeframe(KType kType, int requiredBars) {
+        Timeframe timeframe = timeframes.computeIfAbsent(kType, Timeframe::new);
+        timeframe.require(requiredBars);
+        return timeframe;
+    }
+
     @Override
-    public BacktestResult backtest(String symbol, List<MarketData> data, double initialCapital, KType kType) {
-        this.kType = kType;
-        BacktestResult result = new BacktestResult();
-        result.setSymbol(symbol);
-        result.setInitialCapital(initialCapital);
-        result.setKType(kType);
-
-        // 用于记录所有交易
-        List<BacktestTradeRecord> trades = new ArrayList<>();
-        // 记录权益曲线
-        List<Double> equityCurve = new ArrayList<>();
-        // 当前资金
-        double currentCapital = initialCapital;
-        // 当前持仓数量
-        int currentPosition = 0;
-        // 最大资金
-        double maxCapital = initialCapital;
-        // 最大回撤
-        double maxDrawdown = 0;
-
-        // 遍历每一根K线
-        for (MarketData bar : data) {
-            // 计算策略信号
-            String signal = calculateSignal(bar);
-
-            // 如果有交易信号，检查是否可以执行交易
-            if (signal != null) {
-                int tradeQuantity = calculateTradeQuantity(signal, currentCapital, currentPosition, bar.getClose());
-
-                if (tradeQuantity > 0) {
-                    // 创建交易记录
-                    BacktestTradeRecord trade = new BacktestTradeRecord();
-                    trade.setSymbol(symbol);
-                    trade.setType(signal);
-                    trade.setPrice(bar.getClose());
-                    trade.setTime(bar.getDateTime());
-                    trade.setQuantity(tradeQuantity);
-
-                    // 更新资金和持仓
-                    double tradeCost = calculateTradeCost(tradeQuantity, bar.getClose());
-                    if ("BUY".equals(signal)) {
-                        currentCapital -= (bar.getClose() * tradeQuantity + tradeCost);
-                        currentPosition += tradeQuantity;
-                        trade.setProfit(0);
-                    } else if ("SELL".equals(signal)) {
-                        double profit = bar.getClose() * tradeQuantity - tradeCost;
-                        currentCapital += profit;
-                        currentPosition -= tradeQuantity;
-                        trade.setProfit(profit);
-                    }
-
-                    trades.add(trade);
-                }
-            }
+    public Set<KType> getTimeframes() {
+        return Collections.unmodifiableSet(timeframes.keySet());
+    }
+
+    /**
+     * 回看周期与各高周期就绪所需的基础周期K线数量中的较大值，需要先绑定高周期
+     */
+    @Override
+    public int getWarmUpBars() {
+        int bars = getLookbackPeriod();
+        for (Timeframe timeframe : timeframes.values()) {
+            bars = Math.max(bars, timeframe.getWarmUpBars());
+        }
+        return bars;
+    }
 
-            // 更新权益曲线（包括持仓市值）
-            double totalEquity = currentCapital + (currentPosition * bar.getClose());
-            equityCurve.add(totalEquity);
+    /**
+     * 已声明的高周期
+     *
+     * @throws IllegalArgumentException 未声明该周期
+     */
+    protected Timeframe getTimeframe(KType kType) {
+        Timeframe timeframe = timeframes.get(kType);
+        if (timeframe == null) {
+            throw new IllegalArgumentException("策略未声明周期: " + kType);
+        }
+        return timeframe;
+    }
 
-            // 计算最大回撤
-            maxCapital = Math.max(maxCapital, totalEquity);
-            double drawdown = (maxCapital - totalEquity) / maxCapital;
-            maxDrawdown = Math.max(maxDrawdown, drawdown);
+    /**
+     * 记录K线，更新计算图和高周期后计算交易信号
+     */
+    @Override
+    public Signal onBar(MarketData bar) {
+        IndicatorGraph indicators = getGraph();
+        synchronized (indicators) {
+            recordBar(bar);
+            indicators.advance(bar.getTimestamp(), bar.getClose());
+            for (Timeframe timeframe : timeframes.values()) {
+                timeframe.update(bar.getTimestamp(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+                        bar.getVolume());
+            }
+            return calculateSignal(bar);
+        }
+    }
+
+    /**
+     * 批量计算时用整段K线更新计算图和高周期：计算图的每个节点在一个循环内算出整列，高周期逐根聚合，
+     * 结果和处理后的状态都与逐根调用advance(bars, i)相同
+     *
+     * @param close 收盘价列
+     * @return 计算图中各指标的输出列
+     */
+    protected IndicatorColumns advance(BarColumns bars, double[] close) {
+        IndicatorColumns columns = graph.advance(bars, close);
+        if (!timeframes.isEmpty()) {
+            for (int i = 0; i < close.length; i++) {
+                for (Timeframe timeframe : timeframes.values()) {
+                    timeframe.update(bars.getTime(i), bars.getOpen(i), bars.getHigh(i), bars.getLow(i), close[i],
+                            bars.getVolume(i));
+                }
+            }
         }
+        return columns;
+    }
 
-        // 设置回测结果
-        double finalEquity = currentCapital + (currentPosition * data.get(data.size() - 1).getClose());
-        result.setFinalCapital(finalEquity);
-        result.setTotalReturn((finalEquity - initialCapital) / initialCapital);
-        result.setMaxDrawdown(maxDrawdown);
-        result.setTrades(trades);
-        result.setEquityCurve(equityCurve);
+    /**
+     * 批量计算时用第i根K线更新计算图和高周期，与onBar中的更新相同
+     * 用于需要逐根读取指标实时状态的策略（如规则策略）
+     */
+    protected void advance(BarColumns bars, int i) {
+        graph.advance(bars.getTime(i), bars.getClose(i));
+        for (Timeframe timeframe : timeframes.values()) {
+            timeframe.update(bars.getTime(i), bars.getOpen(i), bars.getHigh(i), bars.getLow(i), bars.getClose(i),
+                    bars.getVolume(i));
+        }
+    }
 
-        return result;
+    /**
+     * 批量计算信号列，持有计算图的锁
+     */
+    @Override
+    public Signal[] computeSignals(BarColumns bars) {
+        IndicatorGraph indicators = getGraph();
+        synchronized (indicators) {
+            int from = Math.max(getLookbackPeriod() - getRecentBars().size() - 1, 0);
+            Signal[] signals = computeSignals(bars, closes(bars), from);
+            recordBars(bars);
+            return signals;
+        }
     }
 
+    /**
+     * 批量计算：用advance(bars, close)按列算出指标，再由指标列生成信号列
+     * 结果和处理后的策略状态都与逐根调用onBar相同
+     *
+     * @param bars  按时间升序的K线
+     * @param close 收盘价列
+     * @param from  从该下标开始产生信号，之前的K线用于累积数据
+     * @return 信号列
+     */
+    protected abstract Signal[] computeSignals(BarColumns bars, double[] close, int from);
+
     /**
      * 计算交易信号的抽象方法，需要由具体策略实现
+     * 调用时当前K线已记录到最近K线中，计算图也已用当前K线更新
      * 
      * @param data 当前K线数据
-     * @return 交易信号（买入/卖出）
+     * @return 交易信号（买入/卖出/无信号）
      */
-    protected abstract String calculateSignal(MarketData data);
+    protected abstract Signal calculateSignal(MarketData data);
 
     /**
-     * 计算可交易数量
-     * 
-     * @param signal   交易信号
-     * @param capital  当前资金
-     * @param position 当前持仓
-     * @param price    当前价格
-     * @return 可交易数量
+     * 批量计算历史K线的信号并丢弃
+     */
+    @Override
+    public int prime(String symbol, BarColumns bars) {
+        BarColumns recent = getRecentBars();
+        int from = recent.size() == 0 ? 0 : bars.lowerBound(recent.getTime(recent.size() - 1) + 1);
+        computeSignals(bars.subRange(from, bars.size()));
+        return bars.size() - from;
+    }
+
+    /**
+     * 最近K线达到回看周期，且各高周期的已完成K线达到所需数量
      */
-    protected int calculateTradeQuantity(String signal, double capital, int position, double price) {
-        if ("BUY".equals(signal)) {
-            // 计算最大可买数量（考虑交易费用）
-            double maxAmount = capital / (price * (1 + TRANSACTION_FEE_RATE));
-            int maxQuantity = (int) (maxAmount / MIN_TRADE_UNIT) * MIN_TRADE_UNIT;
-            return maxQuantity > 0 ? maxQuantity : 0;
-        } else if ("SELL".equals(signal)) {
-            // 返回当前持仓数量（如果有持仓的话）
-            return position > 0 ? position : 0;
+    @Override
+    public boolean isReady() {
+        return getRecentBars().size() >= getLookbackPeriod() && isTimeframesReady();
+    }
+
+    /**
+     * 各高周期的已完成K线是否都达到所需数量
+     */
+    protected boolean isTimeframesReady() {
+        for (Timeframe timeframe : timeframes.values()) {
+            if (!timeframe.isReady()) {
+                return false;
+            }
         }
-        return 0;
+        return true;
     }
 
     /**
-     * 计算交易成本
-     * 
-     * @param quantity 交易数量
-     * @param price    交易价格
-     * @return 交易成本
+     * 最近的K线，最多保留getLookbackPeriod()根，包含当前正在计算的K线
+     */
+    protected BarColumns getRecentBars() {
+        if (recentBars == null) {
+            recentBars = new BarRingBuffer(Math.max(getLookbackPeriod(), 1));
+        }
+        return recentBars;
+    }
+
+    /**
+     * 快照格式：版本、策略类名、最近K线、各高周期的K线和聚合状态、各策略自己的指标状态
+     */
+    @Override
+    public void saveState(DataOutput out) throws IOException {
+        getGraph();
+        out.writeInt(STATE_VERSION);
+        out.writeUTF(getClass().getSimpleName());
+        BarColumns bars = getRecentBars();
+        out.writeInt(bars.size());
+        for (int i = 0; i < bars.size(); i++) {
+            out.writeLong(bars.getTime(i));
+            out.writeDouble(bars.getOpen(i));
+            out.writeDouble(bars.getHigh(i));
+            out.writeDouble(bars.getLow(i));
+            out.writeDouble(bars.getClose(i));
+            out.writeDouble(bars.getVolume(i));
+        }
+        out.writeInt(timeframes.size());
+        for (Timeframe timeframe : timeframes.values()) {
+            out.writeUTF(timeframe.getKType().name());
+            timeframe.writeState(out);
+        }
+        writeState(out);
+    }
+
+    @Override
+    public void restoreState(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != STATE_VERSION) {
+            throw new IOException("不支持的快照版本: " + version);
+        }
+        String type = in.readUTF();
+        if (!type.equals(getClass().getSimpleName())) {
+            throw new IOException("快照策略类型不一致: " + type);
+        }
+        getGraph();
+        getRecentBars();
+        int count = in.readInt();
+        if (count < 0 || count > recentBars.capacity()) {
+            throw new IOException("快照K线数量无效: " + count);
+        }
+        recentBars.clear();
+        for (int i = 0; i < count; i++) {
+            recentBars.add(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble());
+        }
+        if (in.readInt() != timeframes.size()) {
+            throw new IOException("快照的高周期与策略不一致");
+        }
+        for (Timeframe timeframe : timeframes.values()) {
+            if (!timeframe.getKType().name().equals(in.readUTF())) {
+                throw new IOException("快照的高周期与策略不一致");
+            }
+            timeframe.readState(in);
+        }
+        readState(in);
+        if (count > 0) {
+            graph.markUpdated(recentBars.getTime(count - 1));
+        }
+    }
+
+    /**
+     * 写出策略的指标状态
+     */
+    protected abstract void writeState(DataOutput out) throws IOException;
+
+    /**
+     * 读取writeState写出的指标状态
+     */
+    protected abstract void readState(DataInput in) throws IOException;
+
+    /**
+     * 把批量计算的K线记录到最近K线中，只需要写入最后capacity根
+     */
+    protected void recordBars(BarColumns bars) {
+        getRecentBars();
+        for (int i = Math.max(bars.size() - recentBars.capacity(), 0); i < bars.size(); i++) {
+            recentBars.add(bars.getTime(i), bars.getOpen(i), bars.getHigh(i), bars.getLow(i), bars.getClose(i),
+                    bars.getVolume(i));
+        }
+    }
+
+    /**
+     * 最近K线中最后一根的收盘价，没有K线时返回NaN
+     */
+    protected double lastClose() {
+        BarColumns recent = getRecentBars();
+        return recent.size() == 0 ? Double.NaN : recent.getClose(recent.size() - 1);
+    }
+
+    /**
+     * 取出收盘价列
      */
-    protected double calculateTradeCost(int quantity, double price) {
-        return quantity * price * TRANSACTION_FEE_RATE;
+    protected static double[] closes(BarColumns bars) {
+        double[] close = new double[bars.size()];
+        for (int i = 0; i < close.length; i++) {
+            close[i] = bars.getClose(i);
+        }
+        return close;
+    }
+
+    /**
+     * 按两条线的交叉生成信号列：fast上穿slow为买入，下穿为卖出
+     *
+     * @param fast      快线列
+     * @param slow      慢线列
+     * @param prevFast  第一根K线之前的快线值
+     * @param prevSlow  第一根K线之前的慢线值
+     * @param from      从该下标开始产生信号，之前的信号为NONE
+     */
+    protected static Signal[] crossSignals(double[] fast, double[] slow, double prevFast, double prevSlow,
+            int from) {
+        Signal[] signals = new Signal[fast.length];
+        Arrays.fill(signals, Signal.NONE);
+        for (int i = from; i < fast.length; i++) {
+            double lastFast = i == 0 ? prevFast : fast[i - 1];
+            double lastSlow = i == 0 ? prevSlow : slow[i - 1];
+            if (lastFast <= lastSlow && fast[i] > slow[i]) {
+                signals[i] = Signal.BUY;
+            } else if (lastFast >= lastSlow && fast[i] < slow[i]) {
+                signals[i] = Signal.SELL;
+            }
+        }
+        return signals;
+    }
+
+    private void recordBar(MarketData bar) {
+        getRecentBars();
+        recentBars.add(bar.getTimestamp(), bar.getOpen(), bar.getHigh(), bar.getLow(), bar.getClose(),
+                bar.getVolume());
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,16 @@
 package com.lightningtrade.easyquant.strategy;
 
 import org.springframework.stereotype.Component;
-import org.ta4j.core.*;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.bollinger.BollingerBandsLowerIndicator;
-import org.ta4j.core.indicators.bollinger.BollingerBandsMiddleIndicator;
-import org.ta4j.core.indicators.bollinger.BollingerBandsUpperIndicator;
-import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import com.lightningtrade.easyquant.indicator.BollingerBandsIndicator;
+import com.lightningtrade.easyquant.indicator.IndicatorColumns;
 import com.lightningtrade.easyquant.model.MarketData;
-import java.time.ZonedDateTime;
-import java.time.ZoneId;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * 布林带策略
@@ -32,11 +32,10 @@ import java.time.ZoneId;
 public class BollingerBandsStrategy extends AbstractTradingStrategy {
     private final int period; // 移动平均线周期
     private final double multiplier; // 标准差倍数
-    private BarSeries series;
-    private ClosePriceIndicator closePrice;
-    private BollingerBandsMiddleIndicator middleBand;
-    private BollingerBandsUpperIndicator upperBand;
-    private BollingerBandsLowerIndicator lowerBand;
+    private BollingerBandsIndicator bands;
+    // 最近一根K线的布林带值
+    private double upper;
+    private double lower;
 
     /**
      * 默认构造函数
@@ -61,15 +60,6 @@ public class BollingerBandsStrategy extends AbstractTradingStrategy {
         }
         this.period = period;
         this.multiplier = multiplier;
-        this.series = new BaseBarSeriesBuilder().withName("BollingerBands_Strategy").build();
-        this.closePrice = new ClosePriceIndicator(series);
-
-        // 计算布林带指标
-        SMAIndicator sma = new SMAIndicator(closePrice, period);
-        StandardDeviationIndicator standardDeviation = new StandardDeviationIndicator(closePrice, period);
-        this.middleBand = new BollingerBandsMiddleIndicator(sma);
-        this.upperBand = new BollingerBandsUpperIndicator(this.middleBand, standardDeviation);
-        this.lowerBand = new BollingerBandsLowerIndicator(this.middleBand, standardDeviation);
     }
 
     /**
@@ -78,65 +68,98 @@ public class BollingerBandsStrategy extends AbstractTradingStrategy {
      * 
      * @param data 市场数据，包含最新的OHLCV数据
      * @return 交易信号：
-     *         "BUY" - 买入信号，当价格突破布林带下轨
-     *         "SELL" - 卖出信号，当价格突破布林带上轨
-     *         null - 无交易信号，价格在布林带中轨附近
+     *         Signal.BUY - 买入信号，当价格突破布林带下轨
+     *         Signal.SELL - 卖出信号，当价格突破布林带上轨
+     *         Signal.NONE - 无交易信号，价格在布林带中轨附近
      */
     @Override
-    protected String calculateSignal(MarketData data) {
-        // 添加新的K线数据
-        ZonedDateTime dateTime = data.getDateTime().atZone(ZoneId.systemDefault());
-        series.addBar(dateTime,
-                data.getOpen(),
-                data.getHigh(),
-                data.getLow(),
-                data.getClose(),
-                data.getVolume());
+    protected Signal calculateSignal(MarketData data) {
+        // 前一个时间点的价格取自最近K线，布林带值取自上一次计算
+        BarColumns recentBars = getRecentBars();
+        double prevPrice = recentBars.size() > 1 ? recentBars.getClose(recentBars.size() - 2) : Double.NaN;
+        double prevUpper = upper;
+        double prevLower = lower;
+
+        // 读取当前价格和布林带值
+        double price = data.getClose();
+        upper = bands.getUpper();
+        lower = bands.getLower();
 
         // 在累积足够的数据之前，不产生交易信号
-        int index = series.getEndIndex();
-        if (index < period) {
-            return null;
+        if (!isReady()) {
+            return Signal.NONE;
         }
 
-        // 获取当前价格和布林带值
-        double price = closePrice.getValue(index).doubleValue();
-        double upper = upperBand.getValue(index).doubleValue();
-        double lower = lowerBand.getValue(index).doubleValue();
-
-        // 获取前一个时间点的价格和布林带值
-        double prevPrice = closePrice.getValue(index - 1).doubleValue();
-        double prevUpper = upperBand.getValue(index - 1).doubleValue();
-        double prevLower = lowerBand.getValue(index - 1).doubleValue();
-
         // 判断价格突破
         boolean breakLower = prevPrice >= prevLower && price < lower; // 价格突破下轨
         boolean breakUpper = prevPrice <= prevUpper && price > upper; // 价格突破上轨
 
         // 生成交易信号
         if (breakLower) {
-            return "BUY";
+            return Signal.BUY;
         } else if (breakUpper) {
-            return "SELL";
+            return Signal.SELL;
         }
 
-        // 定期清理历史数据
-        cleanHistoricalData();
+        return Signal.NONE; // 价格在布林带中轨附近，不产生信号
+    }
+
+    /**
+     * 回看周期：布林带周期加上用于判断突破的前一根K线
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return period + 1;
+    }
 
-        return null; // 价格在布林带中轨附近，不产生信号
+    @Override
+    protected void bindIndicators() {
+        bands = subscribe("BOLL(" + period + "," + multiplier + ")",
+                () -> new BollingerBandsIndicator(period, multiplier));
     }
 
     /**
-     * 清理历史数据
-     * 当数据量过大时，清理旧数据以节省内存
+     * 批量计算：按列算出布林带上下轨，再由价格突破上下轨生成信号列
      */
-    private void cleanHistoricalData() {
-        if (series.getBarCount() > period * 2) {
-            // 保留最近的两倍周期数据
-            int removeCount = series.getBarCount() - period * 2;
-            for (int i = 0; i < removeCount; i++) {
-                series.getBar(0); // 移除最早的数据
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        double prevPrice = lastClose();
+        double prevUpper = upper;
+        double prevLower = lower;
+        IndicatorColumns columns = advance(bars, close);
+        double[] upperColumn = columns.get(bands, 1);
+        double[] lowerColumn = columns.get(bands, 2);
+        if (close.length > 0) {
+            upper = bands.getUpper();
+            lower = bands.getLower();
+        }
+
+        Signal[] signals = new Signal[close.length];
+        Arrays.fill(signals, Signal.NONE);
+        for (int i = from; i < close.length; i++) {
+            double lastPrice = i == 0 ? prevPrice : close[i - 1];
+            double lastUpper = i == 0 ? prevUpper : upperColumn[i - 1];
+            double lastLower = i == 0 ? prevLower : lowerColumn[i - 1];
+            if (lastPrice >= lastLower && close[i] < lowerColumn[i]) {
+                signals[i] = Signal.BUY;
+            } else if (lastPrice <= lastUpper && close[i] > upperColumn[i]) {
+                signals[i] = Signal.SELL;
             }
         }
+        return signals;
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        bands.writeState(out);
+        out.writeDouble(upper);
+        out.writeDouble(lower);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        bands.readState(in);
+        upper = in.readDouble();
+        lower = in.readDouble();
     }
-}
\ No newline at end of file
+}
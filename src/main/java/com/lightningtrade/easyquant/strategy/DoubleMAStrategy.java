@@ -1,12 +1,15 @@
 package com.lightningtrade.easyquant.strategy;
 
 import org.springframework.stereotype.Component;
-import org.ta4j.core.*;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import com.lightningtrade.easyquant.indicator.IndicatorColumns;
+import com.lightningtrade.easyquant.indicator.SMAIndicator;
 import com.lightningtrade.easyquant.model.MarketData;
-import java.time.ZonedDateTime;
-import java.time.ZoneId;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * 双均线策略
@@ -25,10 +28,11 @@ import java.time.ZoneId;
 public class DoubleMAStrategy extends AbstractTradingStrategy {
     private final int shortPeriod; // 短期均线周期
     private final int longPeriod; // 长期均线周期
-    private BarSeries series;
-    private ClosePriceIndicator closePrice;
     private SMAIndicator shortSMA;
     private SMAIndicator longSMA;
+    // 最近一根K线的均线值
+    private double shortMA;
+    private double longMA;
 
     /**
      * 默认构造函数
@@ -50,10 +54,6 @@ public class DoubleMAStrategy extends AbstractTradingStrategy {
         }
         this.shortPeriod = shortPeriod;
         this.longPeriod = longPeriod;
-        this.series = new BaseBarSeriesBuilder().withName("DoubleMA_Strategy").build();
-        this.closePrice = new ClosePriceIndicator(series);
-        this.shortSMA = new SMAIndicator(closePrice, shortPeriod);
-        this.longSMA = new SMAIndicator(closePrice, longPeriod);
     }
 
     /**
@@ -62,61 +62,81 @@ public class DoubleMAStrategy extends AbstractTradingStrategy {
      * 
      * @param data 市场数据，包含最新的OHLCV数据
      * @return 交易信号：
-     *         "BUY" - 买入信号，当短期均线上穿长期均线
-     *         "SELL" - 卖出信号，当短期均线下穿长期均线
-     *         null - 无交易信号，均线未发生交叉
+     *         Signal.BUY - 买入信号，当短期均线上穿长期均线
+     *         Signal.SELL - 卖出信号，当短期均线下穿长期均线
+     *         Signal.NONE - 无交易信号，均线未发生交叉
      */
     @Override
-    protected String calculateSignal(MarketData data) {
-        // 添加新的K线数据
-        ZonedDateTime dateTime = data.getDateTime().atZone(ZoneId.systemDefault());
-        series.addBar(dateTime,
-                data.getOpen(),
-                data.getHigh(),
-                data.getLow(),
-                data.getClose(),
-                data.getVolume());
+    protected Signal calculateSignal(MarketData data) {
+        // 保留前一个时间点的均线值，读取当前均线值
+        double prevShortMA = shortMA;
+        double prevLongMA = longMA;
+        shortMA = shortSMA.getValue();
+        longMA = longSMA.getValue();
 
         // 在累积足够的数据之前，不产生交易信号
-        int index = series.getEndIndex();
-        if (index < longPeriod) {
-            return null;
+        if (!isReady()) {
+            return Signal.NONE;
         }
 
-        // 获取当前和前一个时间点的均线值
-        double shortMA = shortSMA.getValue(index).doubleValue();
-        double longMA = longSMA.getValue(index).doubleValue();
-        double prevShortMA = shortSMA.getValue(index - 1).doubleValue();
-        double prevLongMA = longSMA.getValue(index - 1).doubleValue();
-
         // 判断均线交叉
         boolean crossUp = prevShortMA <= prevLongMA && shortMA > longMA; // 短期均线上穿长期均线
         boolean crossDown = prevShortMA >= prevLongMA && shortMA < longMA; // 短期均线下穿长期均线
 
         // 生成交易信号
         if (crossUp) {
-            return "BUY";
+            return Signal.BUY;
         } else if (crossDown) {
-            return "SELL";
+            return Signal.SELL;
         }
 
-        // 定期清理历史数据
-        cleanHistoricalData();
+        return Signal.NONE; // 均线未发生交叉，不产生信号
+    }
+
+    /**
+     * 回看周期：长期均线周期加上用于判断交叉的前一根K线
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return longPeriod + 1;
+    }
 
-        return null; // 均线未发生交叉，不产生信号
+    @Override
+    protected void bindIndicators() {
+        shortSMA = subscribe("SMA(" + shortPeriod + ")", () -> new SMAIndicator(shortPeriod));
+        longSMA = subscribe("SMA(" + longPeriod + ")", () -> new SMAIndicator(longPeriod));
     }
 
     /**
-     * 清理历史数据
-     * 当数据量过大时，清理旧数据以节省内存
+     * 批量计算：按列算出两条均线，再由均线交叉生成信号列
      */
-    private void cleanHistoricalData() {
-        if (series.getBarCount() > longPeriod * 2) {
-            // 保留最近的两倍周期数据
-            int removeCount = series.getBarCount() - longPeriod * 2;
-            for (int i = 0; i < removeCount; i++) {
-                series.getBar(0); // 移除最早的数据
-            }
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        double prevShortMA = shortMA;
+        double prevLongMA = longMA;
+        IndicatorColumns columns = advance(bars, close);
+        double[] shortColumn = columns.get(shortSMA);
+        double[] longColumn = columns.get(longSMA);
+        if (close.length > 0) {
+            shortMA = shortSMA.getValue();
+            longMA = longSMA.getValue();
         }
+        return crossSignals(shortColumn, longColumn, prevShortMA, prevLongMA, from);
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        shortSMA.writeState(out);
+        longSMA.writeState(out);
+        out.writeDouble(shortMA);
+        out.writeDouble(longMA);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        shortSMA.readState(in);
+        longSMA.readState(in);
+        shortMA = in.readDouble();
+        longMA = in.readDouble();
     }
-}
\ No newline at end of file
+}
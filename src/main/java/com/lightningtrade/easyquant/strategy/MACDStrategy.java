@@ -1,13 +1,15 @@
 package com.lightningtrade.easyquant.strategy;
 
 import org.springframework.stereotype.Component;
-import org.ta4j.core.*;
-import org.ta4j.core.indicators.EMAIndicator;
-import org.ta4j.core.indicators.MACDIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import com.lightningtrade.easyquant.indicator.IndicatorColumns;
+import com.lightningtrade.easyquant.indicator.MACDIndicator;
 import com.lightningtrade.easyquant.model.MarketData;
-import java.time.ZonedDateTime;
-import java.time.ZoneId;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * MACD策略
@@ -31,10 +33,10 @@ public class MACDStrategy extends AbstractTradingStrategy {
     private final int fastPeriod; // 快速EMA周期
     private final int slowPeriod; // 慢速EMA周期
     private final int signalPeriod; // 信号线周期
-    private BarSeries series;
-    private ClosePriceIndicator closePrice;
     private MACDIndicator macd;
-    private EMAIndicator signal;
+    // 最近一根K线的MACD线和信号线值
+    private double macdValue;
+    private double signalValue;
 
     /**
      * 默认构造函数
@@ -58,10 +60,6 @@ public class MACDStrategy extends AbstractTradingStrategy {
         this.fastPeriod = fastPeriod;
         this.slowPeriod = slowPeriod;
         this.signalPeriod = signalPeriod;
-        this.series = new BaseBarSeriesBuilder().withName("MACD_Strategy").build();
-        this.closePrice = new ClosePriceIndicator(series);
-        this.macd = new MACDIndicator(closePrice, fastPeriod, slowPeriod);
-        this.signal = new EMAIndicator(macd, signalPeriod);
     }
 
     /**
@@ -70,62 +68,79 @@ public class MACDStrategy extends AbstractTradingStrategy {
      * 
      * @param data 市场数据，包含最新的OHLCV数据
      * @return 交易信号：
-     *         "BUY" - 买入信号，当MACD线上穿信号线
-     *         "SELL" - 卖出信号，当MACD线下穿信号线
-     *         null - 无交易信号，MACD线和信号线未发生交叉
+     *         Signal.BUY - 买入信号，当MACD线上穿信号线
+     *         Signal.SELL - 卖出信号，当MACD线下穿信号线
+     *         Signal.NONE - 无交易信号，MACD线和信号线未发生交叉
      */
     @Override
-    protected String calculateSignal(MarketData data) {
-        // 添加新的K线数据
-        ZonedDateTime dateTime = data.getDateTime().atZone(ZoneId.systemDefault());
-        series.addBar(dateTime,
-                data.getOpen(),
-                data.getHigh(),
-                data.getLow(),
-                data.getClose(),
-                data.getVolume());
+    protected Signal calculateSignal(MarketData data) {
+        // 保留前一个时间点的MACD值和信号线值，读取当前值
+        double prevMacdValue = macdValue;
+        double prevSignalValue = signalValue;
+        macdValue = macd.getValue();
+        signalValue = macd.getSignal();
 
         // 在累积足够的数据之前，不产生交易信号
-        int index = series.getEndIndex();
-        if (index < slowPeriod + signalPeriod) {
-            return null;
+        if (!isReady()) {
+            return Signal.NONE;
         }
 
-        // 获取当前和前一个时间点的MACD值和信号线值
-        double macdValue = macd.getValue(index).doubleValue();
-        double signalValue = signal.getValue(index).doubleValue();
-        double prevMacdValue = macd.getValue(index - 1).doubleValue();
-        double prevSignalValue = signal.getValue(index - 1).doubleValue();
-
         // 判断MACD线和信号线的交叉
         boolean crossUp = prevMacdValue <= prevSignalValue && macdValue > signalValue; // MACD线上穿信号线
         boolean crossDown = prevMacdValue >= prevSignalValue && macdValue < signalValue; // MACD线下穿信号线
 
         // 生成交易信号
         if (crossUp) {
-            return "BUY";
+            return Signal.BUY;
         } else if (crossDown) {
-            return "SELL";
+            return Signal.SELL;
         }
 
-        // 定期清理历史数据
-        cleanHistoricalData();
+        return Signal.NONE; // MACD线和信号线未发生交叉，不产生信号
+    }
+
+    /**
+     * 回看周期：慢速EMA与信号线周期之和加上用于判断交叉的前一根K线
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return slowPeriod + signalPeriod + 1;
+    }
 
-        return null; // MACD线和信号线未发生交叉，不产生信号
+    @Override
+    protected void bindIndicators() {
+        macd = subscribe("MACD(" + fastPeriod + "," + slowPeriod + "," + signalPeriod + ")",
+                () -> new MACDIndicator(fastPeriod, slowPeriod, signalPeriod));
     }
 
     /**
-     * 清理历史数据
-     * 当数据量过大时，清理旧数据以节省内存
+     * 批量计算：按列算出MACD线和信号线，再由两线交叉生成信号列
      */
-    private void cleanHistoricalData() {
-        int maxPeriod = Math.max(slowPeriod + signalPeriod, fastPeriod + signalPeriod);
-        if (series.getBarCount() > maxPeriod * 2) {
-            // 保留最近的两倍周期数据
-            int removeCount = series.getBarCount() - maxPeriod * 2;
-            for (int i = 0; i < removeCount; i++) {
-                series.getBar(0); // 移除最早的数据
-            }
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        double prevMacdValue = macdValue;
+        double prevSignalValue = signalValue;
+        IndicatorColumns columns = advance(bars, close);
+        double[] macdColumn = columns.get(macd, 0);
+        double[] signalColumn = columns.get(macd, 1);
+        if (close.length > 0) {
+            macdValue = macd.getValue();
+            signalValue = macd.getSignal();
         }
+        return crossSignals(macdColumn, signalColumn, prevMacdValue, prevSignalValue, from);
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        macd.writeState(out);
+        out.writeDouble(macdValue);
+        out.writeDouble(signalValue);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        macd.readState(in);
+        macdValue = in.readDouble();
+        signalValue = in.readDouble();
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,15 @@
 package com.lightningtrade.easyquant.strategy;
 
 import org.springframework.stereotype.Component;
-import org.ta4j.core.*;
-import org.ta4j.core.indicators.SMAIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import com.lightningtrade.easyquant.indicator.SMAIndicator;
 import com.lightningtrade.easyquant.model.MarketData;
-import java.time.ZonedDateTime;
-import java.time.ZoneId;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * 移动平均线策略
@@ -20,8 +23,6 @@ import java.time.ZoneId;
 @Component
 public class MAStrategy extends AbstractTradingStrategy {
     private final int period;
-    private BarSeries series;
-    private ClosePriceIndicator closePrice;
     private SMAIndicator sma;
 
     /**
@@ -39,9 +40,6 @@ public class MAStrategy extends AbstractTradingStrategy {
      */
     public MAStrategy(int period) {
         this.period = period;
-        this.series = new BaseBarSeriesBuilder().withName("MA_Strategy").build();
-        this.closePrice = new ClosePriceIndicator(series);
-        this.sma = new SMAIndicator(closePrice, period);
     }
 
     /**
@@ -50,55 +48,70 @@ public class MAStrategy extends AbstractTradingStrategy {
      * 
      * @param data 市场数据，包含最新的OHLCV数据
      * @return 交易信号：
-     *         "BUY" - 买入信号，当价格上涨超过均线2%
-     *         "SELL" - 卖出信号，当价格下跌超过均线2%
-     *         null - 无交易信号，价格在均线2%范围内波动
+     *         Signal.BUY - 买入信号，当价格上涨超过均线2%
+     *         Signal.SELL - 卖出信号，当价格下跌超过均线2%
+     *         Signal.NONE - 无交易信号，价格在均线2%范围内波动
      */
     @Override
-    protected String calculateSignal(MarketData data) {
-        // 添加新的K线数据
-        ZonedDateTime dateTime = data.getDateTime().atZone(ZoneId.systemDefault());
-        series.addBar(dateTime,
-                data.getOpen(),
-                data.getHigh(),
-                data.getLow(),
-                data.getClose(),
-                data.getVolume());
-
+    protected Signal calculateSignal(MarketData data) {
         // 在累积足够的数据之前，不产生交易信号
-        int index = series.getEndIndex();
-        if (index < period) {
-            return null;
+        if (!isReady()) {
+            return Signal.NONE;
         }
 
         // 获取最新价格和均线值
         double price = data.getClose();
-        double ma = sma.getValue(index).doubleValue();
+        double ma = sma.getValue();
 
         // 生成交易信号
         if (price > ma * 1.02) { // 价格高于MA 2%时买入
-            return "BUY";
+            return Signal.BUY;
         } else if (price < ma * 0.98) { // 价格低于MA 2%时卖出
-            return "SELL";
+            return Signal.SELL;
         }
 
-        // 定期清理历史数据
-        cleanHistoricalData();
+        return Signal.NONE; // 价格在MA的2%范围内，不产生信号
+    }
 
-        return null; // 价格在MA的2%范围内，不产生信号
+    /**
+     * 回看周期：均线周期加上第一根产生信号的K线
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return period + 1;
+    }
+
+    @Override
+    protected void bindIndicators() {
+        sma = subscribe("SMA(" + period + ")", () -> new SMAIndicator(period));
     }
 
     /**
-     * 清理历史数据
-     * 当数据量过大时，清理旧数据以节省内存
+     * 批量计算：按列算出均线，再由价格与均线的偏离生成信号列
      */
-    private void cleanHistoricalData() {
-        if (series.getBarCount() > period * 2) {
-            // 保留最近的两倍周期数据
-            int removeCount = series.getBarCount() - period * 2;
-            for (int i = 0; i < removeCount; i++) {
-                series.getBar(0); // 移除最早的数据
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        double[] ma = advance(bars, close).get(sma);
+
+        Signal[] signals = new Signal[close.length];
+        Arrays.fill(signals, Signal.NONE);
+        for (int i = from; i < close.length; i++) {
+            if (close[i] > ma[i] * 1.02) {
+                signals[i] = Signal.BUY;
+            } else if (close[i] < ma[i] * 0.98) {
+                signals[i] = Signal.SELL;
             }
         }
+        return signals;
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        sma.writeState(out);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        sma.readState(in);
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,15 @@
 package com.lightningtrade.easyquant.strategy;
 
 import org.springframework.stereotype.Component;
-import org.ta4j.core.*;
-import org.ta4j.core.indicators.RSIIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import com.lightningtrade.easyquant.indicator.RSIIndicator;
 import com.lightningtrade.easyquant.model.MarketData;
-import java.time.ZonedDateTime;
-import java.time.ZoneId;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * RSI策略
@@ -27,9 +30,9 @@ public class RSIStrategy extends AbstractTradingStrategy {
     private final int period; // RSI计算周期
     private final double overbought; // 超买线
     private final double oversold; // 超卖线
-    private BarSeries series;
-    private ClosePriceIndicator closePrice;
     private RSIIndicator rsi;
+    // 最近一根K线的RSI值
+    private double currentRSI;
 
     /**
      * 默认构造函数
@@ -60,9 +63,6 @@ public class RSIStrategy extends AbstractTradingStrategy {
         this.period = period;
         this.oversold = oversold;
         this.overbought = overbought;
-        this.series = new BaseBarSeriesBuilder().withName("RSI_Strategy").build();
-        this.closePrice = new ClosePriceIndicator(series);
-        this.rsi = new RSIIndicator(closePrice, period);
     }
 
     /**
@@ -71,59 +71,81 @@ public class RSIStrategy extends AbstractTradingStrategy {
      * 
      * @param data 市场数据，包含最新的OHLCV数据
      * @return 交易信号：
-     *         "BUY" - 买入信号，当RSI值低于超卖线
-     *         "SELL" - 卖出信号，当RSI值高于超买线
-     *         null - 无交易信号，RSI值在超买超卖线之间
+     *         Signal.BUY - 买入信号，当RSI值低于超卖线
+     *         Signal.SELL - 卖出信号，当RSI值高于超买线
+     *         Signal.NONE - 无交易信号，RSI值在超买超卖线之间
      */
     @Override
-    protected String calculateSignal(MarketData data) {
-        // 添加新的K线数据
-        ZonedDateTime dateTime = data.getDateTime().atZone(ZoneId.systemDefault());
-        series.addBar(dateTime,
-                data.getOpen(),
-                data.getHigh(),
-                data.getLow(),
-                data.getClose(),
-                data.getVolume());
+    protected Signal calculateSignal(MarketData data) {
+        // 保留前一个时间点的RSI值，读取当前RSI值
+        double prevRSI = currentRSI;
+        currentRSI = rsi.getValue();
 
         // 在累积足够的数据之前，不产生交易信号
-        int index = series.getEndIndex();
-        if (index < period) {
-            return null;
+        if (!isReady()) {
+            return Signal.NONE;
         }
 
-        // 获取当前和前一个时间点的RSI值
-        double currentRSI = rsi.getValue(index).doubleValue();
-        double prevRSI = rsi.getValue(index - 1).doubleValue();
-
         // 判断RSI突破
         boolean crossDownOversold = prevRSI >= oversold && currentRSI < oversold; // RSI下穿超卖线
         boolean crossUpOverbought = prevRSI <= overbought && currentRSI > overbought; // RSI上穿超买线
 
         // 生成交易信号
         if (crossDownOversold) {
-            return "BUY";
+            return Signal.BUY;
         } else if (crossUpOverbought) {
-            return "SELL";
+            return Signal.SELL;
         }
 
-        // 定期清理历史数据
-        cleanHistoricalData();
+        return Signal.NONE; // RSI值在超买超卖线之间，不产生信号
+    }
 
-        return null; // RSI值在超买超卖线之间，不产生信号
+    /**
+     * 回看周期：RSI周期加上用于判断突破的前一根K线
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return period + 1;
+    }
+
+    @Override
+    protected void bindIndicators() {
+        rsi = subscribe("RSI(" + period + ")", () -> new RSIIndicator(period));
     }
 
     /**
-     * 清理历史数据
-     * 当数据量过大时，清理旧数据以节省内存
+     * 批量计算：按列算出RSI，再由RSI突破超买超卖线生成信号列
      */
-    private void cleanHistoricalData() {
-        if (series.getBarCount() > period * 2) {
-            // 保留最近的两倍周期数据
-            int removeCount = series.getBarCount() - period * 2;
-            for (int i = 0; i < removeCount; i++) {
-                series.getBar(0); // 移除最早的数据
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        double prevRSI = currentRSI;
+        double[] values = advance(bars, close).get(rsi);
+        if (close.length > 0) {
+            currentRSI = rsi.getValue();
+        }
+
+        Signal[] signals = new Signal[close.length];
+        Arrays.fill(signals, Signal.NONE);
+        for (int i = from; i < close.length; i++) {
+            double last = i == 0 ? prevRSI : values[i - 1];
+            if (last >= oversold && values[i] < oversold) {
+                signals[i] = Signal.BUY;
+            } else if (last <= overbought && values[i] > overbought) {
+                signals[i] = Signal.SELL;
             }
         }
+        return signals;
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        rsi.writeState(out);
+        out.writeDouble(currentRSI);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        rsi.readState(in);
+        currentRSI = in.readDouble();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.lightningtrade.easyquant.strategy;
+
+import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.strategy.rule.CompiledRule;
+import com.lightningtrade.easyquant.strategy.rule.RuleCompiler;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 规则表达式策略
+ * 入场和出场条件由规则表达式给出，创建策略时解析，绑定计算图时编译，不需要为每个想法编写策略类
+ *
+ * 策略逻辑：
+ * 1. 入场规则成立时，产生买入信号
+ * 2. 否则出场规则成立时，产生卖出信号
+ *
+ * 规则示例：
+ * - 入场：RSI(14) < 30 and close > SMA(200)
+ * - 出场：RSI(14) > 70 or close crosses below SMA(20)
+ *
+ * 表达式说明：
+ * - 价格：open、high、low、close、volume；PREV(x) 取前一根K线时的值
+ * - 指标：SMA(n)、EMA(n)、RSI(n)、STDDEV(n)，可指定输入指标如 SMA(5, RSI(14))；
+ *   MACD(f, s, m)、MACD_SIGNAL(f, s, m)、MACD_HIST(f, s, m)；BOLL_UPPER(n, k)、BOLL_MIDDLE(n, k)、BOLL_LOWER(n, k)
+ * - 运算：+ - * /、< <= > >= == !=、crosses above、crosses below、and、or、not
+ * - 多周期：价格和指标后加 @周期 表示在较高周期的已完成K线上取值，
+ *   如基础周期为min5时 close > SMA(20) and close@day > SMA(50)@day
+ */
+public class RuleStrategy extends AbstractTradingStrategy {
+    private final RuleCompiler compiler;
+    private CompiledRule rule;
+
+    /**
+     * @param entryRule 入场（买入）规则
+     * @param exitRule  出场（卖出）规则
+     * @throws com.lightningtrade.easyquant.strategy.rule.RuleSyntaxException 规则语法错误
+     */
+    public RuleStrategy(String entryRule, String exitRule) {
+        this.compiler = new RuleCompiler(entryRule, exitRule);
+        for (Map.Entry<KType, Integer> entry : compiler.getTimeframes().entrySet()) {
+            declareTimeframe(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    protected Signal calculateSignal(MarketData data) {
+        rule.update(data.getOpen(), data.getHigh(), data.getLow(), data.getClose(), data.getVolume());
+        Signal signal = isReady() ? evaluate() : Signal.NONE;
+        rule.commit();
+        return signal;
+    }
+
+    private Signal evaluate() {
+        if (rule.isEntry()) {
+            return Signal.BUY;
+        } else if (rule.isExit()) {
+            return Signal.SELL;
+        }
+        return Signal.NONE;
+    }
+
+    /**
+     * 回看周期：规则中各子表达式的值都有效所需的K线数量，至少为2
+     */
+    @Override
+    public int getLookbackPeriod() {
+        return Math.max(compiler.getWarmUp(), 2);
+    }
+
+    @Override
+    protected void bindIndicators() {
+        rule = compiler.compile(getGraph(), kType -> getTimeframe(kType).getGraph(),
+                kType -> getTimeframe(kType).getBars());
+    }
+
+    /**
+     * 批量计算：规则编译成的闭包读取指标的实时状态，因此逐根更新计算图和高周期并对规则求值
+     */
+    @Override
+    protected Signal[] computeSignals(BarColumns bars, double[] close, int from) {
+        Signal[] signals = new Signal[close.length];
+        Arrays.fill(signals, Signal.NONE);
+        for (int i = 0; i < close.length; i++) {
+            advance(bars, i);
+            rule.update(bars.getOpen(i), bars.getHigh(i), bars.getLow(i), close[i], bars.getVolume(i));
+            if (i >= from && isTimeframesReady()) {
+                signals[i] = evaluate();
+            }
+            rule.commit();
+        }
+        return signals;
+    }
+
+    @Override
+    protected void writeState(DataOutput out) throws IOException {
+        out.writeUTF(compiler.getEntryRule());
+        out.writeUTF(compiler.getExitRule());
+        rule.writeState(out);
+    }
+
+    @Override
+    protected void readState(DataInput in) throws IOException {
+        if (!compiler.getEntryRule().equals(in.readUTF()) || !compiler.getExitRule().equals(in.readUTF())) {
+            throw new IOException("快照的规则与当前配置不同");
+        }
+        rule.readState(in);
+    }
+}
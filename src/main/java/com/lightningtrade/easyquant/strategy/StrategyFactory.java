@@ -43,6 +43,8 @@ public class StrategyFactory {
                 return new DoubleMAStrategy(config.getShortPeriod(), config.getLongPeriod());
             case "BOLL":
                 return new BollingerBandsStrategy(config.getShortPeriod(), config.getKValue());
+            case "RULE":
+                return new RuleStrategy(config.getEntryRule(), config.getExitRule());
             default:
                 throw new IllegalArgumentException("不支持的策略类型: " + config.getType());
         }
@@ -52,7 +54,7 @@ public class StrategyFactory {
      * 获取所有支持的策略类型
      */
     public String[] getSupportedStrategyTypes() {
-        return new String[] { "MA", "MA_CROSS", "MACD", "RSI", "DOUBLE_MA", "BOLL" };
+        return new String[] { "MA", "MA_CROSS", "MACD", "RSI", "DOUBLE_MA", "BOLL", "RULE" };
     }
 
     /**
@@ -86,6 +88,10 @@ public class StrategyFactory {
                 params.put("period", 20);
                 params.put("kValue", 2.0);
                 break;
+            case "RULE":
+                params.put("entryRule", "RSI(14) < 30 and close > SMA(200)");
+                params.put("exitRule", "RSI(14) > 70");
+                break;
             default:
                 throw new IllegalArgumentException("不支持的策略类型: " + strategyType);
         }
@@ -0,0 +1,150 @@
+package com.lightningtrade.easyquant.strategy;
+
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.indicator.IndicatorGraph;
+import com.lightningtrade.easyquant.resample.BarResampler;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.store.BarRingBuffer;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 策略使用的较高周期
+ * 高周期K线由基础周期K线逐根增量聚合得到，不需要另外读取数据。
+ * 只有已完成的高周期K线才会进入K线缓冲区并更新该周期的计算图：
+ * 一根高周期K线在下一个周期的第一根基础K线到达时完成，之前看到的都是已完成周期的数据，不存在未来数据。
+ */
+public final class Timeframe {
+    private final KType kType;
+    private final IndicatorGraph graph = new IndicatorGraph();
+    // 就绪需要的已完成K线数量
+    private int requiredBars;
+    // 已完成的高周期K线，容量为requiredBars，首次使用时创建
+    private BarRingBuffer bars;
+    private BarResampler.Incremental resampler;
+    // 增量聚合器输出的已完成K线
+    private final BarArrays completed = new BarArrays(1);
+    // 一根高周期K线最多包含的基础周期K线数量，绑定后有效
+    private int baseBarsPerBar;
+
+    Timeframe(KType kType) {
+        this.kType = kType;
+    }
+
+    void require(int count) {
+        if (bars != null) {
+            throw new IllegalStateException("高周期K线缓冲区已创建，不能再修改所需K线数量: " + kType);
+        }
+        requiredBars = Math.max(requiredBars, count);
+    }
+
+    /**
+     * 为高周期创建增量聚合器
+     *
+     * @throws IllegalArgumentException 高周期无法由基础周期聚合得到
+     */
+    void bind(MarketSession session, KType baseKType) {
+        resampler = BarResampler.of(session, baseKType, kType).incremental();
+        baseBarsPerBar = BarResampler.maxSourceBars(session, baseKType, kType);
+    }
+
+    /**
+     * 就绪需要的基础周期K线数量：所需的已完成K线，再加上一根尚未完成的K线
+     * 未绑定时返回0
+     */
+    int getWarmUpBars() {
+        return (requiredBars + 1) * baseBarsPerBar;
+    }
+
+    /**
+     * 输入一根基础周期K线
+     *
+     * @return 是否完成了一根高周期K线
+     */
+    boolean update(long t, double o, double h, double l, double c, double v) {
+        if (resampler == null) {
+            throw new IllegalStateException("策略使用了" + kType + "周期，需要先绑定市场和基础K线周期");
+        }
+        completed.clear();
+        if (!resampler.update(t, o, h, l, c, v, completed)) {
+            return false;
+        }
+        getBarsBuffer().add(completed.getTime(0), completed.getOpen(0), completed.getHigh(0),
+                completed.getLow(0), completed.getClose(0), completed.getVolume(0));
+        graph.advance(completed.getTime(0), completed.getClose(0));
+        return true;
+    }
+
+    public KType getKType() {
+        return kType;
+    }
+
+    /**
+     * 该周期的计算图，只用已完成的K线更新
+     */
+    public IndicatorGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 最近已完成的高周期K线，最多保留所需数量
+     */
+    public BarColumns getBars() {
+        return getBarsBuffer();
+    }
+
+    /**
+     * 已完成的K线数量是否满足所需数量
+     */
+    public boolean isReady() {
+        return getBarsBuffer().size() >= requiredBars;
+    }
+
+    void writeState(DataOutput out) throws IOException {
+        if (resampler == null) {
+            throw new IOException("高周期未绑定市场: " + kType);
+        }
+        BarColumns buffer = getBarsBuffer();
+        out.writeInt(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            out.writeLong(buffer.getTime(i));
+            out.writeDouble(buffer.getOpen(i));
+            out.writeDouble(buffer.getHigh(i));
+            out.writeDouble(buffer.getLow(i));
+            out.writeDouble(buffer.getClose(i));
+            out.writeDouble(buffer.getVolume(i));
+        }
+        resampler.writeState(out);
+    }
+
+    void readState(DataInput in) throws IOException {
+        if (resampler == null) {
+            throw new IOException("高周期未绑定市场: " + kType);
+        }
+        BarRingBuffer buffer = getBarsBuffer();
+        int count = in.readInt();
+        if (count < 0 || count > buffer.capacity()) {
+            throw new IOException("快照K线数量无效: " + count);
+        }
+        buffer.clear();
+        for (int i = 0; i < count; i++) {
+            buffer.add(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble());
+        }
+        resampler.readState(in);
+        if (count > 0) {
+            graph.markUpdated(buffer.getTime(count - 1));
+        }
+    }
+
+    private BarRingBuffer getBarsBuffer() {
+        if (bars == null) {
+            bars = new BarRingBuffer(Math.max(requiredBars, 1));
+        }
+        return bars;
+    }
+}
@@ -1,11 +1,113 @@
 package com.lightningtrade.easyquant.strategy;
 
-import com.lightningtrade.easyquant.backtest.BacktestResult;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.indicator.IndicatorGraph;
 import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarColumns;
 import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
 
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 public interface TradingStrategy {
-    BacktestResult backtest(String symbol, List<MarketData> data, double initialCapital, KType kType);
+    /**
+     * 绑定指标计算图，策略的指标从计算图订阅，与同一行情上的其他策略共用
+     * 必须在处理第一根K线之前调用；不调用时策略使用自己独立的计算图
+     * 计算图已处理过的K线不会重复更新指标，策略读取的是计算图当前的指标值
+     */
+    void attach(IndicatorGraph graph);
+
+    /**
+     * 指定市场和基础K线周期，为策略声明的较高周期创建增量聚合器
+     * 使用多周期的策略必须在处理第一根K线之前调用；没有声明高周期的策略调用后没有影响
+     *
+     * @throws IllegalArgumentException 声明的高周期无法由基础周期聚合得到
+     */
+    void bindTimeframes(MarketSession session, KType baseKType);
+
+    /**
+     * 处理一根K线，更新策略状态并返回交易信号
+     * 回测引擎和实盘交易服务都按时间顺序逐根调用，同一实例不能并发调用
+     *
+     * @param bar K线数据
+     * @return 交易信号，没有信号时返回Signal.NONE
+     */
+    Signal onBar(MarketData bar);
+
+    /**
+     * 批量计算一段K线的信号，用于回测
+     * 结果和处理后的策略状态都与按顺序逐根调用onBar相同。
+     * 默认实现逐根调用onBar，策略可以改为在原始类型数组上按列计算指标和信号。
+     *
+     * @param bars 按时间升序的K线
+     * @return 与K线一一对应的信号列
+     */
+    default Signal[] computeSignals(BarColumns bars) {
+        Signal[] signals = new Signal[bars.size()];
+        MarketData bar = new MarketData();
+        for (int i = 0; i < signals.length; i++) {
+            bar.setTimestamp(bars.getTime(i));
+            bar.setOpen(bars.getOpen(i));
+            bar.setHigh(bars.getHigh(i));
+            bar.setLow(bars.getLow(i));
+            bar.setClose(bars.getClose(i));
+            bar.setVolume((long) bars.getVolume(i));
+            signals[i] = onBar(bar);
+        }
+        return signals;
+    }
+
+    /**
+     * 产生第一个交易信号前需要的K线数量
+     * 策略内部只保留这个数量的K线，预热时也只需要推送这么多历史K线
+     */
+    int getLookbackPeriod();
+
+    /**
+     * 预热到可以产生信号需要的基础周期K线数量
+     * 使用较高周期的策略还要包含各高周期所需K线折算成的基础周期K线，默认等于回看周期
+     */
+    default int getWarmUpBars() {
+        return getLookbackPeriod();
+    }
+
+    /**
+     * 策略声明的较高周期，没有时为空
+     * 不为空时必须先调用bindTimeframes
+     */
+    default Set<KType> getTimeframes() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 用历史K线预热策略状态，只更新指标，不产生交易
+     * 不晚于策略已处理的最后一根K线的数据会被跳过，可以在恢复快照后继续调用
+     *
+     * @param symbol 股票代码
+     * @param bars   按时间升序的历史K线
+     * @return 实际处理的K线数量
+     */
+    int prime(String symbol, BarColumns bars);
+
+    /**
+     * 已处理的K线是否达到回看周期，可以产生交易信号
+     */
+    boolean isReady();
+
+    /**
+     * 保存策略状态（最近K线和指标状态）到快照
+     */
+    void saveState(DataOutput out) throws IOException;
+
+    /**
+     * 从快照恢复策略状态
+     * 失败时策略状态可能只恢复了一部分，调用方应丢弃该实例
+     *
+     * @throws IOException 快照损坏，或快照与当前策略的类型、参数不一致
+     */
+    void restoreState(DataInput in) throws IOException;
 }
\ No newline at end of file
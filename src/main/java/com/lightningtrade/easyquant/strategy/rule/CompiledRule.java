@@ -0,0 +1,100 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import com.lightningtrade.easyquant.indicator.Indicator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 编译后的入场、出场规则
+ * 每根K线的处理顺序：update（写入当前K线，计算需要保留前值的子表达式）→ isEntry/isExit → commit
+ */
+public final class CompiledRule {
+    private final RuleContext context;
+    private final BooleanSupplier entry;
+    private final BooleanSupplier exit;
+    private final Indicator[] indicators;
+    private final Lag[] lags;
+
+    CompiledRule(RuleContext context, BooleanSupplier entry, BooleanSupplier exit, Indicator[] indicators,
+            Lag[] lags) {
+        this.context = context;
+        this.entry = entry;
+        this.exit = exit;
+        this.indicators = indicators;
+        this.lags = lags;
+    }
+
+    /**
+     * 写入当前K线，调用前计算图应已用当前K线更新
+     */
+    public void update(double open, double high, double low, double close, double volume) {
+        context.set(open, high, low, close, volume);
+        for (Lag lag : lags) {
+            lag.current = lag.expression.getAsDouble();
+        }
+    }
+
+    public boolean isEntry() {
+        return entry.getAsBoolean();
+    }
+
+    public boolean isExit() {
+        return exit.getAsBoolean();
+    }
+
+    /**
+     * 当前K线处理完毕，当前值成为下一根K线的前值
+     */
+    public void commit() {
+        for (Lag lag : lags) {
+            lag.previous = lag.current;
+        }
+    }
+
+    /**
+     * 写入规则用到的指标状态和各子表达式的前值
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(indicators.length);
+        for (Indicator indicator : indicators) {
+            indicator.writeState(out);
+        }
+        out.writeInt(lags.length);
+        for (Lag lag : lags) {
+            out.writeDouble(lag.previous);
+        }
+    }
+
+    public void readState(DataInput in) throws IOException {
+        if (in.readInt() != indicators.length) {
+            throw new IOException("快照与规则不匹配");
+        }
+        for (Indicator indicator : indicators) {
+            indicator.readState(in);
+        }
+        if (in.readInt() != lags.length) {
+            throw new IOException("快照与规则不匹配");
+        }
+        for (Lag lag : lags) {
+            lag.previous = in.readDouble();
+            lag.current = lag.previous;
+        }
+    }
+
+    /**
+     * 需要前一根K线值的子表达式（PREV和交叉），保存当前值和前值
+     */
+    static final class Lag {
+        final DoubleSupplier expression;
+        double current = Double.NaN;
+        double previous = Double.NaN;
+
+        Lag(DoubleSupplier expression) {
+            this.expression = expression;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import com.lightningtrade.easyquant.indicator.Indicator;
+import com.lightningtrade.easyquant.indicator.IndicatorGraph;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * 规则表达式编译器
+ * 创建时解析入场和出场规则，语法错误立即抛出；compile时把语法树编译为嵌套的lambda，
+ * 指标从计算图订阅，每个节点只生成一次闭包，逐K线求值时不再解释语法树。
+ *
+ * 编译时做常量折叠（如 70 / 2 → 35），比较和交叉的一侧为常量时生成直接与常量比较的闭包。
+ *
+ * 带周期后缀的价格和指标（如 close@day、SMA(50)@day）从策略提供的该周期已完成K线和计算图取值。
+ */
+public final class RuleCompiler {
+    private final String entryRule;
+    private final String exitRule;
+    private final RuleNode entry;
+    private final RuleNode exit;
+
+    /**
+     * @param entryRule 入场（买入）规则
+     * @param exitRule  出场（卖出）规则
+     * @throws RuleSyntaxException 规则语法或类型错误
+     */
+    public RuleCompiler(String entryRule, String exitRule) {
+        this.entryRule = entryRule;
+        this.exitRule = exitRule;
+        this.entry = RuleParser.parse(entryRule);
+        this.exit = RuleParser.parse(exitRule);
+    }
+
+    public String getEntryRule() {
+        return entryRule;
+    }
+
+    public String getExitRule() {
+        return exitRule;
+    }
+
+    /**
+     * 两条规则的值都有效前需要的基础周期K线数量
+     */
+    public int getWarmUp() {
+        return Math.max(entry.warmUp(null), exit.warmUp(null));
+    }
+
+    /**
+     * 规则引用的较高周期，以及各周期的值都有效前需要的已完成K线数量
+     */
+    public Map<KType, Integer> getTimeframes() {
+        Set<KType> kTypes = new LinkedHashSet<>();
+        entry.collectTimeframes(kTypes);
+        exit.collectTimeframes(kTypes);
+        Map<KType, Integer> result = new LinkedHashMap<>();
+        for (KType kType : kTypes) {
+            result.put(kType, Math.max(entry.warmUp(kType), exit.warmUp(kType)));
+        }
+        return result;
+    }
+
+    /**
+     * 编译规则
+     *
+     * @param graph            基础周期的计算图
+     * @param timeframeGraphs  较高周期的计算图
+     * @param timeframeBars    较高周期的已完成K线
+     */
+    public CompiledRule compile(IndicatorGraph graph, Function<KType, IndicatorGraph> timeframeGraphs,
+            Function<KType, BarColumns> timeframeBars) {
+        Emitter emitter = new Emitter(graph, timeframeGraphs, timeframeBars);
+        BooleanSupplier entryCondition = emitter.condition(entry);
+        BooleanSupplier exitCondition = emitter.condition(exit);
+        return new CompiledRule(emitter.context, entryCondition, exitCondition,
+                emitter.indicators.toArray(new Indicator[0]), emitter.lags.toArray(new CompiledRule.Lag[0]));
+    }
+
+    /**
+     * 常量子表达式的值，不是常量时返回null
+     */
+    private static Double constantValue(RuleNode node) {
+        if (node instanceof RuleNode.Constant) {
+            return ((RuleNode.Constant) node).value;
+        }
+        if (node instanceof RuleNode.Unary && !node.isCondition()) {
+            Double operand = constantValue(((RuleNode.Unary) node).operand);
+            return operand == null ? null : -operand;
+        }
+        if (node instanceof RuleNode.Binary && ((RuleNode.Binary) node).isArithmetic()) {
+            RuleNode.Binary binary = (RuleNode.Binary) node;
+            Double left = constantValue(binary.left);
+            Double right = constantValue(binary.right);
+            if (left == null || right == null) {
+                return null;
+            }
+            return arithmetic(binary.operator, left, right);
+        }
+        return null;
+    }
+
+    private static double arithmetic(String operator, double left, double right) {
+        switch (operator) {
+            case "+":
+                return left + right;
+            case "-":
+                return left - right;
+            case "*":
+                return left * right;
+            default:
+                return left / right;
+        }
+    }
+
+    // 交换比较两侧时对应的运算符
+    private static String flip(String operator) {
+        switch (operator) {
+            case "<":
+                return ">";
+            case "<=":
+                return ">=";
+            case ">":
+                return "<";
+            case ">=":
+                return "<=";
+            default:
+                return operator;
+        }
+    }
+
+    private static boolean compareConstants(String operator, double left, double right) {
+        switch (operator) {
+            case "<":
+                return left < right;
+            case "<=":
+                return left <= right;
+            case ">":
+                return left > right;
+            case ">=":
+                return left >= right;
+            case "==":
+                return left == right;
+            default:
+                return left != right;
+        }
+    }
+
+    /**
+     * 一次编译的状态：当前K线、计算图、订阅到的指标和需要保留前值的子表达式
+     */
+    private static final class Emitter {
+        private final RuleContext context = new RuleContext();
+        private final IndicatorGraph graph;
+        private final Function<KType, IndicatorGraph> timeframeGraphs;
+        private final Function<KType, BarColumns> timeframeBars;
+        // 订阅到的指标，按订阅顺序，不重复
+        private final List<Indicator> indicators = new ArrayList<>();
+        private final List<CompiledRule.Lag> lags = new ArrayList<>();
+
+        Emitter(IndicatorGraph graph, Function<KType, IndicatorGraph> timeframeGraphs,
+                Function<KType, BarColumns> timeframeBars) {
+            this.graph = graph;
+            this.timeframeGraphs = timeframeGraphs;
+            this.timeframeBars = timeframeBars;
+        }
+
+        DoubleSupplier number(RuleNode node) {
+            Double constant = constantValue(node);
+            if (constant != null) {
+                double value = constant;
+                return () -> value;
+            }
+            if (node instanceof RuleNode.Price) {
+                RuleNode.Price price = (RuleNode.Price) node;
+                return price.timeframe == null ? price(price.field)
+                        : price(price.field, timeframeBars.apply(price.timeframe));
+            }
+            if (node instanceof RuleNode.Call) {
+                RuleNode.Call call = (RuleNode.Call) node;
+                return call.function.reader(indicator(call));
+            }
+            if (node instanceof RuleNode.Prev) {
+                CompiledRule.Lag lag = lag(number(((RuleNode.Prev) node).operand));
+                return () -> lag.previous;
+            }
+            if (node instanceof RuleNode.Unary) {
+                DoubleSupplier operand = number(((RuleNode.Unary) node).operand);
+                return () -> -operand.getAsDouble();
+            }
+            RuleNode.Binary binary = (RuleNode.Binary) node;
+            Double rightConstant = constantValue(binary.right);
+            DoubleSupplier left = number(binary.left);
+            if (rightConstant != null) {
+                double right = rightConstant;
+                switch (binary.operator) {
+                    case "+":
+                        return () -> left.getAsDouble() + right;
+                    case "-":
+                        return () -> left.getAsDouble() - right;
+                    case "*":
+                        return () -> left.getAsDouble() * right;
+                    default:
+                        return () -> left.getAsDouble() / right;
+                }
+            }
+            DoubleSupplier right = number(binary.right);
+            switch (binary.operator) {
+                case "+":
+                    return () -> left.getAsDouble() + right.getAsDouble();
+                case "-":
+                    return () -> left.getAsDouble() - right.getAsDouble();
+                case "*":
+                    return () -> left.getAsDouble() * right.getAsDouble();
+                default:
+                    return () -> left.getAsDouble() / right.getAsDouble();
+            }
+        }
+
+        BooleanSupplier condition(RuleNode node) {
+            if (node instanceof RuleNode.Unary) {
+                BooleanSupplier operand = condition(((RuleNode.Unary) node).operand);
+                return () -> !operand.getAsBoolean();
+            }
+            if (node instanceof RuleNode.Cross) {
+                return cross((RuleNode.Cross) node);
+            }
+            RuleNode.Binary binary = (RuleNode.Binary) node;
+            if (binary.isLogical()) {
+                BooleanSupplier left = condition(binary.left);
+                BooleanSupplier right = condition(binary.right);
+                if ("and".equals(binary.operator)) {
+                    return () -> left.getAsBoolean() && right.getAsBoolean();
+                }
+                return () -> left.getAsBoolean() || right.getAsBoolean();
+            }
+
+            // 比较，常量一侧统一放到右边
+            String operator = binary.operator;
+            RuleNode leftNode = binary.left;
+            RuleNode rightNode = binary.right;
+            Double leftConstant = constantValue(leftNode);
+            Double rightConstant = constantValue(rightNode);
+            if (leftConstant != null && rightConstant != null) {
+                boolean value = compareConstants(operator, leftConstant, rightConstant);
+                return () -> value;
+            }
+            if (leftConstant != null) {
+                operator = flip(operator);
+                leftNode = binary.right;
+                rightConstant = leftConstant;
+            }
+            DoubleSupplier left = number(leftNode);
+            if (rightConstant != null) {
+                return compare(operator, left, rightConstant);
+            }
+            return compare(operator, left, number(rightNode));
+        }
+
+        private BooleanSupplier cross(RuleNode.Cross node) {
+            CompiledRule.Lag left = lag(number(node.left));
+            Double constant = constantValue(node.right);
+            if (constant != null) {
+                double right = constant;
+                if (node.above) {
+                    return () -> left.previous <= right && left.current > right;
+                }
+                return () -> left.previous >= right && left.current < right;
+            }
+            CompiledRule.Lag right = lag(number(node.right));
+            if (node.above) {
+                return () -> left.previous <= right.previous && left.current > right.current;
+            }
+            return () -> left.previous >= right.previous && left.current < right.current;
+        }
+
+        private static BooleanSupplier compare(String operator, DoubleSupplier left, double right) {
+            switch (operator) {
+                case "<":
+                    return () -> left.getAsDouble() < right;
+                case "<=":
+                    return () -> left.getAsDouble() <= right;
+                case ">":
+                    return () -> left.getAsDouble() > right;
+                case ">=":
+                    return () -> left.getAsDouble() >= right;
+                case "==":
+                    return () -> left.getAsDouble() == right;
+                default:
+                    return () -> left.getAsDouble() != right;
+            }
+        }
+
+        private static BooleanSupplier compare(String operator, DoubleSupplier left, DoubleSupplier right) {
+            switch (operator) {
+                case "<":
+                    return () -> left.getAsDouble() < right.getAsDouble();
+                case "<=":
+                    return () -> left.getAsDouble() <= right.getAsDouble();
+                case ">":
+                    return () -> left.getAsDouble() > right.getAsDouble();
+                case ">=":
+                    return () -> left.getAsDouble() >= right.getAsDouble();
+                case "==":
+                    return () -> left.getAsDouble() == right.getAsDouble();
+                default:
+                    return () -> left.getAsDouble() != right.getAsDouble();
+            }
+        }
+
+        private DoubleSupplier price(String field) {
+            RuleContext bar = context;
+            switch (field) {
+                case "open":
+                    return () -> bar.open;
+                case "high":
+                    return () -> bar.high;
+                case "low":
+                    return () -> bar.low;
+                case "close":
+                    return () -> bar.close;
+                default:
+                    return () -> bar.volume;
+            }
+        }
+
+        // 较高周期最近一根已完成K线的值，还没有完成的K线时为NaN
+        private static DoubleSupplier price(String field, BarColumns bars) {
+            switch (field) {
+                case "open":
+                    return () -> bars.size() == 0 ? Double.NaN : bars.getOpen(bars.size() - 1);
+                case "high":
+                    return () -> bars.size() == 0 ? Double.NaN : bars.getHigh(bars.size() - 1);
+                case "low":
+                    return () -> bars.size() == 0 ? Double.NaN : bars.getLow(bars.size() - 1);
+                case "close":
+                    return () -> bars.size() == 0 ? Double.NaN : bars.getClose(bars.size() - 1);
+                default:
+                    return () -> bars.size() == 0 ? Double.NaN : bars.getVolume(bars.size() - 1);
+            }
+        }
+
+        private Indicator indicator(RuleNode.Call call) {
+            Indicator input = call.input == null ? null : indicator(call.input);
+            IndicatorGraph target = call.timeframe == null ? graph : timeframeGraphs.apply(call.timeframe);
+            Indicator indicator = target.subscribe(call.function.key(call.params), input,
+                    () -> call.function.create(call.params));
+            if (indicators.stream().noneMatch(existing -> existing == indicator)) {
+                indicators.add(indicator);
+            }
+            return indicator;
+        }
+
+        private CompiledRule.Lag lag(DoubleSupplier expression) {
+            CompiledRule.Lag lag = new CompiledRule.Lag(expression);
+            lags.add(lag);
+            return lag;
+        }
+    }
+}
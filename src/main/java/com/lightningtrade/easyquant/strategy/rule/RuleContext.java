@@ -0,0 +1,21 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+/**
+ * 规则求值时的当前K线
+ * 编译后的表达式直接读取这里的字段，策略在每根K线求值前写入
+ */
+final class RuleContext {
+    double open;
+    double high;
+    double low;
+    double close;
+    double volume;
+
+    void set(double open, double high, double low, double close, double volume) {
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+}
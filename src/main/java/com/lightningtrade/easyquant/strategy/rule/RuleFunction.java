@@ -0,0 +1,167 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import com.lightningtrade.easyquant.indicator.BollingerBandsIndicator;
+import com.lightningtrade.easyquant.indicator.EMAIndicator;
+import com.lightningtrade.easyquant.indicator.Indicator;
+import com.lightningtrade.easyquant.indicator.MACDIndicator;
+import com.lightningtrade.easyquant.indicator.RSIIndicator;
+import com.lightningtrade.easyquant.indicator.SMAIndicator;
+import com.lightningtrade.easyquant.indicator.StandardDeviationIndicator;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * 规则表达式中可用的指标函数
+ * 指标定义（key）与内置策略使用的一致，规则策略与内置策略在同一计算图上共用指标节点
+ *
+ * - SMA(n[, 输入])、EMA(n[, 输入])、RSI(n[, 输入])、STDDEV(n[, 输入])：输入默认为收盘价，
+ *   也可以是另一个指标，如 SMA(5, RSI(14))
+ * - MACD(fast, slow, signal)、MACD_SIGNAL(...)、MACD_HIST(...)：DIF、DEA、MACD柱
+ * - BOLL_UPPER(n, k)、BOLL_MIDDLE(n, k)、BOLL_LOWER(n, k)：布林带上轨、中轨、下轨
+ */
+enum RuleFunction {
+    SMA(1, true),
+    EMA(1, true),
+    RSI(1, true),
+    STDDEV(1, true),
+    MACD(3, false),
+    MACD_SIGNAL(3, false),
+    MACD_HIST(3, false),
+    BOLL_UPPER(2, false),
+    BOLL_MIDDLE(2, false),
+    BOLL_LOWER(2, false);
+
+    // 数值参数个数
+    private final int paramCount;
+    // 是否可以指定输入指标
+    private final boolean acceptsInput;
+
+    RuleFunction(int paramCount, boolean acceptsInput) {
+        this.paramCount = paramCount;
+        this.acceptsInput = acceptsInput;
+    }
+
+    int getParamCount() {
+        return paramCount;
+    }
+
+    boolean acceptsInput() {
+        return acceptsInput;
+    }
+
+    /**
+     * 函数值是否等于指标的getValue()，只有这样的函数可以作为其他指标的输入
+     */
+    boolean isValueOutput() {
+        return this != MACD_SIGNAL && this != MACD_HIST && this != BOLL_UPPER && this != BOLL_LOWER;
+    }
+
+    /**
+     * 校验参数，返回错误信息，参数有效时返回null
+     */
+    String validate(double[] params) {
+        for (int i = 0; i < params.length; i++) {
+            boolean isMultiplier = (this == BOLL_UPPER || this == BOLL_MIDDLE || this == BOLL_LOWER) && i == 1;
+            if (isMultiplier) {
+                if (!(params[i] > 0)) {
+                    return name() + " 的标准差倍数必须大于0";
+                }
+            } else if (params[i] < 1 || params[i] != Math.rint(params[i]) || params[i] > 100000) {
+                return name() + " 的周期必须是正整数";
+            }
+        }
+        if (paramCount == 3 && params[0] >= params[1]) {
+            return name() + " 的快线周期必须小于慢线周期";
+        }
+        return null;
+    }
+
+    /**
+     * 计算图中的指标定义
+     */
+    String key(double[] params) {
+        switch (this) {
+            case SMA:
+            case EMA:
+            case RSI:
+                return name() + "(" + (int) params[0] + ")";
+            case STDDEV:
+                return "STD(" + (int) params[0] + ")";
+            case MACD:
+            case MACD_SIGNAL:
+            case MACD_HIST:
+                return "MACD(" + (int) params[0] + "," + (int) params[1] + "," + (int) params[2] + ")";
+            default:
+                return "BOLL(" + (int) params[0] + "," + params[1] + ")";
+        }
+    }
+
+    Indicator create(double[] params) {
+        int period = (int) params[0];
+        switch (this) {
+            case SMA:
+                return new SMAIndicator(period);
+            case EMA:
+                return new EMAIndicator(period);
+            case RSI:
+                return new RSIIndicator(period);
+            case STDDEV:
+                return new StandardDeviationIndicator(period);
+            case MACD:
+            case MACD_SIGNAL:
+            case MACD_HIST:
+                return new MACDIndicator(period, (int) params[1], (int) params[2]);
+            default:
+                return new BollingerBandsIndicator(period, params[1]);
+        }
+    }
+
+    /**
+     * 读取函数值的表达式
+     */
+    DoubleSupplier reader(Indicator indicator) {
+        switch (this) {
+            case MACD_SIGNAL: {
+                MACDIndicator macd = (MACDIndicator) indicator;
+                return macd::getSignal;
+            }
+            case MACD_HIST: {
+                MACDIndicator macd = (MACDIndicator) indicator;
+                return macd::getHistogram;
+            }
+            case BOLL_UPPER: {
+                BollingerBandsIndicator bands = (BollingerBandsIndicator) indicator;
+                return bands::getUpper;
+            }
+            case BOLL_MIDDLE: {
+                BollingerBandsIndicator bands = (BollingerBandsIndicator) indicator;
+                return bands::getMiddle;
+            }
+            case BOLL_LOWER: {
+                BollingerBandsIndicator bands = (BollingerBandsIndicator) indicator;
+                return bands::getLower;
+            }
+            default:
+                return indicator::getValue;
+        }
+    }
+
+    /**
+     * 指标就绪需要的输入个数
+     */
+    int warmUp(double[] params) {
+        if (paramCount == 3) {
+            return (int) params[1] + (int) params[2];
+        }
+        return (int) params[0];
+    }
+
+    static RuleFunction of(String name) {
+        for (RuleFunction function : values()) {
+            if (function.name().equalsIgnoreCase(name)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,268 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.util.Set;
+
+/**
+ * 规则表达式语法树节点
+ * 解析时完成类型检查：数值节点与条件节点不能混用
+ */
+abstract class RuleNode {
+    // 节点在表达式中的位置，用于报错
+    final int position;
+
+    RuleNode(int position) {
+        this.position = position;
+    }
+
+    /**
+     * 是否是条件（布尔值）节点
+     */
+    abstract boolean isCondition();
+
+    /**
+     * 节点的值有效前需要的timeframe周期K线数量，timeframe为null表示基础周期
+     */
+    abstract int warmUp(KType timeframe);
+
+    /**
+     * 收集节点引用的较高周期
+     */
+    abstract void collectTimeframes(Set<KType> out);
+
+    /**
+     * 数值常量
+     */
+    static final class Constant extends RuleNode {
+        final double value;
+
+        Constant(int position, double value) {
+            super(position);
+            this.value = value;
+        }
+
+        @Override
+        boolean isCondition() {
+            return false;
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            return 0;
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+        }
+    }
+
+    /**
+     * 当前K线的价格或成交量：open、high、low、close、volume
+     * 指定较高周期时（如 close@day）为该周期最近一根已完成K线的值
+     */
+    static final class Price extends RuleNode {
+        final String field;
+        final KType timeframe;
+
+        Price(int position, String field, KType timeframe) {
+            super(position);
+            this.field = field;
+            this.timeframe = timeframe;
+        }
+
+        @Override
+        boolean isCondition() {
+            return false;
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            return this.timeframe == timeframe ? 1 : 0;
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            if (timeframe != null) {
+                out.add(timeframe);
+            }
+        }
+    }
+
+    /**
+     * 指标函数调用，input为null时以收盘价为输入
+     * 指定较高周期时（如 SMA(50)@day）在该周期的已完成K线上计算，输入指标也在同一周期上计算
+     */
+    static final class Call extends RuleNode {
+        final RuleFunction function;
+        final double[] params;
+        final Call input;
+        final KType timeframe;
+
+        Call(int position, RuleFunction function, double[] params, Call input, KType timeframe) {
+            super(position);
+            this.function = function;
+            this.params = params;
+            this.input = input;
+            this.timeframe = timeframe;
+        }
+
+        /**
+         * 同一周期的输入链共用外层调用的周期
+         */
+        Call withTimeframe(KType kType) {
+            return new Call(position, function, params, input == null ? null : input.withTimeframe(kType), kType);
+        }
+
+        @Override
+        boolean isCondition() {
+            return false;
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            if (this.timeframe != timeframe) {
+                return 0;
+            }
+            int own = function.warmUp(params);
+            return input == null ? own : input.warmUp(timeframe) + own - 1;
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            if (timeframe != null) {
+                out.add(timeframe);
+            }
+        }
+    }
+
+    /**
+     * 前一根K线时的值：PREV(x)
+     */
+    static final class Prev extends RuleNode {
+        final RuleNode operand;
+
+        Prev(int position, RuleNode operand) {
+            super(position);
+            this.operand = operand;
+        }
+
+        @Override
+        boolean isCondition() {
+            return false;
+        }
+
+        // 前值按基础周期K线保留，只在基础周期上多需要一根K线
+        @Override
+        int warmUp(KType timeframe) {
+            return operand.warmUp(timeframe) + (timeframe == null ? 1 : 0);
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            operand.collectTimeframes(out);
+        }
+    }
+
+    /**
+     * 一元运算：负号（数值）或 not（条件）
+     */
+    static final class Unary extends RuleNode {
+        final char operator;
+        final RuleNode operand;
+
+        Unary(int position, char operator, RuleNode operand) {
+            super(position);
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        boolean isCondition() {
+            return operator == '!';
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            return operand.warmUp(timeframe);
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            operand.collectTimeframes(out);
+        }
+    }
+
+    /**
+     * 二元运算：算术（+ - * /）、比较（< <= > >= == !=）、逻辑（and or）
+     */
+    static final class Binary extends RuleNode {
+        final String operator;
+        final RuleNode left;
+        final RuleNode right;
+
+        Binary(int position, String operator, RuleNode left, RuleNode right) {
+            super(position);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isArithmetic() {
+            return operator.length() == 1 && "+-*/".contains(operator);
+        }
+
+        boolean isLogical() {
+            return "and".equals(operator) || "or".equals(operator);
+        }
+
+        @Override
+        boolean isCondition() {
+            return !isArithmetic();
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            return Math.max(left.warmUp(timeframe), right.warmUp(timeframe));
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            left.collectTimeframes(out);
+            right.collectTimeframes(out);
+        }
+    }
+
+    /**
+     * 交叉：left crosses above/below right
+     * 上穿：前一根K线 left <= right 且当前 left > right；下穿：前一根K线 left >= right 且当前 left < right
+     */
+    static final class Cross extends RuleNode {
+        final boolean above;
+        final RuleNode left;
+        final RuleNode right;
+
+        Cross(int position, boolean above, RuleNode left, RuleNode right) {
+            super(position);
+            this.above = above;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean isCondition() {
+            return true;
+        }
+
+        @Override
+        int warmUp(KType timeframe) {
+            return Math.max(left.warmUp(timeframe), right.warmUp(timeframe)) + (timeframe == null ? 1 : 0);
+        }
+
+        @Override
+        void collectTimeframes(Set<KType> out) {
+            left.collectTimeframes(out);
+            right.collectTimeframes(out);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 规则表达式解析器（递归下降）
+ *
+ * 语法（关键字和函数名不区分大小写）：
+ * <pre>
+ * condition  := and ( ("or" | "||") and )*
+ * and        := not ( ("and" | "&&") not )*
+ * not        := ("not" | "!") not | comparison
+ * comparison := sum [ ("<" | "<=" | ">" | ">=" | "==" | "!=") sum | "crosses" ("above" | "below") sum ]
+ * sum        := product ( ("+" | "-") product )*
+ * product    := unary ( ("*" | "/") unary )*
+ * unary      := "-" unary | primary
+ * primary    := 数字 | "(" condition ")" | price ["@" 周期] | "PREV" "(" sum ")" | call ["@" 周期]
+ * price      := open | high | low | close | volume
+ * call       := 指标函数 "(" 数字 ("," 数字)* ["," call] ")"
+ * </pre>
+ * 周期为K线类型名称（如 day、min60），表示在该较高周期的已完成K线上取值
+ */
+final class RuleParser {
+    private static final int NUMBER = 0;
+    private static final int WORD = 1;
+    private static final int SYMBOL = 2;
+    private static final int END = 3;
+
+    private final String expression;
+    private final List<Token> tokens;
+    private int index;
+
+    private RuleParser(String expression) {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+    }
+
+    /**
+     * 解析条件表达式
+     *
+     * @throws RuleSyntaxException 语法或类型错误
+     */
+    static RuleNode parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new RuleSyntaxException("规则表达式不能为空", String.valueOf(expression), 0);
+        }
+        RuleParser parser = new RuleParser(expression);
+        RuleNode node = parser.condition();
+        if (parser.peek().type != END) {
+            throw parser.error("无法识别的内容 '" + parser.peek().text + "'", parser.peek().position);
+        }
+        return parser.requireCondition(node);
+    }
+
+    private RuleNode condition() {
+        RuleNode left = and();
+        while (acceptWord("or") || acceptSymbol("||")) {
+            int position = previous().position;
+            left = new RuleNode.Binary(position, "or", requireCondition(left), requireCondition(and()));
+        }
+        return left;
+    }
+
+    private RuleNode and() {
+        RuleNode left = not();
+        while (acceptWord("and") || acceptSymbol("&&")) {
+            int position = previous().position;
+            left = new RuleNode.Binary(position, "and", requireCondition(left), requireCondition(not()));
+        }
+        return left;
+    }
+
+    private RuleNode not() {
+        if (acceptWord("not") || acceptSymbol("!")) {
+            int position = previous().position;
+            return new RuleNode.Unary(position, '!', requireCondition(not()));
+        }
+        return comparison();
+    }
+
+    private RuleNode comparison() {
+        RuleNode left = sum();
+        Token token = peek();
+        if (token.type == SYMBOL && isComparison(token.text)) {
+            index++;
+            return new RuleNode.Binary(token.position, token.text, requireNumber(left), requireNumber(sum()));
+        }
+        if (acceptWord("crosses")) {
+            boolean above;
+            if (acceptWord("above")) {
+                above = true;
+            } else if (acceptWord("below")) {
+                above = false;
+            } else {
+                throw error("crosses 之后应为 above 或 below", peek().position);
+            }
+            return new RuleNode.Cross(token.position, above, requireNumber(left), requireNumber(sum()));
+        }
+        return left;
+    }
+
+    private RuleNode sum() {
+        RuleNode left = product();
+        while (acceptSymbol("+") || acceptSymbol("-")) {
+            Token operator = previous();
+            left = new RuleNode.Binary(operator.position, operator.text, requireNumber(left), requireNumber(product()));
+        }
+        return left;
+    }
+
+    private RuleNode product() {
+        RuleNode left = unary();
+        while (acceptSymbol("*") || acceptSymbol("/")) {
+            Token operator = previous();
+            left = new RuleNode.Binary(operator.position, operator.text, requireNumber(left), requireNumber(unary()));
+        }
+        return left;
+    }
+
+    private RuleNode unary() {
+        if (acceptSymbol("-")) {
+            int position = previous().position;
+            return new RuleNode.Unary(position, '-', requireNumber(unary()));
+        }
+        return primary();
+    }
+
+    private RuleNode primary() {
+        Token token = peek();
+        index++;
+        if (token.type == NUMBER) {
+            return new RuleNode.Constant(token.position, Double.parseDouble(token.text));
+        }
+        if (token.type == SYMBOL && "(".equals(token.text)) {
+            RuleNode node = condition();
+            expectSymbol(")");
+            return node;
+        }
+        if (token.type == WORD) {
+            String word = token.text.toLowerCase(Locale.ROOT);
+            switch (word) {
+                case "open":
+                case "high":
+                case "low":
+                case "close":
+                case "volume":
+                    return new RuleNode.Price(token.position, word, timeframe());
+                case "prev": {
+                    expectSymbol("(");
+                    RuleNode operand = requireNumber(sum());
+                    expectSymbol(")");
+                    return new RuleNode.Prev(token.position, operand);
+                }
+                default:
+                    RuleFunction function = RuleFunction.of(word);
+                    if (function != null) {
+                        RuleNode.Call call = call(token, function);
+                        KType timeframe = timeframe();
+                        return timeframe == null ? call : call.withTimeframe(timeframe);
+                    }
+                    throw error("未知的名称 '" + token.text + "'", token.position);
+            }
+        }
+        throw error(token.type == END ? "表达式不完整" : "无法识别的内容 '" + token.text + "'", token.position);
+    }
+
+    private RuleNode.Call call(Token name, RuleFunction function) {
+        expectSymbol("(");
+        double[] params = new double[function.getParamCount()];
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                expectSymbol(",");
+            }
+            Token token = peek();
+            if (token.type != NUMBER) {
+                throw error(function.name() + " 的第" + (i + 1) + "个参数应为数字", token.position);
+            }
+            index++;
+            params[i] = Double.parseDouble(token.text);
+        }
+        String invalid = function.validate(params);
+        if (invalid != null) {
+            throw error(invalid, name.position);
+        }
+
+        RuleNode.Call input = null;
+        if (function.acceptsInput() && acceptSymbol(",")) {
+            int position = peek().position;
+            RuleNode node = primary();
+            if (!(node instanceof RuleNode.Call) || !((RuleNode.Call) node).function.isValueOutput()) {
+                throw error(function.name() + " 的输入只能是 SMA、EMA、RSI、STDDEV、MACD 或 BOLL_MIDDLE", position);
+            }
+            input = (RuleNode.Call) node;
+            if (input.timeframe != null) {
+                throw error("输入指标不能单独指定周期，周期写在最外层函数之后", position);
+            }
+        }
+        expectSymbol(")");
+        return new RuleNode.Call(name.position, function, params, input, null);
+    }
+
+    /**
+     * 可选的 "@" 周期后缀
+     */
+    private KType timeframe() {
+        if (!acceptSymbol("@")) {
+            return null;
+        }
+        Token token = peek();
+        if (token.type == WORD) {
+            for (KType kType : KType.values()) {
+                if (kType.name().equalsIgnoreCase(token.text)) {
+                    index++;
+                    return kType;
+                }
+            }
+        }
+        throw error("未知的K线周期 '" + token.text + "'", token.position);
+    }
+
+    private RuleNode requireCondition(RuleNode node) {
+        if (!node.isCondition()) {
+            throw error("此处应为条件表达式", node.position);
+        }
+        return node;
+    }
+
+    private RuleNode requireNumber(RuleNode node) {
+        if (node.isCondition()) {
+            throw error("此处应为数值表达式", node.position);
+        }
+        return node;
+    }
+
+    private static boolean isComparison(String symbol) {
+        switch (symbol) {
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+            case "==":
+            case "!=":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token previous() {
+        return tokens.get(index - 1);
+    }
+
+    private boolean acceptWord(String word) {
+        Token token = peek();
+        if (token.type == WORD && token.text.equalsIgnoreCase(word)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        Token token = peek();
+        if (token.type == SYMBOL && token.text.equals(symbol)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("此处应为 '" + symbol + "'", peek().position);
+        }
+    }
+
+    private RuleSyntaxException error(String message, int position) {
+        return new RuleSyntaxException(message, expression, position);
+    }
+
+    private List<Token> tokenize(String text) {
+        List<Token> result = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < text.length()
+                    && Character.isDigit(text.charAt(i + 1)))) {
+                int start = i;
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                String number = text.substring(start, i);
+                try {
+                    Double.parseDouble(number);
+                } catch (NumberFormatException e) {
+                    throw error("无效的数字 '" + number + "'", start);
+                }
+                result.add(new Token(NUMBER, number, start));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+                    i++;
+                }
+                result.add(new Token(WORD, text.substring(start, i), start));
+            } else {
+                String two = i + 1 < text.length() ? text.substring(i, i + 2) : "";
+                if ("<=".equals(two) || ">=".equals(two) || "==".equals(two) || "!=".equals(two)
+                        || "&&".equals(two) || "||".equals(two)) {
+                    result.add(new Token(SYMBOL, two, i));
+                    i += 2;
+                } else if ("()<>+-*/,!@".indexOf(c) >= 0) {
+                    result.add(new Token(SYMBOL, String.valueOf(c), i));
+                    i++;
+                } else {
+                    throw error("无法识别的字符 '" + c + "'", i);
+                }
+            }
+        }
+        result.add(new Token(END, "", text.length()));
+        return result;
+    }
+
+    private static final class Token {
+        final int type;
+        final String text;
+        final int position;
+
+        Token(int type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+/**
+ * 规则表达式语法错误，包含出错位置
+ */
+public class RuleSyntaxException extends IllegalArgumentException {
+    private final String expression;
+    private final int position;
+
+    public RuleSyntaxException(String message, String expression, int position) {
+        super(message + "（位置 " + position + "）: " + expression);
+        this.expression = expression;
+        this.position = position;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 出错位置，从0开始的字符下标
+     */
+    public int getPosition() {
+        return position;
+    }
+}
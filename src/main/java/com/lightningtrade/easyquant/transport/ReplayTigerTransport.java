@@ -0,0 +1,333 @@
+package com.lightningtrade.easyquant.transport;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.lightningtrade.easyquant.calendar.MarketSession;
+import com.lightningtrade.easyquant.resample.BarResampler;
+import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.KlineItem;
+import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.KlinePoint;
+import com.tigerbrokers.stock.openapi.client.https.domain.quote.item.TradeCalendar;
+import com.tigerbrokers.stock.openapi.client.https.request.TigerHttpRequest;
+import com.tigerbrokers.stock.openapi.client.https.response.TigerHttpResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.TigerResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteKlineResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteTradeCalendarResponse;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import com.tigerbrokers.stock.openapi.client.struct.enums.Market;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回放传输层，replay环境下替代真实的Tiger接口，用于在没有网络和账号的情况下压测数据链路
+ *
+ * K线数据来源（多证券请求时每个证券各自生成一页）：
+ * - 录制目录下存在 {symbol}_{kType}.json（KlinePoint数组）时按时间分页回放录制的数据
+ * - 否则按交易时段生成确定性的合成K线：同一股票同一时间的K线每次生成的结果都相同，
+ *   工作日均视为交易日，纯数字代码按港股时段生成，其余按美股时段生成
+ *
+ * 交易日历：录制目录下存在 calendar_{market}.json（TradeCalendar数组）时回放，否则工作日均为交易日。
+ * 交易请求：直接返回成功，下单返回递增的订单ID，撤单原样返回订单ID。
+ *
+ * 配置项：
+ * - replay.latency-ms：每次请求的模拟延迟毫秒数，默认0
+ * - replay.page-size：每页K线数量，默认1200
+ * - replay.recordings-path：录制数据目录，默认 ./data/recordings
+ */
+@Component
+@Profile("replay")
+public class ReplayTigerTransport implements TigerTransport {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayTigerTransport.class);
+
+    @Value("${replay.latency-ms:0}")
+    private long latencyMs;
+
+    @Value("${replay.page-size:1200}")
+    private int pageSize;
+
+    @Value("${replay.recordings-path:./data/recordings}")
+    private String recordingsPath;
+
+    // 已加载的录制K线，键为 symbol_kType，没有录制文件时为空列表
+    private final ConcurrentHashMap<String, List<KlinePoint>> recordings = new ConcurrentHashMap<>();
+
+    private final AtomicLong orderId = new AtomicLong(System.currentTimeMillis());
+
+    @Override
+    public QuoteKlineResponse queryKline(List<String> symbols, KType kType, long beginMillis, long endMillis,
+            String pageToken) {
+        simulateLatency();
+        long from = pageToken != null ? Long.parseLong(pageToken) : beginMillis;
+        long to = endMillis < 0 ? System.currentTimeMillis() : endMillis;
+
+        List<KlineItem> items = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            items.add(page(symbol, kType, from, to));
+        }
+
+        QuoteKlineResponse response = new QuoteKlineResponse();
+        success(response);
+        response.setKlineItems(items);
+        return response;
+    }
+
+    /**
+     * 一个证券从from开始的一页K线
+     */
+    private KlineItem page(String symbol, KType kType, long from, long to) {
+        List<KlinePoint> points = new ArrayList<>(Math.min(pageSize, 4096));
+        long next = -1;
+        List<KlinePoint> recorded = recording(symbol, kType);
+        if (!recorded.isEmpty()) {
+            int index = lowerBound(recorded, from);
+            for (; index < recorded.size() && recorded.get(index).getTime() <= to; index++) {
+                if (points.size() == pageSize) {
+                    next = recorded.get(index).getTime();
+                    break;
+                }
+                points.add(recorded.get(index));
+            }
+        } else {
+            next = generate(symbol, kType, from, to, points);
+        }
+
+        KlineItem item = new KlineItem();
+        item.setSymbol(symbol);
+        item.setPeriod(kType.name());
+        item.setItems(points);
+        item.setNextPageToken(next >= 0 ? String.valueOf(next) : null);
+        return item;
+    }
+
+    @Override
+    public QuoteTradeCalendarResponse queryTradeCalendar(Market market, LocalDate beginDate, LocalDate endDate) {
+        simulateLatency();
+        List<TradeCalendar> items = new ArrayList<>();
+        Path file = Paths.get(recordingsPath, "calendar_" + market.name() + ".json");
+        if (Files.isRegularFile(file)) {
+            for (TradeCalendar day : readArray(file, TradeCalendar.class)) {
+                LocalDate date = LocalDate.parse(day.getDate());
+                if (!date.isBefore(beginDate) && !date.isAfter(endDate)) {
+                    items.add(day);
+                }
+            }
+        } else {
+            for (LocalDate date = beginDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                if (isWeekday(date)) {
+                    TradeCalendar day = new TradeCalendar();
+                    day.setDate(date.toString());
+                    day.setType("TRADING");
+                    items.add(day);
+                }
+            }
+        }
+
+        QuoteTradeCalendarResponse response = new QuoteTradeCalendarResponse();
+        success(response);
+        response.setItems(items);
+        return response;
+    }
+
+    @Override
+    public TigerHttpResponse execute(TigerHttpRequest request) {
+        simulateLatency();
+        JSONObject bizContent = request.getBizContent() != null ? JSON.parseObject(request.getBizContent()) : null;
+        JSONObject data = new JSONObject();
+        if (bizContent != null && bizContent.containsKey("id")) {
+            data.put("id", bizContent.getLong("id"));
+        } else {
+            data.put("id", orderId.incrementAndGet());
+        }
+
+        TigerHttpResponse response = new TigerHttpResponse();
+        success(response);
+        response.setData(data.toJSONString());
+        logger.info("回放交易请求 - 请求内容: {}, 返回: {}", request.getBizContent(), response.getData());
+        return response;
+    }
+
+    /**
+     * 生成[from, to]区间内的合成K线，最多一页
+     *
+     * @return 下一页第一根K线的时间，没有下一页时返回-1
+     */
+    private long generate(String symbol, KType kType, long from, long to, List<KlinePoint> out) {
+        MarketSession session = symbol.chars().allMatch(Character::isDigit) ? MarketSession.HK : MarketSession.US;
+        int minutes = BarResampler.minutesOf(kType);
+        long seed = symbol.hashCode();
+        LocalDate date = session.tradeDate(from);
+        LocalDate lastDate = session.tradeDate(to);
+
+        for (; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            if (!isWeekday(date)) {
+                continue;
+            }
+            if (minutes > 0) {
+                int minutesPerDay = session.getMinutesPerDay(false);
+                for (int minute = 0; minute < minutesPerDay; minute += minutes) {
+                    long time = session.sessionMinuteToMillis(date, minute);
+                    if (time < from) {
+                        continue;
+                    }
+                    if (time > to) {
+                        return -1;
+                    }
+                    if (out.size() == pageSize) {
+                        return time;
+                    }
+                    out.add(point(seed, time, minutes));
+                }
+            } else if (isPeriodStart(kType, date)) {
+                long time = date.atStartOfDay(session.getZoneId()).toInstant().toEpochMilli();
+                if (time < from) {
+                    continue;
+                }
+                if (time > to) {
+                    return -1;
+                }
+                if (out.size() == pageSize) {
+                    return time;
+                }
+                out.add(point(seed, time, 390));
+            }
+        }
+        return -1;
+    }
+
+    // 日及以上周期只在周期内第一个工作日生成K线
+    private static boolean isPeriodStart(KType kType, LocalDate date) {
+        switch (kType) {
+            case week:
+                return date.getDayOfWeek() == DayOfWeek.MONDAY;
+            case month:
+                return date.equals(firstWeekday(date.withDayOfMonth(1)));
+            case year:
+                return date.equals(firstWeekday(date.withDayOfYear(1)));
+            default:
+                return true;
+        }
+    }
+
+    private static LocalDate firstWeekday(LocalDate date) {
+        return isWeekday(date) ? date : date.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * 按时间生成确定性的K线：价格围绕基准价做慢速正弦波动并叠加伪随机扰动，保留两位小数
+     *
+     * @param minutes K线周期的分钟数，决定扰动幅度和成交量
+     */
+    private static KlinePoint point(long seed, long time, int minutes) {
+        double base = 50 + Math.floorMod(seed, 450);
+        double trend = base * (1 + 0.2 * Math.sin(time / 86_400_000.0 / 60));
+        double range = trend * 0.002 * Math.sqrt(minutes);
+        long hash = mix(seed ^ time);
+        double open = round(trend + range * (unit(hash) - 0.5));
+        double close = round(trend + range * (unit(hash >>> 16) - 0.5));
+        double high = round(Math.max(open, close) + range * unit(hash >>> 32) / 2);
+        double low = round(Math.min(open, close) - range * unit(hash >>> 48) / 2);
+
+        KlinePoint point = new KlinePoint();
+        point.setTime(time);
+        point.setOpen(open);
+        point.setHigh(high);
+        point.setLow(low);
+        point.setClose(close);
+        point.setVolume(1000L * minutes + Math.floorMod(hash, 1000L * minutes));
+        return point;
+    }
+
+    // SplitMix64哈希
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // 取低16位映射到[0, 1)
+    private static double unit(long hash) {
+        return (hash & 0xFFFF) / 65536.0;
+    }
+
+    private static double round(double price) {
+        return Math.round(price * 100) / 100.0;
+    }
+
+    private static boolean isWeekday(LocalDate date) {
+        return date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 读取录制的K线，按时间升序排列
+     */
+    private List<KlinePoint> recording(String symbol, KType kType) {
+        return recordings.computeIfAbsent(symbol + "_" + kType.name(), key -> {
+            Path file = Paths.get(recordingsPath, key + ".json");
+            if (!Files.isRegularFile(file)) {
+                return Collections.emptyList();
+            }
+            List<KlinePoint> points = new ArrayList<>(readArray(file, KlinePoint.class));
+            points.sort(Comparator.comparing(KlinePoint::getTime));
+            logger.info("加载录制K线 - 文件: {}, 数据点数: {}", file, points.size());
+            return points;
+        });
+    }
+
+    private static <T> List<T> readArray(Path file, Class<T> type) {
+        try {
+            List<T> items = JSON.parseArray(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), type);
+            return items != null ? items : Collections.emptyList();
+        } catch (Exception e) {
+            logger.error("读取录制数据失败 - 文件: {}", file, e);
+            return Collections.emptyList();
+        }
+    }
+
+    // 第一根时间不早于time的K线下标
+    private static int lowerBound(List<KlinePoint> points, long time) {
+        int low = 0;
+        int high = points.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (points.get(mid).getTime() < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void success(TigerResponse response) {
+        response.setCode(0);
+        response.setMessage("success");
+    }
+
+    private void simulateLatency() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
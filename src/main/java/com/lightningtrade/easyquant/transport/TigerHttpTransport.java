@@ -0,0 +1,56 @@
+package com.lightningtrade.easyquant.transport;
+
+import com.tigerbrokers.stock.openapi.client.https.client.TigerHttpClient;
+import com.tigerbrokers.stock.openapi.client.https.request.TigerHttpRequest;
+import com.tigerbrokers.stock.openapi.client.https.request.quote.QuoteKlineRequest;
+import com.tigerbrokers.stock.openapi.client.https.request.quote.QuoteTradeCalendarRequest;
+import com.tigerbrokers.stock.openapi.client.https.response.TigerHttpResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteKlineResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteTradeCalendarResponse;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import com.tigerbrokers.stock.openapi.client.struct.enums.Market;
+import com.tigerbrokers.stock.openapi.client.struct.enums.TimeZoneId;
+import com.tigerbrokers.stock.openapi.client.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 通过TigerHttpClient访问真实接口的传输层实现
+ */
+@Component
+@Profile("!replay")
+public class TigerHttpTransport implements TigerTransport {
+
+    @Autowired
+    private TigerHttpClient tigerClient;
+
+    @Override
+    public QuoteKlineResponse queryKline(List<String> symbols, KType kType, long beginMillis, long endMillis,
+            String pageToken) {
+        QuoteKlineRequest request = QuoteKlineRequest.newRequest(
+                symbols,
+                kType,
+                DateUtils.printDate(beginMillis, TimeZoneId.NewYork),
+                endMillis < 0 ? "-1" : DateUtils.printDate(endMillis, TimeZoneId.NewYork));
+        if (pageToken != null) {
+            request.withPageToken(pageToken);
+        }
+        return tigerClient.execute(request);
+    }
+
+    @Override
+    public QuoteTradeCalendarResponse queryTradeCalendar(Market market, LocalDate beginDate, LocalDate endDate) {
+        QuoteTradeCalendarRequest request = QuoteTradeCalendarRequest.newRequest(
+                market, beginDate.toString(), endDate.toString());
+        return tigerClient.execute(request);
+    }
+
+    @Override
+    public TigerHttpResponse execute(TigerHttpRequest request) {
+        return tigerClient.execute(request);
+    }
+}
@@ -0,0 +1,61 @@
+package com.lightningtrade.easyquant.transport;
+
+import com.tigerbrokers.stock.openapi.client.https.request.TigerHttpRequest;
+import com.tigerbrokers.stock.openapi.client.https.response.TigerHttpResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteKlineResponse;
+import com.tigerbrokers.stock.openapi.client.https.response.quote.QuoteTradeCalendarResponse;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import com.tigerbrokers.stock.openapi.client.struct.enums.Market;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tiger行情与交易接口的传输层
+ * 业务代码只通过该接口访问Tiger，具体实现按Spring Profile选择：
+ * - TigerHttpTransport：默认实现，通过TigerHttpClient访问真实接口
+ * - ReplayTigerTransport：replay环境下使用，回放录制的或合成的响应，用于离线压测数据链路
+ */
+public interface TigerTransport {
+
+    /**
+     * 查询一页K线
+     *
+     * @param symbol      股票代码
+     * @param kType       K线类型
+     * @param beginMillis 开始时间（毫秒时间戳）
+     * @param endMillis   结束时间（毫秒时间戳），-1表示到最新
+     * @param pageToken   分页令牌，第一页为null
+     */
+    default QuoteKlineResponse queryKline(String symbol, KType kType, long beginMillis, long endMillis,
+            String pageToken) {
+        return queryKline(Collections.singletonList(symbol), kType, beginMillis, endMillis, pageToken);
+    }
+
+    /**
+     * 一次请求查询多个证券的K线，响应中每个证券对应一个KlineItem，各自带有下一页的分页令牌
+     *
+     * @param symbols     股票代码列表
+     * @param kType       K线类型
+     * @param beginMillis 开始时间（毫秒时间戳）
+     * @param endMillis   结束时间（毫秒时间戳），-1表示到最新
+     * @param pageToken   分页令牌，第一页为null（分页令牌只适用于单个证券）
+     */
+    QuoteKlineResponse queryKline(List<String> symbols, KType kType, long beginMillis, long endMillis,
+            String pageToken);
+
+    /**
+     * 查询交易日历
+     *
+     * @param market    市场
+     * @param beginDate 开始日期
+     * @param endDate   结束日期
+     */
+    QuoteTradeCalendarResponse queryTradeCalendar(Market market, LocalDate beginDate, LocalDate endDate);
+
+    /**
+     * 执行交易请求（下单、撤单等）
+     */
+    TigerHttpResponse execute(TigerHttpRequest request);
+}
@@ -7,8 +7,13 @@ CREATE TABLE IF NOT EXISTS historical_data (
     low DOUBLE NOT NULL,
     close DOUBLE NOT NULL,
     volume DOUBLE NOT NULL,
+    k_type VARCHAR(10) NOT NULL,
     created_at TIMESTAMP NOT NULL
 );
 
 CREATE INDEX IF NOT EXISTS idx_historical_data_symbol_datetime 
-ON historical_data(symbol, date_time); 
\ No newline at end of file
+ON historical_data(symbol, date_time);
+
+-- 批量写入按(symbol, k_type, date_time)做MERGE，需要该索引
+CREATE INDEX IF NOT EXISTS idx_historical_data_key
+ON historical_data(symbol, k_type, date_time); 
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.lightningtrade.easyquant.archive;
+
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 归档文件写入后读出的K线与原始数据逐位相同，覆盖十进制价格与任意浮点价格两种编码
+ */
+class BarArchiveRoundTripTest {
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    void decimalPricesRoundTripAcrossBlocks() throws IOException {
+        BarArrays bars = randomBars(BarArchiveWriter.BLOCK_SIZE * 2 + 123, 1, true);
+        byte[] archive = write(bars, "AAPL", "min1");
+
+        try (BarArchiveReader reader = new BarArchiveReader(new ByteArrayInputStream(archive))) {
+            assertEquals("AAPL", reader.getSymbol());
+            assertEquals("min1", reader.getKType());
+            assertEquals(bars.getTime(0), reader.getRangeStart());
+            assertEquals(bars.getTime(bars.size() - 1), reader.getRangeEnd());
+            assertSameBars(bars, reader.readRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void arbitraryDoublesRoundTrip() throws IOException {
+        BarArrays bars = randomBars(5000, 2, false);
+        byte[] archive = write(bars, "00700", "day");
+
+        try (BarArchiveReader reader = new BarArchiveReader(new ByteArrayInputStream(archive))) {
+            assertSameBars(bars, reader.readRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void readRangeReturnsOnlyBarsInside() throws IOException {
+        BarArrays bars = randomBars(BarArchiveWriter.BLOCK_SIZE * 3, 3, true);
+        byte[] archive = write(bars, "AAPL", "min1");
+        int from = BarArchiveWriter.BLOCK_SIZE - 10;
+        int to = BarArchiveWriter.BLOCK_SIZE * 2 + 10;
+
+        try (BarArchiveReader reader = new BarArchiveReader(new ByteArrayInputStream(archive))) {
+            BarArrays range = reader.readRange(bars.getTime(from), bars.getTime(to - 1));
+            assertSameBars(bars.subRange(from, to), range);
+        }
+    }
+
+    @Test
+    void emptyArchiveHasNoBlocks() throws IOException {
+        byte[] archive = write(new BarArrays(), "AAPL", "day");
+
+        try (BarArchiveReader reader = new BarArchiveReader(new ByteArrayInputStream(archive))) {
+            assertFalse(reader.readBlock(new BarArrays()));
+        }
+    }
+
+    @Test
+    void truncatedArchiveFailsToDecode() throws IOException {
+        byte[] archive = write(randomBars(BarArchiveWriter.BLOCK_SIZE * 2, 4, true), "AAPL", "min1");
+        for (int length : new int[] { archive.length - 4, archive.length / 2 }) {
+            byte[] truncated = Arrays.copyOf(archive, length);
+            try (BarArchiveReader reader = new BarArchiveReader(new ByteArrayInputStream(truncated))) {
+                assertThrows(IOException.class, () -> reader.readRange(Long.MIN_VALUE, Long.MAX_VALUE),
+                        "截断到" + length + "字节");
+            }
+        }
+    }
+
+    @Test
+    void rejectsOutOfOrderBars() throws IOException {
+        try (BarArchiveWriter writer = new BarArchiveWriter(new ByteArrayOutputStream(), "AAPL", "day", 0, 0)) {
+            writer.write(2000, 1, 1, 1, 1, 1);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(2000, 1, 1, 1, 1, 1));
+        }
+    }
+
+    @Test
+    void rejectsNonArchiveInput() {
+        assertThrows(IOException.class, () -> new BarArchiveReader(new ByteArrayInputStream(new byte[16])));
+    }
+
+    private static byte[] write(BarColumns bars, String symbol, String kType) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = bars.size() > 0 ? bars.getTime(0) : 0;
+        long end = bars.size() > 0 ? bars.getTime(bars.size() - 1) : 0;
+        try (BarArchiveWriter writer = new BarArchiveWriter(output, symbol, kType, start, end)) {
+            writer.write(bars);
+            assertEquals(bars.size(), writer.getBarCount());
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 生成随机K线，时间大多等间隔、偶有跳空
+     *
+     * @param decimal 为true时价格保留两位小数、成交量为整数，否则为任意浮点数
+     */
+    private static BarArrays randomBars(int count, long seed, boolean decimal) {
+        Random random = new Random(seed);
+        BarArrays bars = new BarArrays(count);
+        long time = 1_600_000_000_000L;
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(20) == 0 ? MINUTE * (2 + random.nextInt(1000)) : MINUTE;
+            price = Math.max(1, price + random.nextGaussian());
+            double open = price;
+            double close = Math.max(1, price + random.nextGaussian());
+            double high = Math.max(open, close) + random.nextDouble();
+            double low = Math.min(open, close) - random.nextDouble();
+            double volume = random.nextDouble() * 1e6;
+            if (decimal) {
+                open = Math.round(open * 100) / 100.0;
+                close = Math.round(close * 100) / 100.0;
+                high = Math.round(high * 100) / 100.0;
+                low = Math.round(low * 100) / 100.0;
+                volume = Math.floor(volume);
+            }
+            bars.add(time, open, high, low, close, volume);
+        }
+        return bars;
+    }
+
+    private static void assertSameBars(BarColumns expected, BarColumns actual) {
+        assertEquals(expected.size(), actual.size(), "K线数量");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTime(i), actual.getTime(i), "time " + i);
+            assertEquals(expected.getOpen(i), actual.getOpen(i), "open " + i);
+            assertEquals(expected.getHigh(i), actual.getHigh(i), "high " + i);
+            assertEquals(expected.getLow(i), actual.getLow(i), "low " + i);
+            assertEquals(expected.getClose(i), actual.getClose(i), "close " + i);
+            assertEquals(expected.getVolume(i), actual.getVolume(i), "volume " + i);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.lightningtrade.easyquant.backtest;
+
+import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.store.TestBars;
+import com.lightningtrade.easyquant.strategy.BollingerBandsStrategy;
+import com.lightningtrade.easyquant.strategy.DoubleMAStrategy;
+import com.lightningtrade.easyquant.strategy.MACDStrategy;
+import com.lightningtrade.easyquant.strategy.RSIStrategy;
+import com.lightningtrade.easyquant.strategy.TradingStrategy;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 回测引擎的批量模式与逐根模式结果必须完全相同
+ */
+class BatchBacktestTest {
+    @Test
+    void batchBacktestMatchesBarByBar() {
+        List<MarketData> data = TestBars.dailyRandomWalk(3000, 42).asMarketDataList("TEST", ZoneOffset.UTC);
+        List<Supplier<TradingStrategy>> strategies = Arrays.asList(DoubleMAStrategy::new, RSIStrategy::new,
+                MACDStrategy::new, BollingerBandsStrategy::new);
+        for (Supplier<TradingStrategy> factory : strategies) {
+            BacktestResult bars = engine(false).runBacktest("TEST", data, factory.get(), 100000, KType.day);
+            BacktestResult batch = engine(true).runBacktest("TEST", data, factory.get(), 100000, KType.day);
+
+            String name = factory.get().getClass().getSimpleName();
+            assertFalse(bars.getTrades().isEmpty(), name + " 没有成交");
+            assertEquals(bars.getTrades().size(), batch.getTrades().size(), name);
+            for (int i = 0; i < bars.getTrades().size(); i++) {
+                BacktestTradeRecord expected = bars.getTrades().get(i);
+                BacktestTradeRecord actual = batch.getTrades().get(i);
+                assertEquals(expected.getType(), actual.getType(), name);
+                assertEquals(expected.getTime(), actual.getTime(), name);
+                assertEquals(expected.getPrice(), actual.getPrice(), name);
+                assertEquals(expected.getQuantity(), actual.getQuantity(), name);
+                assertEquals(expected.getProfit(), actual.getProfit(), name);
+            }
+            assertEquals(bars.getEquityCurve(), batch.getEquityCurve(), name);
+            assertEquals(bars.getFinalCapital(), batch.getFinalCapital(), name);
+            assertEquals(bars.getMaxDrawdown(), batch.getMaxDrawdown(), name);
+            assertEquals(bars.getSharpeRatio(), batch.getSharpeRatio(), name);
+        }
+    }
+
+    private static USBacktestEngine engine(boolean batchEnabled) {
+        USBacktestEngine engine = new USBacktestEngine();
+        engine.batchEnabled = batchEnabled;
+        return engine;
+    }
+}
@@ -0,0 +1,172 @@
+package com.lightningtrade.easyquant.indicator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 指标计算结果与替换前ta4j的定义一致：
+ * SMA窗口未满时取已有数据的平均，EMA以第一个值为初始值，RSI用Wilder平滑且第一个涨跌幅按0计入，
+ * 标准差为总体标准差，MACD的DEA为DIF的EMA
+ */
+class IndicatorReferenceTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void smaMatchesReferenceValues() {
+        assertArrayEquals(new double[] { 1, 1.5, 2, 3, 4 }, run(new SMAIndicator(3), 1, 2, 3, 4, 5), EPSILON);
+    }
+
+    @Test
+    void emaMatchesReferenceValues() {
+        // α = 2 / (3 + 1) = 0.5
+        assertArrayEquals(new double[] { 1, 1.5, 2.25, 3.125, 4.0625 },
+                run(new EMAIndicator(3), 1, 2, 3, 4, 5), EPSILON);
+    }
+
+    @Test
+    void rsiMatchesReferenceValues() {
+        // 涨幅 0, 1, 0, 2 与跌幅 0, 0, 1, 0 分别以 α = 1/2 平滑
+        assertArrayEquals(new double[] { 0, 100, 100 - 100 / 1.5, 100 - 100 / 5.5 },
+                run(new RSIIndicator(2), 1, 2, 1, 3), EPSILON);
+    }
+
+    @Test
+    void standardDeviationMatchesReferenceValues() {
+        assertArrayEquals(new double[] { 0, 0.5, Math.sqrt(2.0 / 3), Math.sqrt(2.0 / 3), Math.sqrt(14.0 / 3) },
+                run(new StandardDeviationIndicator(3), 1, 2, 3, 4, 8), EPSILON);
+    }
+
+    @Test
+    void indicatorsMatchNaiveRecomputation() {
+        double[] prices = randomWalk(500, 3);
+        int n = prices.length;
+
+        SMAIndicator sma = new SMAIndicator(20);
+        EMAIndicator ema = new EMAIndicator(12);
+        RSIIndicator rsi = new RSIIndicator(14);
+        StandardDeviationIndicator std = new StandardDeviationIndicator(20);
+        MACDIndicator macd = new MACDIndicator(12, 26, 9);
+        BollingerBandsIndicator bollinger = new BollingerBandsIndicator(20, 2);
+
+        double[] emaFast = naiveEma(prices, 12);
+        double[] emaSlow = naiveEma(prices, 26);
+        double[] dif = new double[n];
+        for (int i = 0; i < n; i++) {
+            dif[i] = emaFast[i] - emaSlow[i];
+        }
+        double[] dea = naiveEma(dif, 9);
+        double[] rsiExpected = naiveRsi(prices, 14);
+
+        for (int i = 0; i < n; i++) {
+            double mean = naiveMean(prices, i, 20);
+            double deviation = naiveStd(prices, i, 20);
+            assertEquals(mean, sma.update(prices[i]), EPSILON, "SMA " + i);
+            assertEquals(emaFast[i], ema.update(prices[i]), EPSILON, "EMA " + i);
+            assertEquals(rsiExpected[i], rsi.update(prices[i]), EPSILON, "RSI " + i);
+            assertEquals(deviation, std.update(prices[i]), EPSILON, "STDDEV " + i);
+            assertEquals(dif[i], macd.update(prices[i]), EPSILON, "MACD DIF " + i);
+            assertEquals(dea[i], macd.getSignal(), EPSILON, "MACD DEA " + i);
+            assertEquals(mean, bollinger.update(prices[i]), EPSILON, "BOLL middle " + i);
+            assertEquals(mean + 2 * deviation, bollinger.getUpper(), EPSILON, "BOLL upper " + i);
+            assertEquals(mean - 2 * deviation, bollinger.getLower(), EPSILON, "BOLL lower " + i);
+        }
+    }
+
+    @Test
+    void batchUpdateMatchesStreaming() {
+        double[] prices = randomWalk(300, 5);
+        Indicator[][] pairs = {
+                { new SMAIndicator(20), new SMAIndicator(20) },
+                { new EMAIndicator(12), new EMAIndicator(12) },
+                { new RSIIndicator(14), new RSIIndicator(14) },
+                { new StandardDeviationIndicator(20), new StandardDeviationIndicator(20) },
+                { new MACDIndicator(12, 26, 9), new MACDIndicator(12, 26, 9) },
+                { new BollingerBandsIndicator(20, 2), new BollingerBandsIndicator(20, 2) },
+        };
+        for (Indicator[] pair : pairs) {
+            String name = pair[0].getClass().getSimpleName();
+            double[] expected = run(pair[0], prices);
+            double[][] outputs = new double[pair[1].getOutputCount()][prices.length];
+            // 分两段批量计算，第二段从第一段结束时的状态继续
+            pair[1].update(prices, 0, 100, outputs);
+            pair[1].update(prices, 100, prices.length, outputs);
+            assertArrayEquals(expected, outputs[0], 0, name);
+            assertEquals(pair[0].getValue(), pair[1].getValue(), name);
+        }
+    }
+
+    private static double[] run(Indicator indicator, double... values) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = indicator.update(values[i]);
+        }
+        return result;
+    }
+
+    private static double naiveMean(double[] values, int end, int period) {
+        int start = Math.max(0, end - period + 1);
+        double sum = 0;
+        for (int i = start; i <= end; i++) {
+            sum += values[i];
+        }
+        return sum / (end - start + 1);
+    }
+
+    private static double naiveStd(double[] values, int end, int period) {
+        int start = Math.max(0, end - period + 1);
+        double mean = naiveMean(values, end, period);
+        double sum = 0;
+        for (int i = start; i <= end; i++) {
+            sum += (values[i] - mean) * (values[i] - mean);
+        }
+        return Math.sqrt(sum / (end - start + 1));
+    }
+
+    private static double[] naiveEma(double[] values, int period) {
+        return smooth(values, 2.0 / (period + 1));
+    }
+
+    private static double[] smooth(double[] values, double alpha) {
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = i == 0 ? values[0] : result[i - 1] + alpha * (values[i] - result[i - 1]);
+        }
+        return result;
+    }
+
+    private static double[] naiveRsi(double[] values, int period) {
+        double[] gains = new double[values.length];
+        double[] losses = new double[values.length];
+        for (int i = 1; i < values.length; i++) {
+            double change = values[i] - values[i - 1];
+            gains[i] = Math.max(change, 0);
+            losses[i] = Math.max(-change, 0);
+        }
+        double[] averageGain = smooth(gains, 1.0 / period);
+        double[] averageLoss = smooth(losses, 1.0 / period);
+        double[] result = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (averageLoss[i] == 0) {
+                result[i] = averageGain[i] == 0 ? 0 : 100;
+            } else {
+                result[i] = 100 - 100 / (1 + averageGain[i] / averageLoss[i]);
+            }
+        }
+        return result;
+    }
+
+    private static double[] randomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        double[] prices = new double[count];
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            price = Math.max(1, price + random.nextGaussian());
+            prices[i] = price;
+        }
+        return prices;
+    }
+}
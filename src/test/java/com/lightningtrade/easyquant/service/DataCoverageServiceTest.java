@@ -0,0 +1,192 @@
+package com.lightningtrade.easyquant.service;
+
+import com.lightningtrade.easyquant.entity.DataCoverage;
+import com.lightningtrade.easyquant.model.TimeRange;
+import com.lightningtrade.easyquant.repository.DataCoverageRepository;
+import com.tigerbrokers.stock.openapi.client.struct.enums.KType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 覆盖区间的缺口计算与合并，仓库用内存列表代替数据库
+ */
+class DataCoverageServiceTest {
+    private static final String SYMBOL = "AAPL";
+
+    private final List<DataCoverage> rows = new ArrayList<>();
+    private DataCoverageService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rows.clear();
+        service = new DataCoverageService();
+        set("coverageRepository", inMemoryRepository());
+        // 没有事务管理器，直接执行回调
+        set("transactionTemplate", new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        });
+    }
+
+    @Test
+    void wholeRangeIsMissingWithoutCoverage() {
+        assertGaps(service.findGaps(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 10_000), 0, 10_000);
+    }
+
+    @Test
+    void gapsSurroundCoveredRange() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 2_000, 5_000);
+
+        assertGaps(service.findGaps(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 10_000),
+                0, 1_999, 5_001, 10_000);
+        assertTrue(service.isCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 2_000, 5_000));
+        assertTrue(service.isCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 3_000, 4_000));
+        assertFalse(service.isCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 1_000, 4_000));
+    }
+
+    @Test
+    void gapsBetweenSeveralRanges() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 10_000, 20_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 60_000, 70_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 30_000, 40_000);
+
+        assertGaps(service.findGaps(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 15_000, 65_000),
+                20_001, 29_999, 40_001, 59_999);
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesMerge() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 1_000, 2_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 4_000, 5_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 5_001, 6_000);
+        assertEquals(2, rows.size());
+
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 1_500, 4_500);
+        assertEquals(1, rows.size());
+        assertEquals(1_000L, rows.get(0).getRangeStart());
+        assertEquals(6_000L, rows.get(0).getRangeEnd());
+    }
+
+    @Test
+    void subSecondGapsCannotHoldBars() {
+        // [1501, 1999]不含整秒时刻，两段视为相邻
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 1_500);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 2_000, 3_000);
+        assertEquals(1, rows.size());
+        assertTrue(service.isCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 3_000));
+
+        // [4001, 5000]包含整秒5000，仍是缺口
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 5_001, 6_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 3_500, 4_000);
+        assertGaps(service.findGaps(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 6_000), 4_001, 5_000);
+    }
+
+    @Test
+    void concurrentUpdatesMergeIntoOneRange() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                long start = i * 10_000L;
+                futures.add(executor.submit(() -> service.markCovered(SYMBOL, KType.day,
+                        DataCoverage.LAYER_DATABASE, start, start + 9_999)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, rows.size());
+        assertEquals(0L, rows.get(0).getRangeStart());
+        assertEquals(639_999L, rows.get(0).getRangeEnd());
+    }
+
+    @Test
+    void clearCoveredKeepsOnlyTheOutsideParts() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 10_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 20_000, 30_000);
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 40_000, 50_000);
+
+        service.clearCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 5_000, 45_000);
+
+        assertGaps(service.findGaps(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 50_000), 5_000, 45_000);
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void emptyRangeIsIgnored() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 2_000, 1_999);
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    void layersAndKTypesAreIndependent() {
+        service.markCovered(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE, 0, 10_000);
+
+        assertTrue(service.hasCoverage(SYMBOL, KType.day, DataCoverage.LAYER_DATABASE));
+        assertFalse(service.hasCoverage(SYMBOL, KType.day, DataCoverage.LAYER_BAR_STORE));
+        assertFalse(service.isCovered(SYMBOL, KType.min1, DataCoverage.LAYER_DATABASE, 0, 10_000));
+        assertFalse(service.isCovered("MSFT", KType.day, DataCoverage.LAYER_DATABASE, 0, 10_000));
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = DataCoverageService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(service, value);
+    }
+
+    private static void assertGaps(List<TimeRange> gaps, long... bounds) {
+        assertEquals(bounds.length / 2, gaps.size(), "缺口数量");
+        for (int i = 0; i < gaps.size(); i++) {
+            assertEquals(bounds[i * 2], gaps.get(i).getStart(), "缺口" + i + "开始");
+            assertEquals(bounds[i * 2 + 1], gaps.get(i).getEnd(), "缺口" + i + "结束");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataCoverageRepository inMemoryRepository() {
+        return (DataCoverageRepository) Proxy.newProxyInstance(DataCoverageRepository.class.getClassLoader(),
+                new Class<?>[] { DataCoverageRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findBySymbolAndkTypeAndLayerOrderByRangeStartAsc":
+                            return rows.stream()
+                                    .filter(row -> row.getSymbol().equals(args[0]) && row.getKType().equals(args[1])
+                                            && row.getLayer().equals(args[2]))
+                                    .sorted(Comparator.comparingLong(DataCoverage::getRangeStart))
+                                    .collect(Collectors.toList());
+                        case "deleteAll":
+                            for (DataCoverage row : (Iterable<DataCoverage>) args[0]) {
+                                rows.remove(row);
+                            }
+                            return null;
+                        case "delete":
+                            rows.remove(args[0]);
+                            return null;
+                        case "save":
+                            rows.add((DataCoverage) args[0]);
+                            return args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,30 @@
+package com.lightningtrade.easyquant.store;
+
+import java.util.Random;
+
+/**
+ * 测试用的K线数据
+ */
+public final class TestBars {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private TestBars() {
+    }
+
+    /**
+     * 每日一根K线的随机游走，同一个种子生成的数据相同
+     */
+    public static BarArrays dailyRandomWalk(int count, long seed) {
+        Random random = new Random(seed);
+        BarArrays bars = new BarArrays(count);
+        double price = 100;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+            double high = Math.max(open, price) * (1 + random.nextDouble() * 0.01);
+            double low = Math.min(open, price) * (1 - random.nextDouble() * 0.01);
+            bars.add(i * DAY, open, high, low, price, 1000 + random.nextInt(1000));
+        }
+        return bars;
+    }
+}
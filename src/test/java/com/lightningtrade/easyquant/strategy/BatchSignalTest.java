@@ -0,0 +1,99 @@
+package com.lightningtrade.easyquant.strategy;
+
+import com.lightningtrade.easyquant.model.MarketData;
+import com.lightningtrade.easyquant.model.Signal;
+import com.lightningtrade.easyquant.store.BarArrays;
+import com.lightningtrade.easyquant.store.BarColumns;
+import com.lightningtrade.easyquant.store.TestBars;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量计算信号与逐根调用onBar的结果和处理后的策略状态必须完全相同
+ */
+class BatchSignalTest {
+    private static final List<Supplier<TradingStrategy>> STRATEGIES = Arrays.asList(
+            MAStrategy::new,
+            DoubleMAStrategy::new,
+            MACrossStrategy::new,
+            RSIStrategy::new,
+            MACDStrategy::new,
+            BollingerBandsStrategy::new,
+            () -> new RuleStrategy("RSI(14) < 30 and close > SMA(50)", "close crosses below EMA(20)"));
+
+    @Test
+    void batchSignalsMatchBarByBar() throws IOException {
+        BarArrays bars = TestBars.dailyRandomWalk(2000, 7);
+        for (Supplier<TradingStrategy> factory : STRATEGIES) {
+            TradingStrategy streaming = factory.get();
+            Signal[] expected = new Signal[bars.size()];
+            List<MarketData> data = bars.asMarketDataList("TEST", ZoneOffset.UTC);
+            for (int i = 0; i < data.size(); i++) {
+                expected[i] = streaming.onBar(data.get(i));
+            }
+
+            TradingStrategy batch = factory.get();
+            Signal[] actual = batch.computeSignals(bars);
+
+            String name = streaming.getClass().getSimpleName();
+            assertArrayEquals(expected, actual, name + " 信号不一致");
+            assertArrayEquals(snapshot(streaming), snapshot(batch), name + " 状态不一致");
+        }
+    }
+
+    @Test
+    void batchContinuesFromStreamingState() throws IOException {
+        BarArrays bars = TestBars.dailyRandomWalk(600, 11);
+        BarColumns head = bars.subRange(0, 250);
+        BarColumns tail = bars.subRange(250, bars.size());
+        for (Supplier<TradingStrategy> factory : STRATEGIES) {
+            TradingStrategy streaming = factory.get();
+            List<MarketData> data = bars.asMarketDataList("TEST", ZoneOffset.UTC);
+            Signal[] expected = new Signal[tail.size()];
+            for (int i = 0; i < data.size(); i++) {
+                Signal signal = streaming.onBar(data.get(i));
+                if (i >= head.size()) {
+                    expected[i - head.size()] = signal;
+                }
+            }
+
+            // 先逐根处理前一段，再批量计算后一段
+            TradingStrategy mixed = factory.get();
+            List<MarketData> headData = head.asMarketDataList("TEST", ZoneOffset.UTC);
+            for (MarketData bar : headData) {
+                mixed.onBar(bar);
+            }
+            Signal[] actual = mixed.computeSignals(tail);
+
+            String name = streaming.getClass().getSimpleName();
+            assertArrayEquals(expected, actual, name + " 信号不一致");
+            assertArrayEquals(snapshot(streaming), snapshot(mixed), name + " 状态不一致");
+        }
+    }
+
+    @Test
+    void emptyBatchKeepsState() throws IOException {
+        BarArrays bars = TestBars.dailyRandomWalk(100, 3);
+        TradingStrategy strategy = new MACDStrategy();
+        strategy.computeSignals(bars);
+        byte[] before = snapshot(strategy);
+        assertEquals(0, strategy.computeSignals(new BarArrays(0)).length);
+        assertArrayEquals(before, snapshot(strategy));
+    }
+
+    private static byte[] snapshot(TradingStrategy strategy) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        strategy.saveState(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package com.lightningtrade.easyquant.strategy.rule;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 规则表达式的语法错误指向出错的字符位置
+ */
+class RuleParserTest {
+
+    @Test
+    void parsesValidExpressions() {
+        assertNotNull(RuleParser.parse("RSI(14) < 30 and close > SMA(50)"));
+        assertNotNull(RuleParser.parse("close crosses below EMA(20)"));
+        assertNotNull(RuleParser.parse("not (close > SMA(20)@day) || MACD(12, 26, 9) > 0"));
+        assertNotNull(RuleParser.parse("close > SMA(20, RSI(14))@day"));
+    }
+
+    @Test
+    void incompleteExpressionPointsAtEnd() {
+        assertErrorAt("close >", 7);
+        assertErrorAt("close > SMA(20", 14);
+    }
+
+    @Test
+    void unknownNamesPointAtName() {
+        assertErrorAt("close > FOO(3)", 8);
+        assertErrorAt("close > SMA(20)@week2", 16);
+    }
+
+    @Test
+    void invalidTokensPointAtToken() {
+        assertErrorAt("close $ 3", 6);
+        assertErrorAt("close > 1.2.3", 8);
+        assertErrorAt("close > MACD(12, 26, 9) )", 24);
+    }
+
+    @Test
+    void invalidArgumentsPointAtArgumentOrFunction() {
+        assertErrorAt("close > SMA(x)", 12);
+        // 参数值不合法时指向函数名
+        assertErrorAt("close > SMA(0)", 8);
+        // 输入指标单独指定了周期
+        assertErrorAt("close > SMA(20, RSI(14)@day)", 16);
+    }
+
+    @Test
+    void crossesRequiresDirection() {
+        assertErrorAt("close crosses SMA(20)", 14);
+    }
+
+    @Test
+    void typeErrorsPointAtOperand() {
+        assertErrorAt("RSI(14)", 0);
+        assertErrorAt("close > 1 and 5", 14);
+        assertErrorAt("not close", 4);
+    }
+
+    @Test
+    void emptyExpressionIsRejected() {
+        assertErrorAt("", 0);
+        assertErrorAt("   ", 0);
+    }
+
+    private static void assertErrorAt(String expression, int position) {
+        RuleSyntaxException e = assertThrows(RuleSyntaxException.class, () -> RuleParser.parse(expression),
+                expression);
+        assertEquals(position, e.getPosition(), expression);
+        assertEquals(expression, e.getExpression());
+    }
+}